@@ -48,6 +48,10 @@ public class Search extends Builder {
     @JsonProperty("refresh")
     Boolean refresh;
 
+    /** The max age in milliseconds of the index changes not visible to this search. */
+    @JsonProperty("max_staleness_ms")
+    Long maxStalenessMs;
+
     /** Default constructor. */
     public Search() {
     }
@@ -96,4 +100,15 @@ public class Search extends Builder {
         return this;
     }
 
+    /**
+     * Sets the max age in milliseconds of the index changes that the {@link Search} is allowed to not view.
+     *
+     * @param maxStalenessMs The max age in milliseconds of the index changes not visible to the {@link Search}.
+     * @return This {@link Search} with the specified max staleness.
+     */
+    public Search maxStalenessMs(Long maxStalenessMs) {
+        this.maxStalenessMs = maxStalenessMs;
+        return this;
+    }
+
 }
@@ -643,6 +643,13 @@ public class BuilderTest {
         assertEquals("search serialization is wrong", expected, actual);
     }
 
+    @Test
+    public void testSearchMaxStaleness() {
+        String actual = search().filter(all()).maxStalenessMs(500L).build();
+        String expected = "{\"filter\":{\"type\":\"all\"},\"max_staleness_ms\":500}";
+        assertEquals("search serialization is wrong", expected, actual);
+    }
+
     @Test
     public void testToString() {
         String actual = range("field").toString();
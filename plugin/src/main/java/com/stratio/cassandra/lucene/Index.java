@@ -19,6 +19,7 @@
 package com.stratio.cassandra.lucene;
 
 import com.stratio.cassandra.lucene.service.RowService;
+import org.apache.cassandra.concurrent.ScheduledExecutors;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.ColumnDefinition;
 import org.apache.cassandra.config.DatabaseDescriptor;
@@ -26,21 +27,28 @@ import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.ColumnFamily;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.commitlog.ReplayPosition;
 import org.apache.cassandra.db.composites.CellName;
 import org.apache.cassandra.db.index.PerRowSecondaryIndex;
 import org.apache.cassandra.db.index.SecondaryIndexSearcher;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.exceptions.InvalidRequestException;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.service.ClientState;
 import org.apache.cassandra.utils.concurrent.OpOrder;
+import org.apache.cassandra.utils.concurrent.Refs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A {@link PerRowSecondaryIndex} that uses Apache Lucene as backend. It allows, among others, multi-column and
@@ -52,6 +60,12 @@ public class Index extends PerRowSecondaryIndex {
 
     private static final Logger logger = LoggerFactory.getLogger(Index.class);
 
+    /** The min milliseconds to wait before trying again to reference the sstables to be recovered. */
+    private static final long MIN_RECOVERY_RETRY_MILLIS = 10;
+
+    /** The max milliseconds to wait before trying again to reference the sstables to be recovered. */
+    private static final long MAX_RECOVERY_RETRY_MILLIS = 1000;
+
     // Setup CQL query handler
     static {
         try {
@@ -101,6 +115,7 @@ public class Index extends PerRowSecondaryIndex {
             indexConfig = newIndexConfig();
             name = indexConfig.getName();
             service = RowService.build(baseCfs, indexConfig);
+            recover();
             logger.info("Initialized index {}", name);
             isExcluded = indexConfig.getExcludedDataCenters().contains(DatabaseDescriptor.getLocalDataCenter());
             if (isExcluded) {
@@ -206,6 +221,66 @@ public class Index extends PerRowSecondaryIndex {
         }
     }
 
+    /**
+     * Re-indexes asynchronously the data not covered by the last index commit, which is contained in the sstables
+     * flushed after the commitlog position recorded by that commit. The data that has not been flushed is re-indexed by
+     * the commitlog replay.
+     */
+    private void recover() {
+        final ReplayPosition position = service.getCommittedPosition();
+        if (position == null) {
+            logger.info("Lucene index {} has no committed commitlog position, skipping recovery", name);
+            return;
+        }
+        if (uncommittedSSTables(position).isEmpty()) {
+            logger.info("Lucene index {} is up to date with the flushed data", name);
+            return;
+        }
+        ScheduledExecutors.optionalTasks.execute(new Runnable() {
+
+            /** The milliseconds to wait before the next try to reference the sstables. */
+            private long retryMillis = MIN_RECOVERY_RETRY_MILLIS;
+
+            @Override
+            public void run() {
+                // Retry later if some sstable has been released by a concurrent compaction
+                Refs<SSTableReader> sstables = Refs.tryRef(uncommittedSSTables(position));
+                if (sstables == null) {
+                    long delayMillis = retryMillis;
+                    retryMillis = Math.min(2 * retryMillis, MAX_RECOVERY_RETRY_MILLIS);
+                    ScheduledExecutors.optionalTasks.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                logger.info("Recovering Lucene index {} from {} sstables flushed after commitlog position {}",
+                            name, sstables.size(), position);
+                try {
+                    baseCfs.indexManager.maybeBuildSecondaryIndexes(sstables, Collections.singleton(indexName));
+                    logger.info("Recovered Lucene index {}", name);
+                } catch (Exception e) {
+                    logger.error("Error recovering Lucene index " + name, e);
+                } finally {
+                    sstables.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the sstables of the indexed table containing data written after the specified commitlog position.
+     *
+     * @param position A commitlog position.
+     * @return The sstables containing data written after {@code position}.
+     */
+    private List<SSTableReader> uncommittedSSTables(ReplayPosition position) {
+        List<SSTableReader> sstables = new ArrayList<>();
+        for (SSTableReader sstable : baseCfs.getSSTables()) {
+            if (sstable.getSSTableMetadata().replayPosition.compareTo(position) > 0) {
+                sstables.add(sstable);
+            }
+        }
+        return sstables;
+    }
+
     private IndexConfig newIndexConfig() {
         ColumnDefinition cfDef = columnDefs.iterator().next();
         String ksName = cfDef.ksName;
@@ -214,6 +289,29 @@ public class Index extends PerRowSecondaryIndex {
         return new IndexConfig(metadata, cfDef);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The index is built scanning token ring slices in parallel if it is enabled, falling back to Cassandra's builder
+     * otherwise.
+     */
+    @Override
+    protected void buildIndexBlocking() {
+        if (!isExcluded) {
+            logger.info("Building Lucene index {}", name);
+            try {
+                if (service.build()) {
+                    setIndexBuilt();
+                    logger.info("Built Lucene index {}", name);
+                    return;
+                }
+            } catch (Exception e) {
+                logger.error("Error building Lucene index " + name + " in parallel", e);
+            }
+        }
+        super.buildIndexBlocking();
+    }
+
     /** {@inheritDoc} */
     @Override
     public void truncateBlocking(long truncatedAt) {
@@ -229,11 +327,24 @@ public class Index extends PerRowSecondaryIndex {
     /** {@inheritDoc} */
     @Override
     public void reload() {
+        logger.info("Reloading Lucene index {}", name);
+        if (service != null) {
+            service.invalidateCompiledSearches();
+        }
     }
 
     /** {@inheritDoc} */
     @Override
     public void forceBlockingFlush() {
+        if (!indexConfig.isCommitOnFlush()) {
+            return;
+        }
+        int commitWindowMs = indexConfig.getCommitWindowMs();
+        if (commitWindowMs > 0) {
+            logger.info("Requesting commit of Lucene index {}", name);
+            service.requestCommit(commitWindowMs);
+            return;
+        }
         logger.info("Flushing Lucene index {}", name);
         try {
             service.commit();
@@ -21,6 +21,7 @@ package com.stratio.cassandra.lucene;
 import com.google.common.base.Objects;
 import com.stratio.cassandra.lucene.schema.Schema;
 import com.stratio.cassandra.lucene.schema.SchemaBuilder;
+import com.stratio.cassandra.lucene.util.WaitStrategy;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.ColumnDefinition;
 import org.apache.cassandra.db.Directories;
@@ -64,6 +65,63 @@ public class IndexConfig {
     public static final String INDEXING_QUEUES_SIZE_OPTION = "indexing_queues_size";
     public static final int DEFAULT_INDEXING_QUEUES_SIZE = 50;
 
+    public static final String INDEXING_WAIT_STRATEGY_OPTION = "indexing_wait_strategy";
+    public static final WaitStrategy DEFAULT_INDEXING_WAIT_STRATEGY = WaitStrategy.BLOCKING;
+
+    public static final String FETCHING_THREADS_OPTION = "fetching_threads";
+    public static final int DEFAULT_FETCHING_THREADS = 0;
+
+    public static final String PIPELINED_SEARCH_OPTION = "pipelined_search";
+    public static final boolean DEFAULT_PIPELINED_SEARCH = false;
+
+    public static final String SEARCH_CACHE_SIZE_OPTION = "search_cache_size";
+    public static final int DEFAULT_SEARCH_CACHE_SIZE = 0;
+
+    public static final String TWO_PHASE_SEARCH_OPTION = "two_phase_search";
+    public static final boolean DEFAULT_TWO_PHASE_SEARCH = false;
+
+    public static final String SORTED_INDEX_OPTION = "sorted_index";
+    public static final boolean DEFAULT_SORTED_INDEX = false;
+
+    public static final String COUNT_PUSHDOWN_OPTION = "count_pushdown";
+    public static final boolean DEFAULT_COUNT_PUSHDOWN = false;
+
+    public static final String INDEXING_BATCH_SIZE_OPTION = "indexing_batch_size";
+    public static final int DEFAULT_INDEXING_BATCH_SIZE = 0;
+
+    public static final String INDEXING_BATCH_LINGER_MS_OPTION = "indexing_batch_linger_ms";
+    public static final int DEFAULT_INDEXING_BATCH_LINGER_MS = 0;
+
+    public static final String INDEXED_ROWS_CACHE_MB_OPTION = "indexed_rows_cache_mb";
+    public static final int DEFAULT_INDEXED_ROWS_CACHE_MB = 0;
+
+    public static final String COMMIT_ON_FLUSH_OPTION = "commit_on_flush";
+    public static final boolean DEFAULT_COMMIT_ON_FLUSH = true;
+
+    public static final String COMMIT_INTERVAL_SECONDS_OPTION = "commit_interval_seconds";
+    public static final int DEFAULT_COMMIT_INTERVAL_SECONDS = 0;
+
+    public static final String COMMIT_THRESHOLD_MB_OPTION = "commit_threshold_mb";
+    public static final int DEFAULT_COMMIT_THRESHOLD_MB = 0;
+
+    public static final String COMMIT_WINDOW_MS_OPTION = "commit_window_ms";
+    public static final int DEFAULT_COMMIT_WINDOW_MS = 0;
+
+    public static final String BUILD_THREADS_OPTION = "build_threads";
+    public static final int DEFAULT_BUILD_THREADS = 0;
+
+    public static final String INDEX_SHARDS_OPTION = "index_shards";
+    public static final int DEFAULT_INDEX_SHARDS = 1;
+
+    public static final String SEARCH_THREADS_OPTION = "search_threads";
+    public static final int DEFAULT_SEARCH_THREADS = 0;
+
+    public static final String SEARCH_SLICE_DOCS_OPTION = "search_slice_docs";
+    public static final int DEFAULT_SEARCH_SLICE_DOCS = 250000;
+
+    public static final String SEARCH_SLICE_SEGMENTS_OPTION = "search_slice_segments";
+    public static final int DEFAULT_SEARCH_SLICE_SEGMENTS = 5;
+
     public static final String EXCLUDED_DATA_CENTERS_OPTION = "excluded_data_centers";
     public static final List<String> DEFAULT_EXCLUDED_DATA_CENTERS = Collections.emptyList();
 
@@ -78,6 +136,25 @@ public class IndexConfig {
     private int maxCachedMB = DEFAULT_MAX_CACHED_MB;
     private int indexingThreads = DEFAULT_INDEXING_THREADS;
     private int indexingQueuesSize = DEFAULT_INDEXING_QUEUES_SIZE;
+    private WaitStrategy indexingWaitStrategy = DEFAULT_INDEXING_WAIT_STRATEGY;
+    private int fetchingThreads = DEFAULT_FETCHING_THREADS;
+    private boolean pipelinedSearch = DEFAULT_PIPELINED_SEARCH;
+    private int searchCacheSize = DEFAULT_SEARCH_CACHE_SIZE;
+    private boolean twoPhaseSearch = DEFAULT_TWO_PHASE_SEARCH;
+    private boolean sortedIndex = DEFAULT_SORTED_INDEX;
+    private boolean countPushdown = DEFAULT_COUNT_PUSHDOWN;
+    private int indexingBatchSize = DEFAULT_INDEXING_BATCH_SIZE;
+    private int indexingBatchLingerMs = DEFAULT_INDEXING_BATCH_LINGER_MS;
+    private int indexedRowsCacheMb = DEFAULT_INDEXED_ROWS_CACHE_MB;
+    private boolean commitOnFlush = DEFAULT_COMMIT_ON_FLUSH;
+    private int commitIntervalSeconds = DEFAULT_COMMIT_INTERVAL_SECONDS;
+    private int commitThresholdMb = DEFAULT_COMMIT_THRESHOLD_MB;
+    private int commitWindowMs = DEFAULT_COMMIT_WINDOW_MS;
+    private int buildThreads = DEFAULT_BUILD_THREADS;
+    private int indexShards = DEFAULT_INDEX_SHARDS;
+    private int searchThreads = DEFAULT_SEARCH_THREADS;
+    private int searchSliceDocs = DEFAULT_SEARCH_SLICE_DOCS;
+    private int searchSliceSegments = DEFAULT_SEARCH_SLICE_SEGMENTS;
     private List<String> excludedDataCenters = DEFAULT_EXCLUDED_DATA_CENTERS;
 
     /**
@@ -99,6 +176,25 @@ public class IndexConfig {
         parsePath();
         parseIndexingThreads();
         parseIndexingQueuesSize();
+        parseIndexingWaitStrategy();
+        parseFetchingThreads();
+        parsePipelinedSearch();
+        parseSearchCacheSize();
+        parseTwoPhaseSearch();
+        parseSortedIndex();
+        parseCountPushdown();
+        parseIndexingBatchSize();
+        parseIndexingBatchLingerMs();
+        parseIndexedRowsCacheMb();
+        parseCommitOnFlush();
+        parseCommitIntervalSeconds();
+        parseCommitThresholdMb();
+        parseCommitWindowMs();
+        parseBuildThreads();
+        parseIndexShards();
+        parseSearchThreads();
+        parseSearchSliceDocs();
+        parseSearchSliceSegments();
         parseExcludedDataCenters();
     }
 
@@ -256,6 +352,194 @@ public class IndexConfig {
         return indexingQueuesSize;
     }
 
+    /**
+     * Returns the {@link WaitStrategy} used by the asynchronous indexing threads and by the threads waiting for them.
+     *
+     * @return The {@link WaitStrategy} used by the asynchronous indexing queues.
+     */
+    public WaitStrategy getIndexingWaitStrategy() {
+        return indexingWaitStrategy;
+    }
+
+    /**
+     * Returns the number of threads used to read the rows matched by a search from the storage engine, where {@code 0}
+     * means that the rows are read sequentially by the searching thread.
+     *
+     * @return The number of threads used to read the rows matched by a search.
+     */
+    public int getFetchingThreads() {
+        return fetchingThreads;
+    }
+
+    /**
+     * Returns if searches must look for the next page of Lucene documents while the rows of the current page are read
+     * from the storage engine.
+     *
+     * @return {@code true} if searches must be pipelined, {@code false} otherwise.
+     */
+    public boolean isPipelinedSearch() {
+        return pipelinedSearch;
+    }
+
+    /**
+     * Returns the max number of searches whose results are cached, where {@code 0} means no caching.
+     *
+     * @return The max number of searches whose results are cached.
+     */
+    public int getSearchCacheSize() {
+        return searchCacheSize;
+    }
+
+    /**
+     * Returns if searches requiring to scan all the token ranges must first collect the primary keys and sort values
+     * of the best rows of each range, and then read only the rows that make it into the global top results.
+     *
+     * @return {@code true} if two-phase searches are enabled, {@code false} otherwise.
+     */
+    public boolean isTwoPhaseSearch() {
+        return twoPhaseSearch;
+    }
+
+    /**
+     * Returns if the index should be kept sorted by partitioner token when merging segments, allowing key-ordered
+     * searches to skip the rest of the sorted segments once they have enough hits. It only applies with
+     * {@link org.apache.cassandra.dht.Murmur3Partitioner}.
+     *
+     * @return {@code true} if the index should be kept sorted by token, {@code false} otherwise.
+     */
+    public boolean isSortedIndex() {
+        return sortedIndex;
+    }
+
+    /**
+     * Returns if CQL {@code count(*)} queries should be solved by counting the matching Lucene documents in each
+     * token range, without reading any row from Cassandra. This is an explicit opt-in because the counted documents
+     * include the rows written with a per-write TTL that have already expired, and the deleted rows whose deletion is
+     * still waiting to be indexed.
+     *
+     * @return {@code true} if count queries should be pushed down to Lucene, {@code false} otherwise.
+     */
+    public boolean isCountPushdown() {
+        return countPushdown;
+    }
+
+    /**
+     * Returns the max number of index writes of each indexing thread to be grouped and applied together, {@code 0}
+     * means no grouping between different rows. It only applies if there are indexing threads.
+     *
+     * @return The max number of grouped index writes per indexing thread.
+     */
+    public int getIndexingBatchSize() {
+        return indexingBatchSize;
+    }
+
+    /**
+     * Returns the max time in milliseconds that an incomplete group of index writes waits for more writes before being
+     * applied, {@code 0} means that it is applied as soon as its indexing thread has no more pending writes.
+     *
+     * @return The max time in milliseconds to wait for more grouped index writes.
+     */
+    public int getIndexingBatchLingerMs() {
+        return indexingBatchLingerMs;
+    }
+
+    /**
+     * Returns the max off-heap memory in MB used to cache the last indexed rows, so partial updates don't need to read
+     * the missing columns from the storage engine. A value of 0 means no cache.
+     *
+     * @return The max off-heap memory in MB of the indexed rows cache, 0 means no cache.
+     */
+    public int getIndexedRowsCacheMb() {
+        return indexedRowsCacheMb;
+    }
+
+    /**
+     * Returns if the index must be committed each time that the indexed table is flushed.
+     *
+     * @return {@code true} if the index must be committed on flush, {@code false} otherwise.
+     */
+    public boolean isCommitOnFlush() {
+        return commitOnFlush;
+    }
+
+    /**
+     * Returns the seconds between periodic commits of the index, where {@code 0} means no periodic commits.
+     *
+     * @return The seconds between periodic commits of the index.
+     */
+    public int getCommitIntervalSeconds() {
+        return commitIntervalSeconds;
+    }
+
+    /**
+     * Returns the MB written to the index since the last commit after which a commit is triggered, where {@code 0}
+     * means no size-triggered commits.
+     *
+     * @return The MB written to the index after which a commit is triggered.
+     */
+    public int getCommitThresholdMb() {
+        return commitThresholdMb;
+    }
+
+    /**
+     * Returns the max time in milliseconds that the commits requested by flushes can be delayed to be grouped with
+     * other commits. Flushes don't wait for delayed commits.
+     *
+     * @return The max time in milliseconds that the commits requested by flushes can be delayed.
+     */
+    public int getCommitWindowMs() {
+        return commitWindowMs;
+    }
+
+    /**
+     * Returns the number of threads used to build the index by scanning token range slices in parallel. If it is
+     * zero, the index is built by Cassandra, sequentially feeding the rows into the index.
+     *
+     * @return The number of index building threads.
+     */
+    public int getBuildThreads() {
+        return buildThreads;
+    }
+
+    /**
+     * Returns the number of shards in which the index is split by token range, each of them with its own directory and
+     * writer, and searched concurrently.
+     *
+     * @return The number of index shards.
+     */
+    public int getIndexShards() {
+        return indexShards;
+    }
+
+    /**
+     * Returns the number of threads of the executor shared by all the searches of the index, which collect the index
+     * segments in parallel. If it is zero, each search collects the index segments sequentially.
+     *
+     * @return The number of search threads.
+     */
+    public int getSearchThreads() {
+        return searchThreads;
+    }
+
+    /**
+     * Returns the max number of documents in the index segments collected by the same search thread, unless a single
+     * segment is bigger.
+     *
+     * @return The max number of documents per search slice.
+     */
+    public int getSearchSliceDocs() {
+        return searchSliceDocs;
+    }
+
+    /**
+     * Returns the max number of index segments collected by the same search thread.
+     *
+     * @return The max number of segments per search slice.
+     */
+    public int getSearchSliceSegments() {
+        return searchSliceSegments;
+    }
+
     private void parseRefresh() {
         String refreshOption = options.get(REFRESH_SECONDS_OPTION);
         if (refreshOption != null) {
@@ -364,6 +648,269 @@ public class IndexConfig {
         }
     }
 
+    private void parseIndexingWaitStrategy() {
+        String indexingWaitStrategyOption = options.get(INDEXING_WAIT_STRATEGY_OPTION);
+        if (indexingWaitStrategyOption != null) {
+            indexingWaitStrategy = WaitStrategy.fromName(indexingWaitStrategyOption);
+            if (indexingWaitStrategy == null) {
+                throw new IndexException("'%s' must be one of %s",
+                                         INDEXING_WAIT_STRATEGY_OPTION,
+                                         Arrays.toString(WaitStrategy.values()).toLowerCase());
+            }
+        }
+    }
+
+    private void parseFetchingThreads() {
+        String fetchingThreadsOption = options.get(FETCHING_THREADS_OPTION);
+        if (fetchingThreadsOption != null) {
+            try {
+                fetchingThreads = Integer.parseInt(fetchingThreadsOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a positive integer", FETCHING_THREADS_OPTION);
+            }
+            if (fetchingThreads < 0) {
+                throw new IndexException("'%s' must be positive", FETCHING_THREADS_OPTION);
+            }
+        }
+    }
+
+    private void parsePipelinedSearch() {
+        String pipelinedSearchOption = options.get(PIPELINED_SEARCH_OPTION);
+        if (pipelinedSearchOption != null) {
+            if (pipelinedSearchOption.equalsIgnoreCase("true")) {
+                pipelinedSearch = true;
+            } else if (pipelinedSearchOption.equalsIgnoreCase("false")) {
+                pipelinedSearch = false;
+            } else {
+                throw new IndexException("'%s' must be a boolean", PIPELINED_SEARCH_OPTION);
+            }
+        }
+    }
+
+    private void parseSearchCacheSize() {
+        String searchCacheSizeOption = options.get(SEARCH_CACHE_SIZE_OPTION);
+        if (searchCacheSizeOption != null) {
+            try {
+                searchCacheSize = Integer.parseInt(searchCacheSizeOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a positive integer", SEARCH_CACHE_SIZE_OPTION);
+            }
+            if (searchCacheSize < 0) {
+                throw new IndexException("'%s' must be positive", SEARCH_CACHE_SIZE_OPTION);
+            }
+        }
+    }
+
+    private void parseTwoPhaseSearch() {
+        String twoPhaseSearchOption = options.get(TWO_PHASE_SEARCH_OPTION);
+        if (twoPhaseSearchOption != null) {
+            if (twoPhaseSearchOption.equalsIgnoreCase("true")) {
+                twoPhaseSearch = true;
+            } else if (twoPhaseSearchOption.equalsIgnoreCase("false")) {
+                twoPhaseSearch = false;
+            } else {
+                throw new IndexException("'%s' must be a boolean", TWO_PHASE_SEARCH_OPTION);
+            }
+        }
+    }
+
+    private void parseSortedIndex() {
+        String sortedIndexOption = options.get(SORTED_INDEX_OPTION);
+        if (sortedIndexOption != null) {
+            if (sortedIndexOption.equalsIgnoreCase("true")) {
+                sortedIndex = true;
+            } else if (sortedIndexOption.equalsIgnoreCase("false")) {
+                sortedIndex = false;
+            } else {
+                throw new IndexException("'%s' must be a boolean", SORTED_INDEX_OPTION);
+            }
+        }
+    }
+
+    private void parseCountPushdown() {
+        String countPushdownOption = options.get(COUNT_PUSHDOWN_OPTION);
+        if (countPushdownOption != null) {
+            if (countPushdownOption.equalsIgnoreCase("true")) {
+                countPushdown = true;
+            } else if (countPushdownOption.equalsIgnoreCase("false")) {
+                countPushdown = false;
+            } else {
+                throw new IndexException("'%s' must be a boolean", COUNT_PUSHDOWN_OPTION);
+            }
+        }
+    }
+
+    private void parseIndexingBatchSize() {
+        String indexingBatchSizeOption = options.get(INDEXING_BATCH_SIZE_OPTION);
+        if (indexingBatchSizeOption != null) {
+            try {
+                indexingBatchSize = Integer.parseInt(indexingBatchSizeOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a positive integer", INDEXING_BATCH_SIZE_OPTION);
+            }
+            if (indexingBatchSize < 0) {
+                throw new IndexException("'%s' must be positive", INDEXING_BATCH_SIZE_OPTION);
+            }
+        }
+    }
+
+    private void parseIndexingBatchLingerMs() {
+        String indexingBatchLingerMsOption = options.get(INDEXING_BATCH_LINGER_MS_OPTION);
+        if (indexingBatchLingerMsOption != null) {
+            try {
+                indexingBatchLingerMs = Integer.parseInt(indexingBatchLingerMsOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a positive integer", INDEXING_BATCH_LINGER_MS_OPTION);
+            }
+            if (indexingBatchLingerMs < 0) {
+                throw new IndexException("'%s' must be positive", INDEXING_BATCH_LINGER_MS_OPTION);
+            }
+        }
+    }
+
+    private void parseIndexedRowsCacheMb() {
+        String indexedRowsCacheMbOption = options.get(INDEXED_ROWS_CACHE_MB_OPTION);
+        if (indexedRowsCacheMbOption != null) {
+            try {
+                indexedRowsCacheMb = Integer.parseInt(indexedRowsCacheMbOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a positive integer", INDEXED_ROWS_CACHE_MB_OPTION);
+            }
+            if (indexedRowsCacheMb < 0) {
+                throw new IndexException("'%s' must be positive", INDEXED_ROWS_CACHE_MB_OPTION);
+            }
+        }
+    }
+
+    private void parseCommitOnFlush() {
+        String commitOnFlushOption = options.get(COMMIT_ON_FLUSH_OPTION);
+        if (commitOnFlushOption != null) {
+            if (commitOnFlushOption.equalsIgnoreCase("true")) {
+                commitOnFlush = true;
+            } else if (commitOnFlushOption.equalsIgnoreCase("false")) {
+                commitOnFlush = false;
+            } else {
+                throw new IndexException("'%s' must be a boolean", COMMIT_ON_FLUSH_OPTION);
+            }
+        }
+    }
+
+    private void parseCommitIntervalSeconds() {
+        String commitIntervalSecondsOption = options.get(COMMIT_INTERVAL_SECONDS_OPTION);
+        if (commitIntervalSecondsOption != null) {
+            try {
+                commitIntervalSeconds = Integer.parseInt(commitIntervalSecondsOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a positive integer", COMMIT_INTERVAL_SECONDS_OPTION);
+            }
+            if (commitIntervalSeconds < 0) {
+                throw new IndexException("'%s' must be positive", COMMIT_INTERVAL_SECONDS_OPTION);
+            }
+        }
+    }
+
+    private void parseCommitThresholdMb() {
+        String commitThresholdMbOption = options.get(COMMIT_THRESHOLD_MB_OPTION);
+        if (commitThresholdMbOption != null) {
+            try {
+                commitThresholdMb = Integer.parseInt(commitThresholdMbOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a positive integer", COMMIT_THRESHOLD_MB_OPTION);
+            }
+            if (commitThresholdMb < 0) {
+                throw new IndexException("'%s' must be positive", COMMIT_THRESHOLD_MB_OPTION);
+            }
+        }
+    }
+
+    private void parseCommitWindowMs() {
+        String commitWindowMsOption = options.get(COMMIT_WINDOW_MS_OPTION);
+        if (commitWindowMsOption != null) {
+            try {
+                commitWindowMs = Integer.parseInt(commitWindowMsOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a positive integer", COMMIT_WINDOW_MS_OPTION);
+            }
+            if (commitWindowMs < 0) {
+                throw new IndexException("'%s' must be positive", COMMIT_WINDOW_MS_OPTION);
+            }
+        }
+    }
+
+    private void parseBuildThreads() {
+        String buildThreadsOption = options.get(BUILD_THREADS_OPTION);
+        if (buildThreadsOption != null) {
+            try {
+                buildThreads = Integer.parseInt(buildThreadsOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a positive integer", BUILD_THREADS_OPTION);
+            }
+            if (buildThreads < 0) {
+                throw new IndexException("'%s' must be positive", BUILD_THREADS_OPTION);
+            }
+        }
+    }
+
+    private void parseIndexShards() {
+        String indexShardsOption = options.get(INDEX_SHARDS_OPTION);
+        if (indexShardsOption != null) {
+            try {
+                indexShards = Integer.parseInt(indexShardsOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a strictly positive integer", INDEX_SHARDS_OPTION);
+            }
+            if (indexShards <= 0) {
+                throw new IndexException("'%s' must be strictly positive", INDEX_SHARDS_OPTION);
+            }
+            if (indexShards > ramBufferMB) {
+                throw new IndexException("'%s' must not be greater than '%s', so each shard gets at least 1 MB of RAM",
+                                         INDEX_SHARDS_OPTION, RAM_BUFFER_MB_OPTION);
+            }
+        }
+    }
+
+    private void parseSearchThreads() {
+        String searchThreadsOption = options.get(SEARCH_THREADS_OPTION);
+        if (searchThreadsOption != null) {
+            try {
+                searchThreads = Integer.parseInt(searchThreadsOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a positive integer", SEARCH_THREADS_OPTION);
+            }
+            if (searchThreads < 0) {
+                throw new IndexException("'%s' must be positive", SEARCH_THREADS_OPTION);
+            }
+        }
+    }
+
+    private void parseSearchSliceDocs() {
+        String searchSliceDocsOption = options.get(SEARCH_SLICE_DOCS_OPTION);
+        if (searchSliceDocsOption != null) {
+            try {
+                searchSliceDocs = Integer.parseInt(searchSliceDocsOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a strictly positive integer", SEARCH_SLICE_DOCS_OPTION);
+            }
+            if (searchSliceDocs <= 0) {
+                throw new IndexException("'%s' must be strictly positive", SEARCH_SLICE_DOCS_OPTION);
+            }
+        }
+    }
+
+    private void parseSearchSliceSegments() {
+        String searchSliceSegmentsOption = options.get(SEARCH_SLICE_SEGMENTS_OPTION);
+        if (searchSliceSegmentsOption != null) {
+            try {
+                searchSliceSegments = Integer.parseInt(searchSliceSegmentsOption);
+            } catch (NumberFormatException e) {
+                throw new IndexException("'%s' must be a strictly positive integer", SEARCH_SLICE_SEGMENTS_OPTION);
+            }
+            if (searchSliceSegments <= 0) {
+                throw new IndexException("'%s' must be strictly positive", SEARCH_SLICE_SEGMENTS_OPTION);
+            }
+        }
+    }
+
     private void parseExcludedDataCenters() {
         String excludedDataCentersOption = options.get(EXCLUDED_DATA_CENTERS_OPTION);
         if (excludedDataCentersOption != null) {
@@ -382,6 +929,24 @@ public class IndexConfig {
                       .add("ramBufferMB", ramBufferMB)
                       .add("maxMergeMB", maxMergeMB)
                       .add("maxCachedMB", maxCachedMB)
+                      .add("fetchingThreads", fetchingThreads)
+                      .add("pipelinedSearch", pipelinedSearch)
+                      .add("searchCacheSize", searchCacheSize)
+                      .add("twoPhaseSearch", twoPhaseSearch)
+                      .add("sortedIndex", sortedIndex)
+                      .add("countPushdown", countPushdown)
+                      .add("indexingBatchSize", indexingBatchSize)
+                      .add("indexingBatchLingerMs", indexingBatchLingerMs)
+                      .add("indexedRowsCacheMb", indexedRowsCacheMb)
+                      .add("commitOnFlush", commitOnFlush)
+                      .add("commitIntervalSeconds", commitIntervalSeconds)
+                      .add("commitThresholdMb", commitThresholdMb)
+                      .add("commitWindowMs", commitWindowMs)
+                      .add("buildThreads", buildThreads)
+                      .add("indexShards", indexShards)
+                      .add("searchThreads", searchThreads)
+                      .add("searchSliceDocs", searchSliceDocs)
+                      .add("searchSliceSegments", searchSliceSegments)
                       .add("excludedDataCenters", excludedDataCenters)
                       .toString();
     }
@@ -23,6 +23,7 @@ import com.stratio.cassandra.lucene.service.RowMapper;
 import com.stratio.cassandra.lucene.util.ByteBufferUtils;
 import com.stratio.cassandra.lucene.util.TimeCounter;
 import org.apache.cassandra.cql3.*;
+import org.apache.cassandra.cql3.functions.AggregateFcts;
 import org.apache.cassandra.cql3.functions.Function;
 import org.apache.cassandra.cql3.statements.BatchStatement;
 import org.apache.cassandra.cql3.statements.ParsedStatement;
@@ -31,6 +32,7 @@ import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.filter.IDiskAtomFilter;
 import org.apache.cassandra.db.index.SecondaryIndexManager;
 import org.apache.cassandra.db.index.SecondaryIndexSearcher;
+import org.apache.cassandra.db.marshal.LongType;
 import org.apache.cassandra.dht.AbstractBounds;
 import org.apache.cassandra.exceptions.InvalidRequestException;
 import org.apache.cassandra.exceptions.RequestExecutionException;
@@ -49,6 +51,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -62,6 +65,9 @@ public class IndexQueryHandler implements QueryHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(IndexQueryHandler.class);
 
+    /** The max size of the sort values stored in a paging state, which serializes them with a short length. */
+    private static final int MAX_PAGING_SORT_VALUES_SIZE = 0xFFFF;
+
     static QueryProcessor cqlProcessor = QueryProcessor.instance;
 
     private IDiskAtomFilter makeFilter(SelectStatement statement, QueryOptions options, int limit)
@@ -85,6 +91,21 @@ public class IndexQueryHandler implements QueryHandler {
         return false;
     }
 
+    private static boolean isCountRows(SelectStatement selectStatement) {
+        int numAggregates = 0;
+        if (selectStatement.getFunctions() != null) {
+            for (Function function : selectStatement.getFunctions()) {
+                if (function.isAggregate()) {
+                    if (!function.name().equals(AggregateFcts.countRowsFunction.name())) {
+                        return false;
+                    }
+                    numAggregates++;
+                }
+            }
+        }
+        return numAggregates == 1;
+    }
+
     @Override
     public ResultMessage.Prepared prepare(String query, QueryState state, Map<String, ByteBuffer> customPayload)
     throws RequestValidationException {
@@ -187,7 +208,14 @@ public class IndexQueryHandler implements QueryHandler {
             limit = pagingState.remaining;
             ByteBuffer bb = pagingState.partitionKey;
             if (!ByteBufferUtils.isEmpty(bb)) {
-                rowKeys = mapper.rowKeys(bb);
+                rowKeys = mapper.withSortValues(mapper.rowKeys(bb), pagingState.cellName);
+            }
+        }
+
+        if (isAggregateFunction && rowKeys == null && searcher.allowsCountPushdown(expressions, filter, cl)) {
+            ResultMessage.Rows msg = count(searcher, expressions, statement, options, filter, range, limit, now);
+            if (msg != null) {
+                return msg;
             }
         }
 
@@ -218,10 +246,47 @@ public class IndexQueryHandler implements QueryHandler {
         ResultMessage.Rows msg = statement.processResults(rows, options, limit, now);
         if (!isAggregateFunction && remaining > 0 && rows.size() == rowsPerCommand) {
             ByteBuffer bb = mapper.byteBuffer(rowKeys);
-            pagingState = new PagingState(bb, null, remaining);
+            ByteBuffer sortValues = mapper.sortValuesByteBuffer(rowKeys);
+            if (sortValues != null && sortValues.remaining() > MAX_PAGING_SORT_VALUES_SIZE) {
+                sortValues = null;
+            }
+            pagingState = new PagingState(bb, sortValues, remaining);
             msg.result.metadata.setHasMorePages(pagingState);
         }
         return msg;
     }
 
+    private ResultMessage.Rows count(IndexSearcher searcher,
+                                     List<IndexExpression> expressions,
+                                     SelectStatement statement,
+                                     QueryOptions options,
+                                     IDiskAtomFilter filter,
+                                     AbstractBounds<RowPosition> range,
+                                     int limit,
+                                     long now) throws Exception {
+
+        // Get the result set of an empty count, which should be a single bigint
+        if (!isCountRows(statement)) {
+            return null;
+        }
+        ResultSet emptyResult = statement.processResults(new ArrayList<Row>(), options, limit, now).result;
+        if (emptyResult.rows.size() != 1
+            || emptyResult.metadata.names.size() != 1
+            || !(emptyResult.metadata.names.get(0).type instanceof LongType)) {
+            return null;
+        }
+
+        long count = LuceneStorageProxy.getCount(searcher,
+                                                 statement.keyspace(),
+                                                 statement.columnFamily(),
+                                                 now,
+                                                 filter,
+                                                 range,
+                                                 expressions,
+                                                 options.getConsistency());
+        ByteBuffer value = LongType.instance.decompose(Math.min(count, limit));
+        List<List<ByteBuffer>> rows = Collections.singletonList(Collections.singletonList(value));
+        return new ResultMessage.Rows(new ResultSet(emptyResult.metadata, rows));
+    }
+
 }
\ No newline at end of file
@@ -18,13 +18,13 @@
 
 package com.stratio.cassandra.lucene;
 
-import com.stratio.cassandra.lucene.schema.Schema;
 import com.stratio.cassandra.lucene.search.Search;
-import com.stratio.cassandra.lucene.search.SearchBuilder;
+import com.stratio.cassandra.lucene.service.CompiledSearch;
 import com.stratio.cassandra.lucene.service.RowKey;
 import com.stratio.cassandra.lucene.service.RowMapper;
 import com.stratio.cassandra.lucene.service.RowService;
 import com.stratio.cassandra.lucene.util.TimeCounter;
+import org.apache.cassandra.db.ConsistencyLevel;
 import org.apache.cassandra.db.DataRange;
 import org.apache.cassandra.db.IndexExpression;
 import org.apache.cassandra.db.Row;
@@ -56,8 +56,16 @@ public class IndexSearcher extends SecondaryIndexSearcher {
     /** The name of the {@link IndexExpression} containing the last search {@link RowKey}. */
     public static final ByteBuffer AFTER = UTF8Type.instance.fromString("search_after_doc");
 
+    /** The name of the {@link IndexExpression} containing the versioned sort values of the last search key. */
+    public static final ByteBuffer AFTER_SORT_VALUES = UTF8Type.instance.fromString("search_after_sort_values");
+
+    /** The name of the {@link IndexExpression} requesting synthetic key rows instead of the actual rows. */
+    public static final ByteBuffer KEYS_ONLY = UTF8Type.instance.fromString("search_keys_only");
+
+    /** The name of the {@link IndexExpression} requesting a synthetic count row instead of the actual rows. */
+    public static final ByteBuffer COUNT_ONLY = UTF8Type.instance.fromString("search_count_only");
+
     private final RowService rowService;
-    private final Schema schema;
     private final ByteBuffer indexedColumnName;
 
     /**
@@ -74,7 +82,6 @@ public class IndexSearcher extends SecondaryIndexSearcher {
                          RowService rowService) {
         super(indexManager, columns);
         this.rowService = rowService;
-        schema = rowService.getSchema();
         indexedColumnName = index.getColumnDefinition().name.bytes;
     }
 
@@ -89,20 +96,19 @@ public class IndexSearcher extends SecondaryIndexSearcher {
             DataRange dataRange = extendedFilter.dataRange;
             List<IndexExpression> clause = extendedFilter.getClause();
             List<IndexExpression> expressions = filteredExpressions(clause);
-            Search search = search(clause);
-            return rowService.search(search, expressions, dataRange, limit, timestamp, after, distinct);
+            CompiledSearch search = search(clause);
+            if (isCountOnly(clause)) {
+                return rowService.count(search, dataRange, timestamp);
+            }
+            boolean keysOnly = isKeysOnly(clause);
+            return rowService.search(search, expressions, dataRange, limit, timestamp, after, distinct, keysOnly);
         } catch (Exception e) {
             throw new IndexException(e, "Error while searching: %s", extendedFilter);
         }
     }
 
     private boolean isDistinct(ExtendedFilter extendedFilter) {
-        IDiskAtomFilter filter = extendedFilter.columnFilter(ByteBufferUtil.EMPTY_BYTE_BUFFER);
-        if (filter instanceof SliceQueryFilter) {
-            int compositesToGroup = ((SliceQueryFilter) filter).compositesToGroup;
-            return compositesToGroup == SliceQueryFilter.IGNORE_TOMBSTONED_PARTITIONS;
-        }
-        return false;
+        return isDistinct(extendedFilter.columnFilter(ByteBufferUtil.EMPTY_BYTE_BUFFER));
     }
 
     /** {@inheritDoc} */
@@ -135,8 +141,7 @@ public class IndexSearcher extends SecondaryIndexSearcher {
     @Override
     public void validate(IndexExpression indexExpression) throws InvalidRequestException {
         try {
-            String json = UTF8Type.instance.compose(indexExpression.value);
-            SearchBuilder.fromJson(json).build().validate(schema);
+            rowService.compile(indexExpression.value);
         } catch (Exception e) {
             logger.error("Error while validating search", e);
             throw new InvalidRequestException(e.getMessage());
@@ -144,18 +149,17 @@ public class IndexSearcher extends SecondaryIndexSearcher {
     }
 
     /**
-     * Returns the {@link Search} contained in the specified list of {@link IndexExpression}s.
+     * Returns the {@link CompiledSearch} contained in the specified list of {@link IndexExpression}s.
      *
      * @param clause A list of {@link IndexExpression}s.
-     * @return The {@link Search} contained in the specified list of {@link IndexExpression}s.
+     * @return The {@link CompiledSearch} contained in the specified list of {@link IndexExpression}s.
      */
-    private Search search(List<IndexExpression> clause) {
+    private CompiledSearch search(List<IndexExpression> clause) {
         IndexExpression indexedExpression = indexedExpression(clause);
         if (indexedExpression == null) {
             throw new IndexException("There is no index expression in the clause");
         }
-        String json = UTF8Type.instance.compose(indexedExpression.value);
-        return SearchBuilder.fromJson(json).build();
+        return rowService.compile(indexedExpression.value);
     }
 
     /**
@@ -184,7 +188,11 @@ public class IndexSearcher extends SecondaryIndexSearcher {
         List<IndexExpression> filteredExpressions = new ArrayList<>(clause.size());
         for (IndexExpression ie : clause) {
             ByteBuffer columnName = ie.column;
-            if (!indexedColumnName.equals(columnName) && !AFTER.equals(columnName)) {
+            if (!indexedColumnName.equals(columnName)
+                && !AFTER.equals(columnName)
+                && !AFTER_SORT_VALUES.equals(columnName)
+                && !KEYS_ONLY.equals(columnName)
+                && !COUNT_ONLY.equals(columnName)) {
                 filteredExpressions.add(ie);
             }
         }
@@ -194,7 +202,7 @@ public class IndexSearcher extends SecondaryIndexSearcher {
     /** {@inheritDoc} */
     @Override
     public boolean requiresScanningAllRanges(List<IndexExpression> clause) {
-        Search search = search(clause);
+        Search search = search(clause).getSearch();
         return search.requiresFullScan();
     }
 
@@ -206,11 +214,12 @@ public class IndexSearcher extends SecondaryIndexSearcher {
         int startSize = rows.size();
 
         // Remove duplicates and sort
-        Search search = search(clause);
-        Comparator<Row> comparator = mapper().comparator(search);
-        TreeSet<Row> set = new TreeSet<>(comparator);
-        set.addAll(rows);
-        List<Row> result = new ArrayList<>(set);
+        List<Row> result;
+        if (isKeysOnly(clause)) {
+            result = mapper().sortKeyRows(rows, search(clause).getSort());
+        } else {
+            result = mapper().sort(rows, search(clause).getSearch());
+        }
 
         int endSize = result.size();
         sortTime.stop();
@@ -227,13 +236,141 @@ public class IndexSearcher extends SecondaryIndexSearcher {
      * @return The last search {@link RowKey} contained in the specified {@link IndexExpression}s, if any.
      */
     private RowKey after(List<IndexExpression> expressions) {
+        ByteBuffer key = null;
+        ByteBuffer sortValues = null;
         for (IndexExpression indexExpression : expressions) {
             ByteBuffer columnName = indexExpression.column;
             if (AFTER.equals(columnName)) {
-                return mapper().rowKey(indexExpression.value);
+                key = indexExpression.value;
+            } else if (AFTER_SORT_VALUES.equals(columnName)) {
+                sortValues = indexExpression.value;
             }
         }
-        return null;
+        return key == null ? null : mapper().withSortValues(mapper().rowKey(key), sortValues);
+    }
+
+    /**
+     * Returns a {@link RowKey} representing the specified {@link Row} found by the search contained in the specified
+     * list of {@link IndexExpression}s. The returned key includes the Lucene sort values of the row when they can be
+     * known, so the search can be resumed after it without looking for its document.
+     *
+     * @param clause A list of {@link IndexExpression}s.
+     * @param row    A {@link Row} found by the search contained in {@code clause}.
+     * @return A {@link RowKey} representing the specified {@link Row}.
+     */
+    public RowKey cursor(List<IndexExpression> clause, Row row) {
+        if (isKeysOnly(clause)) {
+            return mapper().keyRowKey(row);
+        }
+        return mapper().cursor(row, search(clause).getSearch());
+    }
+
+    /**
+     * Returns if the specified list of {@link IndexExpression}s requests synthetic key rows instead of actual rows.
+     *
+     * @param clause A list of {@link IndexExpression}s.
+     * @return {@code true} if only key rows are requested, {@code false} otherwise.
+     */
+    private boolean isKeysOnly(List<IndexExpression> clause) {
+        return contains(clause, KEYS_ONLY);
+    }
+
+    /**
+     * Returns if the specified list of {@link IndexExpression}s requests a synthetic count row instead of actual rows.
+     *
+     * @param clause A list of {@link IndexExpression}s.
+     * @return {@code true} if only a count row is requested, {@code false} otherwise.
+     */
+    private boolean isCountOnly(List<IndexExpression> clause) {
+        return contains(clause, COUNT_ONLY);
+    }
+
+    /**
+     * Returns if the specified list of {@link IndexExpression}s contains an expression for the specified column.
+     *
+     * @param clause A list of {@link IndexExpression}s.
+     * @param column A column name.
+     * @return {@code true} if there is an expression for {@code column}, {@code false} otherwise.
+     */
+    private static boolean contains(List<IndexExpression> clause, ByteBuffer column) {
+        for (IndexExpression indexExpression : clause) {
+            if (column.equals(indexExpression.column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns if the search contained in the specified list of {@link IndexExpression}s should be run in two phases:
+     * first collecting the best keys of each token range, and then reading only the rows of the global best keys. This
+     * is only possible for searches scanning all the ranges and having no other filtering expressions. The keys
+     * collected from a single replica can't be reconciled with the others, so it is also limited to consistency level
+     * {@code ONE} and {@code LOCAL_ONE}.
+     *
+     * @param clause           A list of {@link IndexExpression}s.
+     * @param predicate        The query {@link IDiskAtomFilter}.
+     * @param consistencyLevel The query {@link ConsistencyLevel}.
+     * @return {@code true} if the search should be run in two phases, {@code false} otherwise.
+     */
+    public boolean requiresTwoPhases(List<IndexExpression> clause,
+                                     IDiskAtomFilter predicate,
+                                     ConsistencyLevel consistencyLevel) {
+        if (!rowService.isTwoPhaseSearch() || isKeysOnly(clause) || !filteredExpressions(clause).isEmpty()) {
+            return false;
+        }
+        return isSingleReplica(consistencyLevel) && !isDistinct(predicate) && requiresScanningAllRanges(clause);
+    }
+
+    /**
+     * Returns if a CQL {@code count(*)} of the rows satisfying the specified list of {@link IndexExpression}s can be
+     * solved by just counting Lucene documents. This is only possible if count pushdown is enabled and there are no
+     * other filtering expressions, because the rows that don't satisfy them are only discarded after being read. Rows
+     * expired by a per-write TTL are still counted, as documented by {@link RowService#isCountPushdown()}. The counts
+     * of a single replica can't be reconciled with the others, so it is also limited to consistency level {@code ONE}
+     * and {@code LOCAL_ONE}.
+     *
+     * @param clause           A list of {@link IndexExpression}s.
+     * @param predicate        The query {@link IDiskAtomFilter}.
+     * @param consistencyLevel The query {@link ConsistencyLevel}.
+     * @return {@code true} if the count can be pushed down to Lucene, {@code false} otherwise.
+     */
+    public boolean allowsCountPushdown(List<IndexExpression> clause,
+                                       IDiskAtomFilter predicate,
+                                       ConsistencyLevel consistencyLevel) {
+        return rowService.isCountPushdown()
+               && isSingleReplica(consistencyLevel)
+               && filteredExpressions(clause).isEmpty()
+               && !isKeysOnly(clause)
+               && !isDistinct(predicate);
+    }
+
+    private static boolean isSingleReplica(ConsistencyLevel consistencyLevel) {
+        return consistencyLevel == ConsistencyLevel.ONE || consistencyLevel == ConsistencyLevel.LOCAL_ONE;
+    }
+
+    private static boolean isDistinct(IDiskAtomFilter predicate) {
+        if (predicate instanceof SliceQueryFilter) {
+            int compositesToGroup = ((SliceQueryFilter) predicate).compositesToGroup;
+            return compositesToGroup == SliceQueryFilter.IGNORE_TOMBSTONED_PARTITIONS;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the actual {@link Row}s of the specified synthetic key {@link Row}s found by the search contained in the
+     * specified list of {@link IndexExpression}s, in the same order.
+     *
+     * @param clause     A list of {@link IndexExpression}s.
+     * @param keyRows    The key {@link Row}s found in the first phase of a two-phase search.
+     * @param partitions The partitions read with the commands returned by {@link RowMapper#readCommands(List, long,
+     *                   IDiskAtomFilter)}.
+     * @param timestamp  The operation time.
+     * @return The actual {@link Row}s of {@code keyRows}.
+     */
+    public List<Row> rows(List<IndexExpression> clause, List<Row> keyRows, List<Row> partitions, long timestamp) {
+        int scorePosition = search(clause).getScorePosition();
+        return mapper().rows(keyRows, partitions, scorePosition, timestamp);
     }
 
     /**
@@ -0,0 +1,136 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.schema;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reusable Lucene {@link Field}s to be shared by all the {@link Document}s built by the same thread, avoiding the
+ * allocation of new fields for each indexed row. The values of the reused fields are overwritten each time that they
+ * are added to a new document, so each {@link Document} must be written to the index before building the next one.
+ * Fields are retained by name, so fields whose names depend on the indexed values, such as the ones of map values,
+ * must not be added.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class DocumentTemplate {
+
+    /** The reusable indexed fields, indexed by field name. */
+    private final Map<String, Fields> indexedFields = new HashMap<>();
+
+    /** The reusable sorted fields, indexed by field name. */
+    private final Map<String, Fields> sortedFields = new HashMap<>();
+
+    /** The number of documents built with this template. */
+    private int generation = 0;
+
+    /**
+     * Returns a new empty {@link Document}, making all the reusable fields available again.
+     *
+     * @return A new empty {@link Document}.
+     */
+    public Document newDocument() {
+        generation++;
+        return new Document();
+    }
+
+    /**
+     * Returns a reusable indexed {@link Field} with the specified name not added to the current document yet.
+     *
+     * @param name A field name.
+     * @return A reusable indexed {@link Field}, or {@code null} if there is no such field.
+     */
+    public Field indexedField(String name) {
+        return next(indexedFields, name);
+    }
+
+    /**
+     * Adds the specified indexed {@link Field} to be reused by the next documents.
+     *
+     * @param field An indexed {@link Field} added to the current document.
+     */
+    public void addIndexedField(Field field) {
+        add(indexedFields, field);
+    }
+
+    /**
+     * Returns a reusable sorted {@link Field} with the specified name not added to the current document yet.
+     *
+     * @param name A field name.
+     * @return A reusable sorted {@link Field}, or {@code null} if there is no such field.
+     */
+    public Field sortedField(String name) {
+        return next(sortedFields, name);
+    }
+
+    /**
+     * Adds the specified sorted {@link Field} to be reused by the next documents.
+     *
+     * @param field A sorted {@link Field} added to the current document.
+     */
+    public void addSortedField(Field field) {
+        add(sortedFields, field);
+    }
+
+    private Field next(Map<String, Fields> fieldsByName, String name) {
+        Fields fields = fieldsByName.get(name);
+        return fields == null ? null : fields.next(generation);
+    }
+
+    private void add(Map<String, Fields> fieldsByName, Field field) {
+        Fields fields = fieldsByName.get(field.name());
+        if (fields == null) {
+            fields = new Fields();
+            fieldsByName.put(field.name(), fields);
+        }
+        fields.add(field, generation);
+    }
+
+    /** The reusable {@link Field}s with the same name, which can be used several times in multivalued columns. */
+    private static class Fields {
+
+        private final List<Field> fields = new ArrayList<>(1);
+        private int generation = 0;
+        private int used = 0;
+
+        private void reset(int generation) {
+            if (this.generation != generation) {
+                this.generation = generation;
+                used = 0;
+            }
+        }
+
+        private Field next(int generation) {
+            reset(generation);
+            return used < fields.size() ? fields.get(used++) : null;
+        }
+
+        private void add(Field field, int generation) {
+            reset(generation);
+            fields.add(field);
+            used = fields.size();
+        }
+    }
+}
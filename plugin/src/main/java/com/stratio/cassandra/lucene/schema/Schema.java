@@ -31,7 +31,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -50,8 +55,8 @@ public class Schema implements Closeable {
     /** The wrapping all-in-one {@link Analyzer}. */
     private final SchemaAnalyzer analyzer;
 
-    /** The names of the mapped columns. */
-    private final Set<String> mappedColumns;
+    /** The {@link Mapper}s consuming each mapped CQL cell, indexed by cell name. */
+    private final Map<String, List<Mapper>> mappersByCell;
 
     /**
      * Returns a new {@code Schema} for the specified {@link Mapper}s and {@link Analyzer}s.
@@ -63,9 +68,21 @@ public class Schema implements Closeable {
     public Schema(Analyzer defaultAnalyzer, Map<String, Mapper> mappers, Map<String, Analyzer> analyzers) {
         this.mappers = mappers;
         this.analyzer = new SchemaAnalyzer(defaultAnalyzer, analyzers, mappers);
-        mappedColumns = new HashSet<>();
+        mappersByCell = new HashMap<>();
         for (Mapper mapper : this.mappers.values()) {
-            mappedColumns.addAll(mapper.mappedColumns);
+            for (String mappedColumn : mapper.mappedColumns) {
+                String cell = mappedColumn.contains(".")
+                              ? mappedColumn.substring(0, mappedColumn.indexOf("."))
+                              : mappedColumn;
+                List<Mapper> cellMappers = mappersByCell.get(cell);
+                if (cellMappers == null) {
+                    cellMappers = new ArrayList<>(1);
+                    mappersByCell.put(cell, cellMappers);
+                }
+                if (!cellMappers.contains(mapper)) {
+                    cellMappers.add(mapper);
+                }
+            }
         }
     }
 
@@ -119,7 +136,7 @@ public class Schema implements Closeable {
      * @param columns The {@link Columns} to be validated.
      */
     public void validate(Columns columns) {
-        for (Mapper mapper : mappers.values()) {
+        for (Mapper mapper : mappers(columns)) {
             mapper.validate(columns);
         }
     }
@@ -133,9 +150,27 @@ public class Schema implements Closeable {
      * @param columns  The {@link Columns} to be added.
      */
     public void addFields(Document document, Columns columns) {
-        for (Mapper mapper : mappers.values()) {
+        addFields(document, columns, null);
+    }
+
+    /**
+     * Adds to the specified {@link Document} the Lucene fields representing the specified {@link Columns}, reusing the
+     * fields of the specified {@link DocumentTemplate}.
+     *
+     * This is done in a best-effort way, so each mapper errors are logged and ignored.
+     *
+     * @param document The Lucene {@link Document} where the fields are going to be added.
+     * @param columns  The {@link Columns} to be added.
+     * @param template The {@link DocumentTemplate} containing the reusable fields, {@code null} means no reuse.
+     */
+    public void addFields(Document document, Columns columns, DocumentTemplate template) {
+        for (Mapper mapper : mappers(columns)) {
             try {
-                mapper.addFields(document, columns);
+                if (template == null) {
+                    mapper.addFields(document, columns);
+                } else {
+                    mapper.addFields(document, columns, template);
+                }
             } catch (IndexException e) {
                 logger.error("Error in Lucene index:\n\t" +
                              "while mapping : {}\n\t" +
@@ -163,15 +198,28 @@ public class Schema implements Closeable {
      * @return {@code true} if there is any mapper mapping the specified column, {@code false} otherwise.
      */
     public boolean maps(String column) {
-        for (String mappedColumn : mappedColumns) {
-            String name = mappedColumn.contains(".")
-                          ? mappedColumn.substring(0, mappedColumn.indexOf("."))
-                          : mappedColumn;
-            if (column.equals(name)) {
-                return true;
+        return mappersByCell.containsKey(column);
+    }
+
+    /**
+     * Returns the {@link Mapper}s consuming any of the specified {@link Columns}. Rows containing less columns than
+     * mappers are dispatched through the mapped cells, so only the involved mappers are returned.
+     *
+     * @param columns A {@link Columns}.
+     * @return The {@link Mapper}s consuming any of {@code columns}, or maybe all the mappers.
+     */
+    private Collection<Mapper> mappers(Columns columns) {
+        if (columns.size() >= mappers.size()) {
+            return mappers.values();
+        }
+        Set<Mapper> involvedMappers = Collections.newSetFromMap(new IdentityHashMap<Mapper, Boolean>());
+        for (Column<?> column : columns) {
+            List<Mapper> cellMappers = mappersByCell.get(column.getCellName());
+            if (cellMappers != null) {
+                involvedMappers.addAll(cellMappers);
             }
         }
-        return false;
+        return involvedMappers;
     }
 
     /**
@@ -48,8 +48,14 @@ public final class Column<T> {
     /** The full qualified name, with UDT and map qualifiers. */
     private final String cellName;
 
-    private final List<String> udtNames;
-    private final List<String> mapNames;
+    /** The name of the mapper, formed by the cell name and the UDT suffix. */
+    private final String mapperName;
+
+    /** The full name, formed by the cell name, the UDT suffix and the map suffix. */
+    private final String fullName;
+
+    /** The suffix formed by the map keys. */
+    private final String mapSuffix;
 
     /** The column's value as {@link ByteBuffer}. */
     private final T composedValue;
@@ -81,8 +87,9 @@ public final class Column<T> {
            AbstractType<T> type,
            boolean isMultiCell) {
         this.cellName = cellName;
-        this.udtNames = udtNames;
-        this.mapNames = mapNames;
+        this.mapperName = cellName + suffix(UDT_SEPARATOR, udtNames);
+        this.mapSuffix = suffix(MAP_SEPARATOR, mapNames);
+        this.fullName = mapperName + mapSuffix;
         this.composedValue = composedValue;
         this.decomposedValue = decomposedValue;
         this.type = type;
@@ -109,7 +116,7 @@ public final class Column<T> {
     }
 
     public String getMapperName() {
-        return cellName + getUDTSuffix();
+        return mapperName;
     }
 
     public static String getCellName(String field) {
@@ -131,23 +138,27 @@ public final class Column<T> {
      * @return The full name, which is formed by the column name and the suffix.
      */
     public String getFullName() {
-        return cellName + getUDTSuffix() + getMapSuffix();
+        return fullName;
     }
 
-    private String getUDTSuffix() {
-        String result = "";
-        for (String udtName : udtNames) {
-            result += UDT_SEPARATOR + udtName;
+    private static String suffix(String separator, List<String> names) {
+        if (names.isEmpty()) {
+            return "";
         }
-        return result;
+        StringBuilder builder = new StringBuilder();
+        for (String name : names) {
+            builder.append(separator).append(name);
+        }
+        return builder.toString();
     }
 
-    private String getMapSuffix() {
-        String result = "";
-        for (String mapName : mapNames) {
-            result += MAP_SEPARATOR + mapName;
-        }
-        return result;
+    /**
+     * Returns if this is a value of a map, so its field names contain the map key.
+     *
+     * @return {@code true} if this is a map value, {@code false} otherwise.
+     */
+    public boolean isMapValue() {
+        return !mapSuffix.isEmpty();
     }
 
     /**
@@ -157,7 +168,7 @@ public final class Column<T> {
      * @return The full column name appending the suffix.
      */
     public String getFieldName(String field) {
-        return field + getMapSuffix();
+        return mapSuffix.isEmpty() ? field : field + mapSuffix;
     }
 
     /**
@@ -21,23 +21,46 @@ package com.stratio.cassandra.lucene.schema.column;
 import com.google.common.base.Objects;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * A sorted list of CQL3 logic {@link Column}s.
  *
+ * The columns are stored in an array, and the lookups by name are solved with per-name indexes which are built on the
+ * first lookup after any modification. The {@link Columns} returned by the lookups are shared, so they must not be
+ * modified.
+ *
  * @author Andres de la Pena {@literal <adelapena@stratio.com>}
  */
 public class Columns implements Iterable<Column<?>> {
 
-    /** The wrapped columns. */
-    private final List<Column<?>> columns;
+    /** The initial array of columns, shared by all the empty instances. */
+    private static final Column<?>[] EMPTY = new Column<?>[0];
+
+    /** The min capacity of the array of columns once something is added. */
+    private static final int MIN_CAPACITY = 8;
+
+    /** The wrapped columns, only the first {@link #size} positions are used. */
+    private Column<?>[] columns;
+
+    /** The number of wrapped columns. */
+    private int size;
+
+    /** The columns indexed by full name, {@code null} means not built yet. */
+    private Map<String, Columns> columnsByFullName;
+
+    /** The columns indexed by CQL cell name, {@code null} means not built yet. */
+    private Map<String, Columns> columnsByCellName;
+
+    /** The columns indexed by mapper name, {@code null} means not built yet. */
+    private Map<String, Columns> columnsByMapperName;
 
     /** Returns an empty {@link Column} list. */
     public Columns() {
-        this.columns = new LinkedList<>();
+        this.columns = EMPTY;
     }
 
     /**
@@ -46,7 +69,8 @@ public class Columns implements Iterable<Column<?>> {
      * @param columns A list of {@link Column}s.
      */
     public Columns(Column<?>... columns) {
-        this.columns = Arrays.asList(columns);
+        this.columns = columns.clone();
+        this.size = columns.length;
     }
 
     /**
@@ -56,7 +80,13 @@ public class Columns implements Iterable<Column<?>> {
      * @return this
      */
     public Columns add(Column<?> column) {
-        columns.add(column);
+        if (size == columns.length) {
+            columns = Arrays.copyOf(columns, Math.max(MIN_CAPACITY, size * 2));
+        }
+        columns[size++] = column;
+        columnsByFullName = null;
+        columnsByCellName = null;
+        columnsByMapperName = null;
         return this;
     }
 
@@ -68,7 +98,7 @@ public class Columns implements Iterable<Column<?>> {
      */
     public Columns add(Columns columns) {
         for (Column<?> column : columns) {
-            this.columns.add(column);
+            add(column);
         }
         return this;
     }
@@ -79,7 +109,28 @@ public class Columns implements Iterable<Column<?>> {
      * @return An iterator over the {@link Column}s in insert order.
      */
     public Iterator<Column<?>> iterator() {
-        return columns.iterator();
+        return new Iterator<Column<?>>() {
+
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Column<?> next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return columns[next++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 
     /**
@@ -89,11 +140,11 @@ public class Columns implements Iterable<Column<?>> {
      * @return The number of {@link Column}s in this list
      */
     public int size() {
-        return columns.size();
+        return size;
     }
 
     public boolean isEmpty() {
-        return columns.isEmpty();
+        return size == 0;
     }
 
     /**
@@ -103,14 +154,10 @@ public class Columns implements Iterable<Column<?>> {
      * @return The {@link Column} identified by the specified full name, or {@code null} if not found.
      */
     public Columns getColumnsByFullName(String name) {
-        Column.check(name);
-        Columns result = new Columns();
-        for (Column<?> column : columns) {
-            if (column.getFullName().equals(name)) {
-                result.add(column);
-            }
+        if (columnsByFullName == null) {
+            columnsByFullName = index(NameType.FULL);
         }
-        return result;
+        return lookup(columnsByFullName, NameType.FULL, name);
     }
 
     /**
@@ -120,15 +167,10 @@ public class Columns implements Iterable<Column<?>> {
      * @return The {@link Column} identified by the specified CQL cell name, or {@code null} if not found.
      */
     public Columns getColumnsByCellName(String name) {
-        Column.check(name);
-        String cellName = Column.getCellName(name);
-        Columns result = new Columns();
-        for (Column<?> column : columns) {
-            if (column.getCellName().equals(cellName)) {
-                result.add(column);
-            }
+        if (columnsByCellName == null) {
+            columnsByCellName = index(NameType.CELL);
         }
-        return result;
+        return lookup(columnsByCellName, NameType.CELL, name);
     }
 
     /**
@@ -138,28 +180,118 @@ public class Columns implements Iterable<Column<?>> {
      * @return The {@link Column} identified by the specified mapper name, or {@code null} if not found.
      */
     public Columns getColumnsByMapperName(String name) {
-        Column.check(name);
-        String mapperName = Column.getMapperName(name);
-        Columns result = new Columns();
-        for (Column<?> column : columns) {
-            if (column.getMapperName().equals(mapperName)) {
-                result.add(column);
+        if (columnsByMapperName == null) {
+            columnsByMapperName = index(NameType.MAPPER);
+        }
+        return lookup(columnsByMapperName, NameType.MAPPER, name);
+    }
+
+    /**
+     * Returns the wrapped {@link Column}s indexed by the specified type of name.
+     *
+     * @param nameType The type of the name used to index the {@link Column}s.
+     * @return The {@link Column}s indexed by name.
+     */
+    private Map<String, Columns> index(NameType nameType) {
+        Map<String, Columns> index = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Column<?> column = columns[i];
+            String name = nameType.name(column);
+            Columns namedColumns = index.get(name);
+            if (namedColumns == null) {
+                namedColumns = new Columns();
+                index.put(name, namedColumns);
             }
+            namedColumns.add(column);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the {@link Columns} in the specified index matching the specified name. Names which are directly found
+     * in the index are already known to be valid, so only the rest of names are checked and parsed.
+     *
+     * @param index    The {@link Column}s indexed by the specified type of name.
+     * @param nameType The type of the name used to index the {@link Column}s.
+     * @param name     The name to be found.
+     * @return The {@link Columns} matching {@code name}.
+     */
+    private static Columns lookup(Map<String, Columns> index, NameType nameType, String name) {
+        Columns result = index.get(name);
+        if (result == null) {
+            Column.check(name);
+            result = index.get(nameType.parse(name));
         }
-        return result;
+        return result == null ? new Columns() : result;
     }
 
     public Column<?> getFirst() {
-        return columns.isEmpty() ? null : columns.get(0);
+        return size == 0 ? null : columns[0];
     }
 
     /** {@inheritDoc} */
     @Override
     public String toString() {
         Objects.ToStringHelper helper = Objects.toStringHelper(this);
-        for (Column<?> column : columns) {
+        for (Column<?> column : this) {
             helper.add(column.getFullName(), column.getComposedValue());
         }
         return helper.toString();
     }
+
+    /** The types of names that can be used to find {@link Column}s. */
+    private enum NameType {
+
+        FULL {
+            @Override
+            String name(Column<?> column) {
+                return column.getFullName();
+            }
+
+            @Override
+            String parse(String name) {
+                return name;
+            }
+        },
+
+        CELL {
+            @Override
+            String name(Column<?> column) {
+                return column.getCellName();
+            }
+
+            @Override
+            String parse(String name) {
+                return Column.getCellName(name);
+            }
+        },
+
+        MAPPER {
+            @Override
+            String name(Column<?> column) {
+                return column.getMapperName();
+            }
+
+            @Override
+            String parse(String name) {
+                return Column.getMapperName(name);
+            }
+        };
+
+        /**
+         * Returns the name of this type of the specified {@link Column}.
+         *
+         * @param column A {@link Column}.
+         * @return The name of {@code column}.
+         */
+        abstract String name(Column<?> column);
+
+        /**
+         * Returns the name of this type contained in the specified column name.
+         *
+         * @param name A valid column name.
+         * @return The name of this type contained in {@code name}.
+         */
+        abstract String parse(String name);
+    }
 }
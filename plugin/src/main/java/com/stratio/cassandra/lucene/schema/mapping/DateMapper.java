@@ -93,6 +93,20 @@ public class DateMapper extends SingleColumnMapper<Long> {
         return new NumericDocValuesField(name, value);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean setIndexedValue(Field field, Long value) {
+        field.setLongValue(value);
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean setSortedValue(Field field, Long value) {
+        field.setLongValue(value);
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public SortField sortField(String name, boolean reverse) {
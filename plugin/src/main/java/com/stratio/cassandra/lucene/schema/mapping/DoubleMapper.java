@@ -102,6 +102,20 @@ public class DoubleMapper extends SingleColumnMapper<Double> {
         return new NumericDocValuesField(name, sortable);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean setIndexedValue(Field field, Double value) {
+        field.setDoubleValue(value);
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean setSortedValue(Field field, Double value) {
+        field.setLongValue(NumericUtils.doubleToSortableLong(value));
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public SortField sortField(String name, boolean reverse) {
@@ -103,6 +103,20 @@ public class FloatMapper extends SingleColumnMapper<Float> {
         return new NumericDocValuesField(name, sortable);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean setIndexedValue(Field field, Float value) {
+        field.setFloatValue(value);
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean setSortedValue(Field field, Float value) {
+        field.setLongValue(NumericUtils.floatToSortableInt(value));
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public SortField sortField(String name, boolean reverse) {
@@ -99,6 +99,20 @@ public class IntegerMapper extends SingleColumnMapper<Integer> {
         return new NumericDocValuesField(name, value);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean setIndexedValue(Field field, Integer value) {
+        field.setIntValue(value);
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean setSortedValue(Field field, Integer value) {
+        field.setLongValue(value);
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public SortField sortField(String name, boolean reverse) {
@@ -74,6 +74,20 @@ public abstract class KeywordMapper extends SingleColumnMapper<String> {
         return new SortedDocValuesField(name, new BytesRef(value));
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean setIndexedValue(Field field, String value) {
+        field.setStringValue(value);
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean setSortedValue(Field field, String value) {
+        field.setBytesValue(new BytesRef(value));
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public final SortField sortField(String name, boolean reverse) {
@@ -20,6 +20,7 @@ package com.stratio.cassandra.lucene.schema.mapping;
 
 import com.google.common.base.Objects;
 import com.stratio.cassandra.lucene.IndexException;
+import com.stratio.cassandra.lucene.schema.DocumentTemplate;
 import com.stratio.cassandra.lucene.schema.analysis.StandardAnalyzers;
 import com.stratio.cassandra.lucene.schema.column.Column;
 import com.stratio.cassandra.lucene.schema.column.Columns;
@@ -120,12 +121,25 @@ public abstract class Mapper {
      */
     public abstract void addFields(Document document, Columns columns);
 
+    /**
+     * Adds to the specified {@link Document} the Lucene {@link org.apache.lucene.document.Field}s resulting from the
+     * mapping of the specified {@link Columns}, reusing the fields of the specified {@link DocumentTemplate} when
+     * possible. Mappers not supporting field reuse just allocate new fields.
+     *
+     * @param document The {@link Document} where the {@link org.apache.lucene.document.Field} are going to be added.
+     * @param columns  The {@link Columns}.
+     * @param template The {@link DocumentTemplate} containing the reusable fields.
+     */
+    public void addFields(Document document, Columns columns, DocumentTemplate template) {
+        addFields(document, columns);
+    }
+
     /**
      * Validates the specified {@link Columns} if {#validated}.
      *
      * @param columns The {@link Columns} to be validated.
      */
-    public final void validate(Columns columns) {
+    public void validate(Columns columns) {
         if (validated) {
             addFields(new Document(), columns);
         }
@@ -20,6 +20,7 @@ package com.stratio.cassandra.lucene.schema.mapping;
 
 import com.google.common.base.Objects;
 import com.stratio.cassandra.lucene.IndexException;
+import com.stratio.cassandra.lucene.schema.DocumentTemplate;
 import com.stratio.cassandra.lucene.schema.column.Column;
 import com.stratio.cassandra.lucene.schema.column.Columns;
 import org.apache.cassandra.db.marshal.AbstractType;
@@ -93,6 +94,37 @@ public abstract class SingleColumnMapper<T extends Comparable<T>> extends Mapper
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void addFields(Document document, Columns columns, DocumentTemplate template) {
+        for (Column<?> c : columns.getColumnsByMapperName(column)) {
+            String name = column.equals(field) ? c.getFullName() : c.getFieldName(field);
+            Object value = c.getComposedValue();
+            if (value != null) {
+                T b = base(name, value);
+                // Map keys are unbounded, so their fields are not retained for reuse
+                boolean reused = !c.isMapValue();
+                if (indexed) {
+                    document.add(reused ? indexedField(name, b, template) : indexedField(name, b));
+                }
+                if (sorted) {
+                    document.add(reused ? sortedField(name, b, template) : sortedField(name, b));
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void validate(Columns columns) {
+        if (validated) {
+            for (Column<?> c : columns.getColumnsByMapperName(column)) {
+                String name = column.equals(field) ? c.getFullName() : c.getFieldName(field);
+                base(name, c.getComposedValue());
+            }
+        }
+    }
+
     /**
      * Adds the specified column name and value to the specified {@link Document}.
      *
@@ -112,6 +144,44 @@ public abstract class SingleColumnMapper<T extends Comparable<T>> extends Mapper
         }
     }
 
+    /**
+     * Returns the {@link Field} to search for the mapped column, reusing a field of the specified template if possible.
+     *
+     * @param name     The name of the column.
+     * @param value    The value of the column.
+     * @param template The {@link DocumentTemplate} containing the reusable fields.
+     * @return The {@link Field} to search for the mapped column.
+     */
+    private Field indexedField(String name, T value, DocumentTemplate template) {
+        Field field = template.indexedField(name);
+        if (field == null) {
+            field = indexedField(name, value);
+            template.addIndexedField(field);
+        } else if (!setIndexedValue(field, value)) {
+            field = indexedField(name, value);
+        }
+        return field;
+    }
+
+    /**
+     * Returns the {@link Field} to sort by the mapped column, reusing a field of the specified template if possible.
+     *
+     * @param name     The name of the column.
+     * @param value    The value of the column.
+     * @param template The {@link DocumentTemplate} containing the reusable fields.
+     * @return The {@link Field} to sort by the mapped column.
+     */
+    private Field sortedField(String name, T value, DocumentTemplate template) {
+        Field field = template.sortedField(name);
+        if (field == null) {
+            field = sortedField(name, value);
+            template.addSortedField(field);
+        } else if (!setSortedValue(field, value)) {
+            field = sortedField(name, value);
+        }
+        return field;
+    }
+
     /**
      * Returns the {@link Field} to search for the mapped column.
      *
@@ -130,6 +200,30 @@ public abstract class SingleColumnMapper<T extends Comparable<T>> extends Mapper
      */
     public abstract Field sortedField(String name, T value);
 
+    /**
+     * Sets the specified value into the specified {@link Field}, previously returned by {@link #indexedField}, so it
+     * can be reused to search for another value of the mapped column.
+     *
+     * @param field A {@link Field} returned by {@link #indexedField}.
+     * @param value The value of the column.
+     * @return {@code true} if the value has been set, {@code false} if this mapper doesn't support field reuse.
+     */
+    protected boolean setIndexedValue(Field field, T value) {
+        return false;
+    }
+
+    /**
+     * Sets the specified value into the specified {@link Field}, previously returned by {@link #sortedField}, so it
+     * can be reused to sort by another value of the mapped column.
+     *
+     * @param field A {@link Field} returned by {@link #sortedField}.
+     * @param value The value of the column.
+     * @return {@code true} if the value has been set, {@code false} if this mapper doesn't support field reuse.
+     */
+    protected boolean setSortedValue(Field field, T value) {
+        return false;
+    }
+
     /**
      * Returns the {@link Column} query value resulting from the mapping of the specified object.
      *
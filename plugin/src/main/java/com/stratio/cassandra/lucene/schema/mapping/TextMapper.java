@@ -92,6 +92,20 @@ public class TextMapper extends SingleColumnMapper<String> {
         return new SortedDocValuesField(name, bytes);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean setIndexedValue(Field field, String value) {
+        field.setStringValue(value);
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean setSortedValue(Field field, String value) {
+        field.setBytesValue(new BytesRef(value));
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public SortField sortField(String name, boolean reverse) {
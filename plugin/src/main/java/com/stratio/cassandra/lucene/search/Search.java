@@ -52,6 +52,9 @@ public class Search {
     /** If this search must refresh the index before reading it. */
     private final Boolean refresh;
 
+    /** The max age in milliseconds of the index changes not visible to this search, {@code null} means no limit. */
+    private final Long maxStalenessMs;
+
     /**
      * Returns a new {@link Search} composed by the specified querying and filtering conditions.
      *
@@ -62,10 +65,30 @@ public class Search {
      * @param refresh         If this search must refresh the index before reading it.
      */
     public Search(Condition queryCondition, Condition filterCondition, Sort sort, Boolean refresh) {
+        this(queryCondition, filterCondition, sort, refresh, null);
+    }
+
+    /**
+     * Returns a new {@link Search} composed by the specified querying and filtering conditions.
+     *
+     * @param queryCondition  The {@link Condition} for querying, maybe {@code null} meaning no querying.
+     * @param filterCondition The {@link Condition} for filtering, maybe {@code null} meaning no filtering.
+     * @param sort            The {@link Sort} for the query. Note that is the order in which the data will be read
+     *                        before querying, not the order of the results after querying.
+     * @param refresh         If this search must refresh the index before reading it.
+     * @param maxStalenessMs  The max age in milliseconds of the index changes not visible to this search, maybe
+     *                        {@code null} meaning no limit.
+     */
+    public Search(Condition queryCondition,
+                  Condition filterCondition,
+                  Sort sort,
+                  Boolean refresh,
+                  Long maxStalenessMs) {
         this.queryCondition = queryCondition;
         this.filterCondition = filterCondition;
         this.sort = sort;
         this.refresh = refresh == null ? DEFAULT_FORCE_REFRESH : refresh;
+        this.maxStalenessMs = maxStalenessMs;
     }
 
     /**
@@ -122,6 +145,16 @@ public class Search {
         return refresh;
     }
 
+    /**
+     * Returns the max age in milliseconds of the already applied index changes that this search is allowed to not
+     * view, maybe {@code null} meaning no limit.
+     *
+     * @return The max age in milliseconds of the index changes not visible to this search.
+     */
+    public Long getMaxStalenessMs() {
+        return maxStalenessMs;
+    }
+
     /**
      * Returns the Lucene {@link SortField}s represented by this using the specified {@link Schema}. Maybe {@code null}
      * meaning no sorting.
@@ -53,6 +53,10 @@ public class SearchBuilder implements Builder<Search> {
     @JsonProperty("refresh")
     private boolean refresh;
 
+    /** The max age in milliseconds of the index changes not visible to the search, maybe {@code null}. */
+    @JsonProperty("max_staleness_ms")
+    private Long maxStalenessMs;
+
     /** Default constructor. */
     public SearchBuilder() {
     }
@@ -112,6 +116,17 @@ public class SearchBuilder implements Builder<Search> {
         return this;
     }
 
+    /**
+     * Sets the max age in milliseconds of the index changes that the {@link Search} to be built is allowed to not view.
+     *
+     * @param maxStalenessMs The max age in milliseconds of the index changes not visible to the {@link Search}.
+     * @return This builder with the specified max staleness.
+     */
+    public SearchBuilder maxStalenessMs(Long maxStalenessMs) {
+        this.maxStalenessMs = maxStalenessMs;
+        return this;
+    }
+
     /**
      * Returns the {@link Search} represented by this builder.
      *
@@ -121,7 +136,10 @@ public class SearchBuilder implements Builder<Search> {
         Condition query = queryBuilder == null ? null : queryBuilder.build();
         Condition filter = filterBuilder == null ? null : filterBuilder.build();
         Sort sort = sortBuilder == null ? null : sortBuilder.build();
-        return new Search(query, filter, sort, refresh);
+        if (maxStalenessMs != null && maxStalenessMs < 0) {
+            throw new IndexException("Max staleness must be positive");
+        }
+        return new Search(query, filter, sort, refresh, maxStalenessMs);
     }
 
     /**
@@ -124,17 +124,34 @@ public class SortField {
             return -1;
         }
 
-        String column = mapper.getColumn();
-        Column<?> column1 = o1.getColumnsByFullName(column).getFirst();
-        Column<?> column2 = o2.getColumnsByFullName(column).getFirst();
-        Comparable base1 = column1 == null ? null : mapper.base(column, column1.getComposedValue());
-        Comparable base2 = column2 == null ? null : mapper.base(column, column2.getComposedValue());
+        return compare(base(mapper, o1), base(mapper, o2));
+    }
 
-        return compare(base1, base2);
+    /**
+     * Returns the value of the specified {@link Columns} that is compared by this {@link SortField}. This allows
+     * extracting the value only once when the same {@link Columns} are compared several times.
+     *
+     * @param mapper  The {@link SingleColumnMapper} of the sorted field.
+     * @param columns The {@link Columns} containing the value to be compared.
+     * @return The value to be compared, maybe {@code null}.
+     */
+    public Comparable base(SingleColumnMapper mapper, Columns columns) {
+        String column = mapper.getColumn();
+        Column<?> first = columns.getColumnsByFullName(column).getFirst();
+        return first == null ? null : mapper.base(column, first.getComposedValue());
     }
 
+    /**
+     * Compares the specified values returned by {@link #base(SingleColumnMapper, Columns)} with the same logic as this
+     * {@link SortField}, placing {@code null} values last.
+     *
+     * @param column1 The first value to be compared, maybe {@code null}.
+     * @param column2 The second value to be compared, maybe {@code null}.
+     * @return A negative integer, zero, or a positive integer as the first value is less than, equal to, or greater
+     * than the second.
+     */
     @SuppressWarnings("unchecked")
-    protected int compare(Comparable column1, Comparable column2) {
+    public int compare(Comparable column1, Comparable column2) {
         if (column1 == null) {
             return column2 == null ? 0 : 1;
         } else if (column2 == null) {
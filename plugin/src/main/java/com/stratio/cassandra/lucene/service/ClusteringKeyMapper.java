@@ -39,6 +39,8 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.search.FieldComparator;
 import org.apache.lucene.search.FieldComparatorSource;
 import org.apache.lucene.search.Query;
@@ -184,6 +186,38 @@ public final class ClusteringKeyMapper {
         return cellNameType.cellFromByteBuffer(bb);
     }
 
+    /**
+     * Returns the clustering key doc values of the specified segment reader, to be reused for all its documents with
+     * {@link #clusteringKey(SortedDocValues, int)}.
+     *
+     * @param reader A Lucene segment reader.
+     * @return The clustering key doc values of {@code reader}, or {@code null} if it has no such doc values.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public SortedDocValues docValues(LeafReader reader) throws IOException {
+        return reader.getSortedDocValues(FIELD_NAME);
+    }
+
+    /**
+     * Returns the clustering key stored in the specified segment doc values for the specified document, or {@code
+     * null} if the document has no clustering key doc values.
+     *
+     * @param docValues The clustering key doc values of a segment, as returned by {@link #docValues(LeafReader)}.
+     * @param doc       A document identifier relative to the segment.
+     * @return The clustering key contained in the doc values of the specified document, maybe {@code null}.
+     */
+    public CellName clusteringKey(SortedDocValues docValues, int doc) {
+        if (docValues == null) {
+            return null;
+        }
+        int ord = docValues.getOrd(doc);
+        if (ord < 0) {
+            return null;
+        }
+        BytesRef bytesRef = BytesRef.deepCopyOf(docValues.lookupOrd(ord));
+        return clusteringKey(bytesRef);
+    }
+
     /**
      * Returns the clustering key contained in the specified Lucene field value.
      *
@@ -346,20 +380,18 @@ public final class ClusteringKeyMapper {
      * @return A Lucene {@link SortField} array for sorting documents/rows according to the column family name.
      */
     public List<SortField> sortFields() {
-        return Collections.singletonList(new SortField(FIELD_NAME, new FieldComparatorSource() {
-            @Override
-            public FieldComparator<?> newComparator(String field, int hits, int sort, boolean reversed)
-            throws IOException {
-                return new FieldComparator.TermValComparator(hits, field, false) {
-                    @Override
-                    public int compareValues(BytesRef val1, BytesRef val2) {
-                        CellName bb1 = clusteringKey(val1);
-                        CellName bb2 = clusteringKey(val2);
-                        return cellNameType.compare(bb1, bb2);
-                    }
-                };
-            }
-        }));
+        return Collections.singletonList(new SortField(FIELD_NAME, new ClusteringKeyComparatorSource(this)));
+    }
+
+    /**
+     * Returns the values that the {@link SortField}s returned by {@link #sortFields()} assign to the documents of the
+     * specified clustering key.
+     *
+     * @param clusteringKey A clustering key.
+     * @return The sort values of the documents of {@code clusteringKey}.
+     */
+    public List<Object> sortValues(CellName clusteringKey) {
+        return Collections.<Object>singletonList(bytesRef(clusteringKey));
     }
 
     /**
@@ -401,4 +433,55 @@ public final class ClusteringKeyMapper {
             }
         };
     }
+
+    /**
+     * {@link FieldComparatorSource} sorting documents by clustering key. Two sources are equal if they use the same
+     * clustering key type, so the {@link SortField}s of independently built sorts are equal too.
+     */
+    private static final class ClusteringKeyComparatorSource extends FieldComparatorSource {
+
+        private final ClusteringKeyMapper mapper;
+
+        /**
+         * Builds a new {@link ClusteringKeyComparatorSource} for the specified {@link ClusteringKeyMapper}.
+         *
+         * @param mapper The {@link ClusteringKeyMapper} to be used.
+         */
+        private ClusteringKeyComparatorSource(ClusteringKeyMapper mapper) {
+            this.mapper = mapper;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public FieldComparator<?> newComparator(String field, int hits, int sort, boolean reversed)
+        throws IOException {
+            return new FieldComparator.TermValComparator(hits, field, false) {
+                @Override
+                public int compareValues(BytesRef val1, BytesRef val2) {
+                    CellName bb1 = mapper.clusteringKey(val1);
+                    CellName bb2 = mapper.clusteringKey(val2);
+                    return mapper.cellNameType.compare(bb1, bb2);
+                }
+            };
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ClusteringKeyComparatorSource other = (ClusteringKeyComparatorSource) o;
+            return mapper.cellNameType.equals(other.mapper.cellNameType);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return mapper.cellNameType.hashCode();
+        }
+    }
 }
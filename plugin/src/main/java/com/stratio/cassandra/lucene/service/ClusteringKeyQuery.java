@@ -18,6 +18,7 @@
 
 package com.stratio.cassandra.lucene.service;
 
+import com.google.common.base.Objects;
 import org.apache.cassandra.db.composites.CellName;
 import org.apache.cassandra.db.composites.CellNameType;
 import org.apache.cassandra.db.composites.Composite;
@@ -73,6 +74,25 @@ class ClusteringKeyQuery extends MultiTermQuery {
                                         .toString();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!super.equals(o)) {
+            return false;
+        }
+        ClusteringKeyQuery other = (ClusteringKeyQuery) o;
+        return Objects.equal(start, other.start) && Objects.equal(stop, other.stop);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Objects.hashCode(start, stop);
+    }
+
     private class FullKeyDataRangeFilteredTermsEnum extends FilteredTermsEnum {
 
         FullKeyDataRangeFilteredTermsEnum(TermsEnum tenum) {
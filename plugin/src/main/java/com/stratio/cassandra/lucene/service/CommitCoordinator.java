@@ -0,0 +1,228 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.stratio.cassandra.lucene.IndexException;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.commitlog.CommitLog;
+import org.apache.cassandra.db.commitlog.ReplayPosition;
+import org.apache.cassandra.utils.concurrent.OpOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Node-wide coordinator of the commits of the Lucene indexes requested by flushes of the indexed tables. The commit
+ * requests received within a time window are grouped, so each index is committed only once per group no matter how
+ * many times it has been requested, and the commits of the different indexes of the group are done in parallel.
+ *
+ * All the commits of a group cover the same commitlog position, which is stored in the commit user data. The writes
+ * before that position are waited to be applied before committing.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+class CommitCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommitCoordinator.class);
+
+    /** The singleton instance. */
+    static final CommitCoordinator instance = new CommitCoordinator();
+
+    /** The pending commit requests of the next group, indexed by the requesting service. */
+    private Map<RowService, SettableFuture<Void>> pending = new LinkedHashMap<>();
+
+    /** The time in milliseconds when the next group must be committed. */
+    private long deadline = Long.MAX_VALUE;
+
+    /** The thread pool used to commit the indexes of a group in parallel. */
+    private final ExecutorService committers;
+
+    /** Builds a new {@link CommitCoordinator} and starts its coordination thread. */
+    CommitCoordinator() {
+        committers = Executors.newCachedThreadPool(new NamedThreadFactory("LuceneCommitter"));
+        Thread coordinator = new NamedThreadFactory("LuceneCommitCoordinator").newThread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        commit(nextGroup());
+                    } catch (InterruptedException e) {
+                        logger.error("Commit coordinator interrupted", e);
+                        return;
+                    } catch (Exception e) {
+                        logger.error("Error while committing a group of indexes", e);
+                    }
+                }
+            }
+        });
+        coordinator.start();
+    }
+
+    /**
+     * Commits the index of the specified {@link RowService} as part of the next group of commits, waiting for it.
+     *
+     * @param service The {@link RowService} whose index is going to be committed.
+     * @throws IOException If there are I/O errors.
+     */
+    void commit(RowService service) throws IOException {
+        try {
+            Uninterruptibles.getUninterruptibly(request(service, 0));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IndexException(cause, "Error while committing %s", service.lucene);
+        }
+    }
+
+    /**
+     * Requests the commit of the index of the specified {@link RowService} with the specified max delay, without
+     * waiting for it.
+     *
+     * @param service The {@link RowService} whose index is going to be committed.
+     * @param maxDelayMillis The max time in milliseconds that the commit can be delayed.
+     * @return A future for the requested commit.
+     */
+    synchronized ListenableFuture<Void> request(RowService service, long maxDelayMillis) {
+        SettableFuture<Void> future = pending.get(service);
+        if (future == null) {
+            future = SettableFuture.create();
+            pending.put(service, future);
+        }
+        long requestDeadline = System.currentTimeMillis() + maxDelayMillis;
+        if (requestDeadline < deadline) {
+            deadline = requestDeadline;
+            notifyAll();
+        }
+        return future;
+    }
+
+    /**
+     * Waits for the deadline of the next group of commit requests and returns it.
+     *
+     * @return The pending commit requests, indexed by the requesting service.
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    private synchronized Map<RowService, SettableFuture<Void>> nextGroup() throws InterruptedException {
+        long delay;
+        while ((delay = deadline - System.currentTimeMillis()) > 0) {
+            if (pending.isEmpty()) {
+                wait();
+            } else {
+                wait(delay);
+            }
+        }
+        Map<RowService, SettableFuture<Void>> group = pending;
+        pending = new LinkedHashMap<>();
+        deadline = Long.MAX_VALUE;
+        return group;
+    }
+
+    /**
+     * Commits in parallel the indexes of the specified group of requests, waiting for all of them.
+     *
+     * @param group The commit requests to be satisfied, indexed by the requesting service.
+     */
+    private void commit(Map<RowService, SettableFuture<Void>> group) {
+        final ReplayPosition position;
+        try {
+            position = appliedPosition();
+        } catch (Throwable e) {
+            for (SettableFuture<Void> future : group.values()) {
+                future.setException(e);
+            }
+            return;
+        }
+        for (final Map.Entry<RowService, SettableFuture<Void>> entry : group.entrySet()) {
+            committers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        commit(entry.getKey(), position);
+                        entry.getValue().set(null);
+                    } catch (Throwable e) {
+                        logger.error("Error while committing " + entry.getKey().lucene, e);
+                        entry.getValue().setException(e);
+                    }
+                }
+            });
+        }
+        for (SettableFuture<Void> future : group.values()) {
+            try {
+                Uninterruptibles.getUninterruptibly(future);
+            } catch (ExecutionException e) {
+                // Already logged by the committer
+            }
+        }
+        logger.debug("Committed {} indexes up to commitlog position {}", group.size(), position);
+    }
+
+    /**
+     * Returns the current commitlog position after waiting for all the writes before it to be applied. The position is
+     * taken before issuing the write barrier, so the writes before it have already started and are waited by the
+     * barrier.
+     *
+     * @return The current commitlog position.
+     */
+    private ReplayPosition appliedPosition() {
+        ReplayPosition position = currentPosition();
+        awaitWrites();
+        return position;
+    }
+
+    /**
+     * Returns the current commitlog position.
+     *
+     * @return The current commitlog position.
+     */
+    ReplayPosition currentPosition() {
+        return CommitLog.instance.getContext();
+    }
+
+    /**
+     * Waits for all the writes already started to be applied.
+     */
+    void awaitWrites() {
+        OpOrder.Barrier barrier = Keyspace.writeOrder.newBarrier();
+        barrier.issue();
+        barrier.await();
+    }
+
+    /**
+     * Commits the index of the specified {@link RowService} covering the specified commitlog position.
+     *
+     * @param service  The {@link RowService} whose index is going to be committed.
+     * @param position The commitlog position covered by the commit.
+     * @throws IOException If there are I/O errors.
+     */
+    void commit(RowService service, ReplayPosition position) throws IOException {
+        service.commit(position);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.base.Objects;
+import com.stratio.cassandra.lucene.search.Search;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+
+/**
+ * An immutable {@link Search} already validated and translated to Lucene against a certain index schema, so it can be
+ * reused by any number of concurrent requests without parsing its JSON nor building its Lucene objects again.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class CompiledSearch {
+
+    /** The compiled search. */
+    private final Search search;
+
+    /** The Lucene relevance query, maybe {@code null}. */
+    private final Query query;
+
+    /** The Lucene filtering query, maybe {@code null}. */
+    private final Query filter;
+
+    /** The Lucene sort, including the relevance and primary key sort fields. */
+    private final Sort sort;
+
+    /** The position of the score in the sort fields, {@code -1} if relevance is not used. */
+    private final int scorePosition;
+
+    /**
+     * Builds a new {@link CompiledSearch}.
+     *
+     * @param search        The compiled search.
+     * @param query         The Lucene relevance query, maybe {@code null}.
+     * @param filter        The Lucene filtering query, maybe {@code null}.
+     * @param sort          The Lucene sort, including the relevance and primary key sort fields.
+     * @param scorePosition The position of the score in the sort fields, {@code -1} if relevance is not used.
+     */
+    CompiledSearch(Search search, Query query, Query filter, Sort sort, int scorePosition) {
+        this.search = search;
+        this.query = query;
+        this.filter = filter;
+        this.sort = sort;
+        this.scorePosition = scorePosition;
+    }
+
+    /**
+     * Returns the compiled {@link Search}.
+     *
+     * @return The compiled search.
+     */
+    public Search getSearch() {
+        return search;
+    }
+
+    /**
+     * Returns the Lucene relevance {@link Query}.
+     *
+     * @return The Lucene relevance query, maybe {@code null}.
+     */
+    public Query getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns the Lucene filtering {@link Query}.
+     *
+     * @return The Lucene filtering query, maybe {@code null}.
+     */
+    public Query getFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns the Lucene {@link Sort}, including the relevance and primary key sort fields.
+     *
+     * @return The Lucene sort.
+     */
+    public Sort getSort() {
+        return sort;
+    }
+
+    /**
+     * Returns the position of the score in the sort fields.
+     *
+     * @return The position of the score in the sort fields, {@code -1} if relevance is not used.
+     */
+    public int getScorePosition() {
+        return scorePosition;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("search", search)
+                      .add("query", query)
+                      .add("filter", filter)
+                      .add("sort", sort)
+                      .toString();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link FilterDirectory} counting the number of bytes written to the files of the wrapped {@link Directory}. The bytes
+ * written to a file are counted when the file is closed.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+class CountingDirectory extends FilterDirectory {
+
+    /** The number of bytes written to already closed files. */
+    private final AtomicLong writtenBytes = new AtomicLong();
+
+    /**
+     * Builds a new {@link CountingDirectory} wrapping the specified {@link Directory}.
+     *
+     * @param in The wrapped {@link Directory}.
+     */
+    CountingDirectory(Directory in) {
+        super(in);
+    }
+
+    /**
+     * Returns the number of bytes written to the already closed files since the creation of this directory.
+     *
+     * @return The number of written bytes.
+     */
+    long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public IndexOutput createOutput(String name, IOContext context) throws IOException {
+        final IndexOutput out = super.createOutput(name, context);
+        return new IndexOutput("CountingIndexOutput(" + out + ")") {
+
+            private boolean closed = false;
+
+            /** {@inheritDoc} */
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    writtenBytes.addAndGet(out.getFilePointer());
+                }
+                out.close();
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public long getFilePointer() {
+                return out.getFilePointer();
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public long getChecksum() throws IOException {
+                return out.getChecksum();
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public void writeByte(byte b) throws IOException {
+                out.writeByte(b);
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public void writeBytes(byte[] b, int offset, int length) throws IOException {
+                out.writeBytes(b, offset, length);
+            }
+        };
+    }
+}
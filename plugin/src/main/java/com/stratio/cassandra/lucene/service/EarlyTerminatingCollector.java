@@ -0,0 +1,105 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortingMergePolicy;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Sort;
+
+import java.io.IOException;
+
+/**
+ * {@link FilterCollector} for searches sorted by token that stops collecting the segments sorted by token as soon as
+ * they have provided enough hits. Segments which are not sorted by token are fully collected.
+ *
+ * Within a segment sorted by token, once {@code numDocsToCollect} documents after the search start have been
+ * collected, the next documents with a greater token can't be competitive, so the collection of the segment is
+ * terminated. Documents with the same token as the last counted one are still collected because they can be sorted
+ * before it by the rest of the sort fields, such as the clustering key.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+class EarlyTerminatingCollector extends FilterCollector {
+
+    /** The name of the numeric doc values field containing the tokens. */
+    private final String field;
+
+    /** The index sort used by {@link SortingMergePolicy}. */
+    private final Sort indexSort;
+
+    /** The number of documents to be collected in each segment before terminating. */
+    private final int numDocsToCollect;
+
+    /** The token to start the search after, maybe {@code null}. */
+    private final Long after;
+
+    /**
+     * Builds a new {@link EarlyTerminatingCollector}.
+     *
+     * @param in               The wrapped {@link Collector}.
+     * @param field            The name of the numeric doc values field containing the tokens.
+     * @param indexSort        The index sort used by {@link SortingMergePolicy}.
+     * @param numDocsToCollect The number of documents to be collected in each segment before terminating.
+     * @param after            The token to start the search after, maybe {@code null}.
+     */
+    EarlyTerminatingCollector(Collector in, String field, Sort indexSort, int numDocsToCollect, Long after) {
+        super(in);
+        this.field = field;
+        this.indexSort = indexSort;
+        this.numDocsToCollect = numDocsToCollect;
+        this.after = after;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+        LeafCollector leafCollector = super.getLeafCollector(context);
+        if (!SortingMergePolicy.isSorted(context.reader(), indexSort)) {
+            return leafCollector;
+        }
+        final NumericDocValues tokens = DocValues.getNumeric(context.reader(), field);
+        return new FilterLeafCollector(leafCollector) {
+
+            private int numCollected = 0;
+            private long lastToken;
+
+            /** {@inheritDoc} */
+            @Override
+            public void collect(int doc) throws IOException {
+                long token = tokens.get(doc);
+                if (numCollected >= numDocsToCollect) {
+                    if (token != lastToken) {
+                        throw new CollectionTerminatedException();
+                    }
+                } else if (after == null || token > after) {
+                    numCollected++;
+                    lastToken = token;
+                }
+                super.collect(doc);
+            }
+        };
+    }
+}
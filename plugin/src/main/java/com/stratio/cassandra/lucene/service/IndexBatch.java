@@ -0,0 +1,179 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A group of write operations to be applied to a {@link LuceneIndex} with as few calls as possible. Pending deletions
+ * by term and upserts are applied together with {@link LuceneIndex#update}, keeping the same effect that they would
+ * have had if they were applied one by one in the order they were added. The operations are kept per index shard, and
+ * each operation only affects the pending operations of its own shard.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+class IndexBatch {
+
+    /** The index where the operations are applied. */
+    private final LuceneIndex lucene;
+
+    /** The terms of the documents to be deleted before adding the pending documents, for each shard. */
+    private final List<Set<Term>> terms;
+
+    /** The pending documents to be added, indexed by their identifying term, for each shard. */
+    private final List<Map<Term, Document>> documents;
+
+    /** The number of pending operations. */
+    private int size = 0;
+
+    /** If there is a delayed flush of this batch already scheduled. */
+    private boolean flushScheduled = false;
+
+    /**
+     * Builds a new empty {@link IndexBatch} for the specified {@link LuceneIndex}.
+     *
+     * @param lucene The {@link LuceneIndex} where the operations are applied.
+     */
+    IndexBatch(LuceneIndex lucene) {
+        this.lucene = lucene;
+        int numShards = lucene.getNumShards();
+        terms = new ArrayList<>(numShards);
+        documents = new ArrayList<>(numShards);
+        for (int i = 0; i < numShards; i++) {
+            terms.add(new LinkedHashSet<Term>());
+            documents.add(new LinkedHashMap<Term, Document>());
+        }
+    }
+
+    /**
+     * Adds the upsert of the specified {@link Document}s, identified by their {@link Term}s.
+     *
+     * @param shard   The index shard containing the documents.
+     * @param upserts The {@link Document}s to be upserted, indexed by their identifying {@link Term}s.
+     */
+    synchronized void upsert(int shard, Map<Term, Document> upserts) {
+        Set<Term> shardTerms = terms.get(shard);
+        Map<Term, Document> shardDocuments = documents.get(shard);
+        for (Map.Entry<Term, Document> entry : upserts.entrySet()) {
+            Term term = entry.getKey();
+            shardTerms.add(term);
+            shardDocuments.put(term, entry.getValue());
+            size++;
+        }
+    }
+
+    /**
+     * Adds the deletion of all the {@link Document}s containing the specified {@link Term}. Pending documents which
+     * could be matched by a different term are applied first.
+     *
+     * @param shard The index shard containing the documents.
+     * @param term  The {@link Term} to identify the documents to be deleted.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    synchronized void delete(int shard, Term term) throws IOException {
+        Map<Term, Document> shardDocuments = documents.get(shard);
+        if (shardDocuments.remove(term) == null && !shardDocuments.isEmpty()) {
+            flush();
+        }
+        terms.get(shard).add(term);
+        size++;
+    }
+
+    /**
+     * Deletes all the {@link Document}s satisfying the specified {@link Query}, after applying the pending operations.
+     *
+     * @param shard The index shard containing the documents.
+     * @param query The {@link Query} to identify the documents to be deleted.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    synchronized void delete(int shard, Query query) throws IOException {
+        flush();
+        lucene.delete(shard, query);
+    }
+
+    /**
+     * Returns the number of pending operations.
+     *
+     * @return The number of pending operations.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Marks this batch as having a delayed flush scheduled, if it is not empty and there is not another one.
+     *
+     * @return {@code true} if a new delayed flush must be scheduled, {@code false} otherwise.
+     */
+    synchronized boolean scheduleFlush() {
+        if (size == 0 || flushScheduled) {
+            return false;
+        }
+        flushScheduled = true;
+        return true;
+    }
+
+    /**
+     * Applies all the pending operations. Each shard is updated on its own, so a failure updating a shard doesn't
+     * prevent the other shards from being updated. The pending operations of all the shards are discarded anyway, and
+     * the first error is rethrown after all the shards have been updated.
+     *
+     * @throws IOException If Lucene throws IO errors.
+     */
+    synchronized void flush() throws IOException {
+        flushScheduled = false;
+        if (size > 0) {
+            size = 0;
+            Exception error = null;
+            for (int shard = 0; shard < terms.size(); shard++) {
+                Set<Term> shardTerms = terms.get(shard);
+                Map<Term, Document> shardDocuments = documents.get(shard);
+                try {
+                    if (!shardTerms.isEmpty() || !shardDocuments.isEmpty()) {
+                        lucene.update(shard, shardTerms, shardDocuments);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (error == null) {
+                        error = e;
+                    } else {
+                        error.addSuppressed(e);
+                    }
+                } finally {
+                    shardTerms.clear();
+                    shardDocuments.clear();
+                }
+            }
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error != null) {
+                throw (RuntimeException) error;
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.IndexException;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DataRange;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.Row;
+import org.apache.cassandra.db.RowPosition;
+import org.apache.cassandra.db.filter.ColumnSlice;
+import org.apache.cassandra.db.filter.IDiskAtomFilter;
+import org.apache.cassandra.db.filter.QueryFilter;
+import org.apache.cassandra.db.filter.SliceQueryFilter;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.utils.concurrent.OpOrder;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.SortingMergePolicy;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builder of a whole {@link LuceneIndex} from the data stored in its indexed table. The token range of each index shard
+ * is split in slices which are scanned in parallel, each of them into its own temporary index. The temporary indexes
+ * are finally merged replacing the contents of their {@link LuceneIndex} shards.
+ *
+ * The partitions written while building are tracked and re-indexed after the merge, so their newer versions are not
+ * lost nor duplicated.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+class IndexBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexBuilder.class);
+
+    /** The number of token ring slices to be scanned by each thread, to balance the work between threads. */
+    private static final int SLICES_PER_THREAD = 4;
+
+    /** The max number of partitions to be read while keeping the memtables from being discarded. */
+    private static final int PAGE_SIZE = 1000;
+
+    /** The name suffix of the temporary index directories. */
+    private static final String DIRECTORY_SUFFIX = "_build_";
+
+    /** The min RAM buffer size in MB of the writer of each building thread. */
+    static final double MIN_RAM_BUFFER_MB = 1;
+
+    private final RowService service;
+    private final ColumnFamilyStore baseCfs;
+    private final LuceneIndex lucene;
+    private final String name;
+    private final Path path;
+    private final Analyzer analyzer;
+
+    /** The RAM buffer size in MB of the writer of each building thread, which share the configured RAM buffer. */
+    private final double ramBufferMB;
+
+    /** The number of threads scanning token ring slices. */
+    private final int threads;
+
+    /** The number of partitions already scanned by the current or last build. */
+    private final AtomicLong builtPartitions = new AtomicLong();
+
+    /** The estimated number of partitions to be scanned by the current or last build. */
+    private volatile long estimatedPartitions = 0;
+
+    /** The time in milliseconds when the current or last build started. */
+    private volatile long startTime = 0;
+
+    /** The time in milliseconds when the last build finished, {@code 0} means that a build is running. */
+    private volatile long endTime = 0;
+
+    /** The keys of the partitions written while building, {@code null} means that there is no running build. */
+    private volatile Set<DecoratedKey> writtenKeys;
+
+    /**
+     * Builds a new {@link IndexBuilder} for the index of the specified {@link RowService}.
+     *
+     * @param service The {@link RowService} whose index is built.
+     * @param config  The {@link IndexConfig}.
+     */
+    IndexBuilder(RowService service, IndexConfig config) {
+        this.service = service;
+        this.baseCfs = service.baseCfs;
+        this.lucene = service.lucene;
+        this.name = config.getName();
+        this.path = config.getPath();
+        this.analyzer = config.getAnalyzer();
+        this.threads = config.getBuildThreads();
+        this.ramBufferMB = ramBufferMB(config.getRamBufferMB(), threads);
+    }
+
+    /**
+     * Returns the RAM buffer size in MB of the writer of each building thread, splitting the specified total RAM buffer
+     * among the threads, but not below {@link #MIN_RAM_BUFFER_MB}.
+     *
+     * @param ramBufferMB The total RAM buffer size in MB.
+     * @param threads     The number of building threads.
+     * @return The RAM buffer size in MB of each thread.
+     */
+    static double ramBufferMB(int ramBufferMB, int threads) {
+        return Math.max(MIN_RAM_BUFFER_MB, (double) ramBufferMB / Math.max(1, threads));
+    }
+
+    /**
+     * Records that the specified partition is being written, if there is a running build.
+     *
+     * @param partitionKey The key of a written partition.
+     */
+    void written(DecoratedKey partitionKey) {
+        Set<DecoratedKey> keys = writtenKeys;
+        if (keys != null) {
+            keys.add(partitionKey);
+        }
+    }
+
+    /**
+     * Returns if the writes must be recorded with {@link #written(DecoratedKey)} because there is a running build.
+     *
+     * @return {@code true} if there is a running build, {@code false} otherwise.
+     */
+    boolean isBuilding() {
+        return writtenKeys != null;
+    }
+
+    /**
+     * Returns the number of partitions already scanned by the current or last build.
+     *
+     * @return The number of scanned partitions.
+     */
+    long getBuiltPartitions() {
+        return builtPartitions.get();
+    }
+
+    /**
+     * Returns the percentage of the estimated number of partitions already scanned by the current or last build.
+     *
+     * @return The progress of the current or last build, between {@code 0} and {@code 100}.
+     */
+    double getProgress() {
+        if (endTime > 0) {
+            return 100;
+        }
+        return estimatedPartitions == 0 ? 0 : Math.min(99.9, 100D * builtPartitions.get() / estimatedPartitions);
+    }
+
+    /**
+     * Returns the mean number of partitions scanned per second by the current or last build.
+     *
+     * @return The build throughput in partitions per second.
+     */
+    double getPartitionsPerSecond() {
+        if (startTime == 0) {
+            return 0;
+        }
+        long elapsedMillis = (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+        return elapsedMillis == 0 ? 0 : builtPartitions.get() * 1000D / elapsedMillis;
+    }
+
+    /**
+     * Replaces the contents of the index with the current contents of the indexed table, and commits it.
+     *
+     * @throws IOException If there are I/O errors.
+     */
+    synchronized void build() throws IOException {
+        final long timestamp = System.currentTimeMillis();
+        writtenKeys = Collections.newSetFromMap(new ConcurrentHashMap<DecoratedKey, Boolean>());
+        builtPartitions.set(0);
+        estimatedPartitions = baseCfs.estimateKeys();
+        startTime = timestamp;
+        endTime = 0;
+        List<Range<Token>> shardRanges = lucene.getShardRanges();
+        if (shardRanges == null) {
+            shardRanges = Collections.singletonList(TokenMapper.ring());
+        }
+        int slicesPerShard = (threads * SLICES_PER_THREAD + shardRanges.size() - 1) / shardRanges.size();
+        List<List<Range<Token>>> slices = new ArrayList<>(shardRanges.size());
+        for (Range<Token> shardRange : shardRanges) {
+            slices.add(TokenMapper.split(shardRange, slicesPerShard));
+        }
+        int numSlices = slicesPerShard * shardRanges.size();
+        logger.info("Building {} with {} threads scanning {} token ring slices", name, threads, numSlices);
+
+        List<List<Path>> paths = new ArrayList<>(slices.size());
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new NamedThreadFactory("LuceneBuilding:" + name));
+        try {
+
+            // Build each slice into its own temporary index
+            List<Callable<Void>> tasks = new ArrayList<>(numSlices);
+            for (List<Range<Token>> shardSlices : slices) {
+                List<Path> shardPaths = new ArrayList<>(shardSlices.size());
+                paths.add(shardPaths);
+                for (final Range<Token> slice : shardSlices) {
+                    final Path slicePath = path.resolveSibling(path.getFileName() + DIRECTORY_SUFFIX + tasks.size());
+                    shardPaths.add(slicePath);
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            build(slice, slicePath, timestamp);
+                            return null;
+                        }
+                    });
+                }
+            }
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+
+            // Merge the temporary indexes and re-index the partitions written in the meantime
+            logger.info("Merging {} built slices into {}", numSlices, name);
+            lucene.replace(paths);
+            Set<DecoratedKey> keys = writtenKeys;
+            writtenKeys = null;
+            logger.info("Re-indexing {} partitions written while building {}", keys.size(), name);
+            reindex(keys);
+            lucene.commit();
+            endTime = System.currentTimeMillis();
+            logger.info("Built {} with {} partitions in {} ms", name, builtPartitions.get(), endTime - startTime);
+
+        } catch (InterruptedException e) {
+            throw new IndexException(e, "Interrupted while building %s", name);
+        } catch (ExecutionException e) {
+            throw new IndexException(e.getCause(), "Error while building %s: %s", name, e.getCause().getMessage());
+        } finally {
+            writtenKeys = null;
+            pool.shutdownNow();
+            for (List<Path> shardPaths : paths) {
+                for (Path slicePath : shardPaths) {
+                    File file = slicePath.toFile();
+                    if (file.exists()) {
+                        FileUtils.deleteRecursive(file);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes the partitions contained in the specified token ring slice into a new index in the specified path. The
+     * slice is read in pages, so the memtables can be discarded while building. If the index segments are sorted, the
+     * slice index is merged into a single sorted segment, so it keeps being sorted once added to the index.
+     *
+     * @param slice     A token ring slice.
+     * @param slicePath The path of the index to be built.
+     * @param timestamp The time stamp to ignore deleted columns.
+     * @throws IOException If there are I/O errors.
+     */
+    private void build(Range<Token> slice, Path slicePath, long timestamp) throws IOException {
+        IndexWriterConfig indexWriterConfig = new IndexWriterConfig(analyzer);
+        indexWriterConfig.setRAMBufferSizeMB(ramBufferMB);
+        indexWriterConfig.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        indexWriterConfig.setUseCompoundFile(false);
+        Sort indexSort = lucene.getIndexSort();
+        if (indexSort != null) {
+            indexWriterConfig.setMergePolicy(sortingMergePolicy(indexSort));
+        }
+        IDiskAtomFilter filter = new SliceQueryFilter(ColumnSlice.ALL_COLUMNS_ARRAY, false, Integer.MAX_VALUE);
+        try (Directory directory = FSDirectory.open(slicePath);
+             IndexWriter indexWriter = new IndexWriter(directory, indexWriterConfig)) {
+            RowPosition start = slice.left.maxKeyBound();
+            RowPosition stop = slice.right.maxKeyBound();
+            int count = PAGE_SIZE;
+            while (count == PAGE_SIZE) {
+                count = 0;
+                DataRange dataRange = new DataRange(new Range<>(start, stop), filter);
+                try (OpOrder.Group readGroup = baseCfs.readOrdering.start()) {
+                    ColumnFamilyStore.AbstractScanIterator rows = baseCfs.getSequentialIterator(dataRange, timestamp);
+                    try {
+                        while (count < PAGE_SIZE && rows.hasNext()) {
+                            Row row = rows.next();
+                            if (row.cf != null && row.cf.iterator().hasNext()) {
+                                indexWriter.addDocuments(service.documents(row.key, row.cf, timestamp).values());
+                            }
+                            start = row.key;
+                            builtPartitions.incrementAndGet();
+                            count++;
+                        }
+                    } finally {
+                        rows.close();
+                    }
+                }
+            }
+            if (indexSort != null) {
+                indexWriter.forceMerge(1);
+            }
+            indexWriter.commit();
+        }
+    }
+
+    /**
+     * Returns a {@link MergePolicy} sorting the merged segments by the specified {@link Sort}, which also rewrites a
+     * single flushed segment when forcing the merge into one segment. Merged segments use compound files while flushed
+     * ones don't, so a flushed segment is never considered already merged.
+     *
+     * @param indexSort The sort of the merged segments.
+     * @return A {@link MergePolicy} sorting the merged segments.
+     */
+    static MergePolicy sortingMergePolicy(Sort indexSort) {
+        TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setNoCFSRatio(1.0);
+        return new SortingMergePolicy(mergePolicy, indexSort);
+    }
+
+    /**
+     * Re-indexes the specified partitions with their current contents.
+     *
+     * @param partitionKeys The keys of the partitions to be re-indexed.
+     * @throws IOException If there are I/O errors.
+     */
+    private void reindex(Set<DecoratedKey> partitionKeys) throws IOException {
+        long timestamp = System.currentTimeMillis();
+        for (DecoratedKey partitionKey : partitionKeys) {
+            service.delete(partitionKey);
+            QueryFilter queryFilter = QueryFilter.getIdentityFilter(partitionKey, baseCfs.metadata.cfName, timestamp);
+            ColumnFamily columnFamily = baseCfs.getColumnFamily(queryFilter);
+            if (columnFamily != null && columnFamily.iterator().hasNext()) {
+                service.index(partitionKey.getKey(), columnFamily, timestamp);
+            }
+        }
+    }
+}
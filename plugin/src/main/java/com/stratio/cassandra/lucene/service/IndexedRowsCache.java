@@ -0,0 +1,153 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.util.concurrent.Striped;
+import org.apache.cassandra.cache.ICache;
+import org.apache.cassandra.cache.SerializingCache;
+import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.io.ISerializer;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.net.MessagingService;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Bounded off-heap cache of the last indexed {@link ColumnFamily} of each partition, used to complete the updates not
+ * containing all the mapped columns without reading them from the storage engine.
+ *
+ * The cached {@link ColumnFamily}s are not cleaned, so they keep the tombstones and the deletion info needed to
+ * reconcile them with newer updates by timestamp. The callers must hold the {@link Lock} of a partition while they
+ * read, reconcile and put its cached value.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+class IndexedRowsCache {
+
+    /** The number of locks to be shared by all the partitions. */
+    private static final int NUM_LOCKS = 1024;
+
+    /** The max number of cells to be cached per partition. */
+    private static final int MAX_CELLS_PER_PARTITION = 1000;
+
+    /** The last indexed column families, indexed by partition key. */
+    private final ICache<DecoratedKey, ColumnFamily> cache;
+
+    /** The locks to serialize the updates of the same partition. */
+    private final Striped<Lock> locks = Striped.lock(NUM_LOCKS);
+
+    /**
+     * Builds a new empty {@link IndexedRowsCache}.
+     *
+     * @param capacityMB The max off-heap memory in MB to be used.
+     */
+    IndexedRowsCache(int capacityMB) {
+        this(SerializingCache.create(capacityMB * 1024L * 1024L, new ColumnFamilySerializer()));
+    }
+
+    /**
+     * Builds a new empty {@link IndexedRowsCache} storing the column families in the specified {@link ICache}.
+     *
+     * @param cache The {@link ICache} where the column families are stored.
+     */
+    IndexedRowsCache(ICache<DecoratedKey, ColumnFamily> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the {@link Lock} to be held while updating the cached value of the specified partition.
+     *
+     * @param partitionKey A partition key.
+     * @return The {@link Lock} of {@code partitionKey}.
+     */
+    Lock lock(DecoratedKey partitionKey) {
+        return locks.get(partitionKey);
+    }
+
+    /**
+     * Returns the cached {@link ColumnFamily} of the specified partition.
+     *
+     * @param partitionKey A partition key.
+     * @return The cached {@link ColumnFamily} of {@code partitionKey}, or {@code null} if it is not cached.
+     */
+    ColumnFamily get(DecoratedKey partitionKey) {
+        return cache.get(partitionKey);
+    }
+
+    /**
+     * Caches the specified {@link ColumnFamily} as the last indexed one of the specified partition. Column families
+     * with too many cells are discarded.
+     *
+     * @param partitionKey A partition key.
+     * @param columnFamily The last indexed {@link ColumnFamily} of {@code partitionKey}.
+     */
+    void put(DecoratedKey partitionKey, ColumnFamily columnFamily) {
+        if (columnFamily.getColumnCount() > MAX_CELLS_PER_PARTITION) {
+            cache.remove(partitionKey);
+        } else {
+            cache.put(partitionKey, columnFamily);
+        }
+    }
+
+    /**
+     * Removes the cached {@link ColumnFamily} of the specified partition.
+     *
+     * @param partitionKey A partition key.
+     */
+    void invalidate(DecoratedKey partitionKey) {
+        Lock lock = lock(partitionKey);
+        lock.lock();
+        try {
+            cache.remove(partitionKey);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Removes all the cached {@link ColumnFamily}s. */
+    void clear() {
+        cache.clear();
+    }
+
+    /** {@link ISerializer} for storing {@link ColumnFamily}s off-heap. */
+    private static class ColumnFamilySerializer implements ISerializer<ColumnFamily> {
+
+        /** {@inheritDoc} */
+        @Override
+        public void serialize(ColumnFamily columnFamily, DataOutputPlus out) throws IOException {
+            ColumnFamily.serializer.serialize(columnFamily, out, MessagingService.current_version);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ColumnFamily deserialize(DataInput in) throws IOException {
+            return ColumnFamily.serializer.deserialize(in, MessagingService.current_version);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public long serializedSize(ColumnFamily columnFamily, TypeSizes typeSizes) {
+            return ColumnFamily.serializer.serializedSize(columnFamily, typeSizes, MessagingService.current_version);
+        }
+    }
+}
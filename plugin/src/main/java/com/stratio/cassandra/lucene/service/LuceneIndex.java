@@ -19,10 +19,21 @@
 package com.stratio.cassandra.lucene.service;
 
 import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.IndexException;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.RowPosition;
+import org.apache.cassandra.db.commitlog.ReplayPosition;
+import org.apache.cassandra.dht.AbstractBounds;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.*;
 import org.apache.lucene.search.*;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.NRTCachingDirectory;
@@ -34,27 +45,104 @@ import javax.management.ObjectName;
 import javax.management.OperationsException;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Class wrapping a Lucene directory and its readers, writers and searchers for NRT.
  *
+ * The index can be split in several shards, each of them indexing the partitions of a contiguous token range in its own
+ * directory and with its own writer. The shards are searched together through a single reader, each of them in a
+ * different thread, and the shards not intersecting the token range of a search are not searched at all.
+ *
  * @author Andres de la Pena {@literal <adelapena@stratio.com>}
  */
 public class LuceneIndex implements LuceneIndexMBean {
 
     private static final Logger logger = LoggerFactory.getLogger(LuceneIndex.class);
 
+    /** The max seconds to wait for the readers to be reopened when someone is waiting for an index generation. */
+    private static final double MIN_REFRESH_SECONDS = 0.05;
+
+    /** The commit user data key of the commitlog position covered by the commit. */
+    private static final String REPLAY_POSITION_KEY = "replay_position";
+
+    /** The milliseconds between checks of the bytes written since the last commit. */
+    private static final long COMMIT_CHECK_MILLIS = 1000;
+
+    /** The max seconds to wait for the queued search tasks to be run when closing. */
+    private static final long SEARCH_DRAIN_SECONDS = 60;
+
+    /** The name of the file storing the number of shards of the index, placed in the index root directory. */
+    static final String SHARDS_FILE_NAME = "index_shards";
+
     private final Path path;
     private final String name;
 
-    private final Directory directory;
-    private final IndexWriter indexWriter;
-    private final SearcherManager searcherManager;
+    /** The directory of each shard. */
+    private final CountingDirectory[] directories;
+
+    /** The writer of each shard. */
+    private final IndexWriter[] indexWriters;
+
+    /** The source of index generations, which are shared by all the shards. */
+    private final TrackingIndexWriter trackingIndexWriter;
+
+    private final ShardedSearcherManager searcherManager;
     private final ControlledRealTimeReopenThread<IndexSearcher> searcherReopener;
+    private final SearchCache searchCache;
+
+    /** The sort of the merged index segments, {@code null} means unsorted segments. */
+    private final Sort indexSort;
+
+    /** The token range of each shard, {@code null} means that the index is not sharded. */
+    private final List<Range<Token>> shardRanges;
+
+    /** The right bound of the token range of each shard but the last one, {@code null} means no sharding. */
+    private final Token[] shardBounds;
+
+    /** The executor collecting the index segments in parallel, {@code null} means sequential searches. */
+    private final SearchExecutor searchExecutor;
+
+    /** The max number of documents in the index segments collected by the same search thread. */
+    private final int searchSliceDocs;
+
+    /** The max number of index segments collected by the same search thread. */
+    private final int searchSliceSegments;
+
+    /** The locks preventing the readers of each shard from being reopened in the middle of a grouped update. */
+    private final ReadWriteLock[] updateLocks;
+
+    /** The time in milliseconds when the current refresh started. */
+    private volatile long refreshTime = System.currentTimeMillis();
+
+    /** The time in milliseconds after which the index changes are not visible to the current searcher. */
+    private volatile long searcherTime = refreshTime;
+
+    /** The number of bytes written to the directory before the last commit. */
+    private volatile long committedBytes = 0;
+
+    /** The scheduler of the periodic and size-triggered commits, {@code null} means no such commits. */
+    private final ScheduledExecutorService commitScheduler;
+
+    /** The parallel builder of this index, {@code null} means that the index is built by Cassandra. */
+    private volatile IndexBuilder builder;
 
     private ObjectName objectName;
 
@@ -72,35 +160,117 @@ public class LuceneIndex implements LuceneIndexMBean {
         this.path = config.getPath();
         this.name = config.getName();
 
-        // Open or create directory
-        FSDirectory fsDirectory = FSDirectory.open(path);
-        directory = new NRTCachingDirectory(fsDirectory, config.getMaxMergeMB(), config.getMaxCachedMB());
+        // Setup shards
+        int numShards = Math.max(1, config.getIndexShards());
+        checkShards(path, numShards);
+        if (numShards > 1) {
+            shardRanges = TokenMapper.split(TokenMapper.ring(), numShards);
+            shardBounds = new Token[numShards - 1];
+            for (int i = 0; i < shardBounds.length; i++) {
+                shardBounds[i] = shardRanges.get(i).right;
+            }
+        } else {
+            shardRanges = null;
+            shardBounds = null;
+        }
 
-        // Setup index writer
-        IndexWriterConfig indexWriterConfig = new IndexWriterConfig(config.getAnalyzer());
-        indexWriterConfig.setRAMBufferSizeMB(config.getRamBufferMB());
-        indexWriterConfig.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-        indexWriterConfig.setUseCompoundFile(true);
-        indexWriterConfig.setMergePolicy(new TieredMergePolicy());
-        indexWriter = new IndexWriter(directory, indexWriterConfig);
+        // Setup parallel search
+        int searchThreads = config.getSearchThreads() > 0 ? config.getSearchThreads() : numShards > 1 ? numShards : 0;
+        searchExecutor = searchThreads > 0 ? new SearchExecutor(name, searchThreads) : null;
+        searchSliceDocs = config.getSearchSliceDocs();
+        searchSliceSegments = config.getSearchSliceSegments();
+
+        // Open or create directories and setup index writers
+        boolean sorted = config.isSortedIndex() && DatabaseDescriptor.getPartitioner() instanceof Murmur3Partitioner;
+        indexSort = sorted ? new Sort(new SortField(TokenMapperMurmur.FIELD_NAME, SortField.Type.LONG)) : null;
+        directories = new CountingDirectory[numShards];
+        indexWriters = new IndexWriter[numShards];
+        updateLocks = new ReadWriteLock[numShards];
+        for (int i = 0; i < numShards; i++) {
+            FSDirectory fsDirectory = FSDirectory.open(numShards > 1 ? path.resolve("shard_" + i) : path);
+            directories[i] = new CountingDirectory(new NRTCachingDirectory(fsDirectory,
+                                                                           config.getMaxMergeMB(),
+                                                                           config.getMaxCachedMB()));
+            IndexWriterConfig indexWriterConfig = new IndexWriterConfig(config.getAnalyzer());
+            indexWriterConfig.setRAMBufferSizeMB((double) config.getRamBufferMB() / numShards);
+            indexWriterConfig.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            indexWriterConfig.setUseCompoundFile(true);
+            MergePolicy mergePolicy = new TieredMergePolicy();
+            indexWriterConfig.setMergePolicy(sorted ? new SortingMergePolicy(mergePolicy, indexSort) : mergePolicy);
+            indexWriters[i] = new IndexWriter(directories[i], indexWriterConfig);
+            updateLocks[i] = new ReentrantReadWriteLock();
+        }
 
         // Setup NRT search
         SearcherFactory searcherFactory = new SearcherFactory() {
             @Override
             public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
-                IndexSearcher searcher = new IndexSearcher(reader);
+                IndexSearcher searcher;
+                if (searchExecutor == null) {
+                    searcher = new IndexSearcher(reader);
+                } else {
+                    searcher = new IndexSearcher(reader, searchExecutor) {
+                        @Override
+                        protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+                            return searchSlices(leaves);
+                        }
+                    };
+                }
                 searcher.setSimilarity(new NoIDFSimilarity());
                 return searcher;
             }
         };
-        TrackingIndexWriter trackingIndexWriter = new TrackingIndexWriter(indexWriter);
-        searcherManager = new SearcherManager(indexWriter, true, searcherFactory);
+        trackingIndexWriter = new TrackingIndexWriter(indexWriters[0]);
+        searcherManager = new ShardedSearcherManager(indexWriters, updateLocks, searcherFactory);
+        searcherManager.addListener(new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {
+                refreshTime = System.currentTimeMillis();
+            }
+
+            @Override
+            public void afterRefresh(boolean didRefresh) {
+                searcherTime = refreshTime;
+            }
+        });
+        int searchCacheSize = config.getSearchCacheSize();
+        searchCache = searchCacheSize > 0 ? new SearchCache(searchCacheSize) : null;
+        if (searchCache != null) {
+            searcherManager.addListener(searchCache);
+        }
         searcherReopener = new ControlledRealTimeReopenThread<>(trackingIndexWriter,
                                                                 searcherManager,
                                                                 config.getRefreshSeconds(),
-                                                                config.getRefreshSeconds());
+                                                                Math.min(config.getRefreshSeconds(),
+                                                                         MIN_REFRESH_SECONDS));
         searcherReopener.start();
 
+        // Setup commits not triggered by Cassandra
+        int commitIntervalSeconds = config.getCommitIntervalSeconds();
+        final long commitThresholdBytes = config.getCommitThresholdMb() * 1024L * 1024L;
+        if (commitIntervalSeconds > 0 || commitThresholdBytes > 0) {
+            ThreadFactory threadFactory = new NamedThreadFactory("LuceneCommit:" + name);
+            commitScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        } else {
+            commitScheduler = null;
+        }
+        if (commitIntervalSeconds > 0) {
+            commitScheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    maybeCommit(0);
+                }
+            }, commitIntervalSeconds, commitIntervalSeconds, TimeUnit.SECONDS);
+        }
+        if (commitThresholdBytes > 0) {
+            commitScheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    maybeCommit(commitThresholdBytes);
+                }
+            }, COMMIT_CHECK_MILLIS, COMMIT_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
         // Register JMX MBean
         try {
             objectName = new ObjectName(String.format(
@@ -114,18 +284,50 @@ public class LuceneIndex implements LuceneIndexMBean {
         }
     }
 
+    /**
+     * Checks that the index stored in the specified path has been created with the specified number of shards, storing
+     * it if the index is new. The documents of each shard are stored in a different directory, so the documents of an
+     * index created with a different number of shards would be silently ignored.
+     *
+     * @param path      The index root directory.
+     * @param numShards The configured number of shards.
+     * @throws IOException If there are I/O errors.
+     */
+    private static void checkShards(Path path, int numShards) throws IOException {
+        Path file = path.resolve(SHARDS_FILE_NAME);
+        int storedShards;
+        if (Files.exists(file)) {
+            storedShards = Integer.parseInt(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+        } else {
+            try (Directory directory = FSDirectory.open(path)) {
+                storedShards = DirectoryReader.indexExists(directory) ? 1 : numShards;
+            }
+            if (storedShards == numShards) {
+                Files.write(file, String.valueOf(numShards).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        if (storedShards != numShards) {
+            throw new IndexException("Index in %s has been created with %d shards but '%s' is %d, " +
+                                     "the index must be dropped and created again to change its number of shards",
+                                     path, storedShards, IndexConfig.INDEX_SHARDS_OPTION, numShards);
+        }
+    }
+
     /**
      * Updates the specified {@link Document} by first deleting the documents containing {@code Term} and then adding
      * the new document. The delete and then add are atomic as seen by a reader on the same index (flush may happen only
      * after the add).
      *
+     * @param shard    The shard containing the document, as returned by {@link #shard(DecoratedKey)}.
      * @param term     The {@link Term} to identify the document(s) to be deleted.
      * @param document The {@link Document} to be added.
+     * @return The index generation containing the change.
      * @throws IOException If Lucene throws IO errors.
      */
-    public void upsert(Term term, Document document) throws IOException {
+    public long upsert(int shard, Term term, Document document) throws IOException {
         logger.debug("{} update document {} with term {}", name, document, term);
-        indexWriter.updateDocument(term, document);
+        indexWriters[shard].updateDocument(term, document);
+        return trackingIndexWriter.getGeneration();
     }
 
     /**
@@ -133,45 +335,175 @@ public class LuceneIndex implements LuceneIndexMBean {
      * the new document. The delete and then add are atomic as seen by a reader on the same index (flush may happen only
      * after the add).
      *
+     * @param shard     The shard containing the documents, as returned by {@link #shard(DecoratedKey)}.
      * @param documents The {@link Document}s to be added.
+     * @return The index generation containing the changes.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public long upsert(int shard, Map<Term, Document> documents) throws IOException {
+        return update(shard, documents.keySet(), documents);
+    }
+
+    /**
+     * Deletes all the {@link Document}s containing any of the specified {@link Term}s and then adds the specified
+     * {@link Document}s, using a single grouped call for each. The deletions don't affect the added documents, and the
+     * whole update is atomic as seen by a reader on the same index.
+     *
+     * Lucene discards all the documents of a grouped addition if any of them can't be indexed, for example because it
+     * contains an immense term. In that case the documents are added again one by one, so only the invalid ones are
+     * discarded, as it happens when they are not grouped.
+     *
+     * @param shard     The shard containing the documents, as returned by {@link #shard(DecoratedKey)}.
+     * @param terms     The {@link Term}s to identify the documents to be deleted.
+     * @param documents The {@link Document}s to be added, indexed by their identifying {@link Term}s.
+     * @return The index generation containing the changes.
      * @throws IOException If Lucene throws IO errors.
      */
-    public void upsert(Map<Term, Document> documents) throws IOException {
-        for (Map.Entry<Term, Document> entry : documents.entrySet()) {
-            upsert(entry.getKey(), entry.getValue());
+    public long update(int shard, Collection<Term> terms, Map<Term, Document> documents) throws IOException {
+        logger.debug("{} update deleting {} terms and adding {} documents", name, terms.size(), documents.size());
+        Lock lock = updateLocks[shard].readLock();
+        lock.lock();
+        try {
+            IndexWriter indexWriter = indexWriters[shard];
+            if (!terms.isEmpty()) {
+                indexWriter.deleteDocuments(terms.toArray(new Term[terms.size()]));
+            }
+            if (!documents.isEmpty()) {
+                try {
+                    indexWriter.addDocuments(documents.values());
+                } catch (AlreadyClosedException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    logger.warn("{} grouped addition of {} documents failed, adding them one by one",
+                                name, documents.size(), e);
+                    for (Map.Entry<Term, Document> entry : documents.entrySet()) {
+                        try {
+                            indexWriter.updateDocument(entry.getKey(), entry.getValue());
+                        } catch (AlreadyClosedException ex) {
+                            throw ex;
+                        } catch (RuntimeException ex) {
+                            logger.error("{} error adding document with term {}", name, entry.getKey(), ex);
+                        }
+                    }
+                }
+            }
+            return trackingIndexWriter.getGeneration();
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
      * Deletes all the {@link Document}s containing the specified {@link Term}.
      *
-     * @param term The {@link Term} to identify the documents to be deleted.
+     * @param shard The shard containing the documents, as returned by {@link #shard(DecoratedKey)}.
+     * @param term  The {@link Term} to identify the documents to be deleted.
+     * @return The index generation containing the change.
      * @throws IOException If Lucene throws IO errors.
      */
-    public void delete(Term term) throws IOException {
+    public long delete(int shard, Term term) throws IOException {
         logger.debug("{} delete by term {}", name, term);
-        indexWriter.deleteDocuments(term);
+        indexWriters[shard].deleteDocuments(term);
+        return trackingIndexWriter.getGeneration();
     }
 
     /**
      * Deletes all the {@link Document}s satisfying the specified {@link Query}.
      *
+     * @param shard The shard containing the documents, as returned by {@link #shard(DecoratedKey)}.
      * @param query The {@link Query} to identify the documents to be deleted.
+     * @return The index generation containing the change.
      * @throws IOException If Lucene throws IO errors.
      */
-    public void delete(Query query) throws IOException {
+    public long delete(int shard, Query query) throws IOException {
         logger.debug("{} deleting by query {}", name, query);
-        indexWriter.deleteDocuments(query);
+        indexWriters[shard].deleteDocuments(query);
+        return trackingIndexWriter.getGeneration();
     }
 
     /**
      * Deletes all the {@link Document}s.
      *
+     * @return The index generation containing the change.
      * @throws IOException If Lucene throws IO errors.
      */
-    public void truncate() throws IOException {
-        indexWriter.deleteAll();
+    public long truncate() throws IOException {
+        for (IndexWriter indexWriter : indexWriters) {
+            indexWriter.deleteAll();
+        }
         logger.info("{} truncated", name);
+        return trackingIndexWriter.getGeneration();
+    }
+
+    /**
+     * Replaces all the {@link Document}s with the ones contained in the indexes stored in the specified paths. The
+     * replacement of each shard is atomic as seen by a reader on the same index.
+     *
+     * @param paths The paths of the indexes containing the new {@link Document}s of each shard.
+     * @return The index generation containing the change.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public long replace(List<List<Path>> paths) throws IOException {
+        List<Directory> openedDirectories = new ArrayList<>();
+        try {
+            for (int shard = 0; shard < indexWriters.length; shard++) {
+                List<Path> shardPaths = paths.get(shard);
+                Directory[] shardDirectories = new Directory[shardPaths.size()];
+                for (int i = 0; i < shardDirectories.length; i++) {
+                    shardDirectories[i] = FSDirectory.open(shardPaths.get(i));
+                    openedDirectories.add(shardDirectories[i]);
+                }
+                Lock lock = updateLocks[shard].readLock();
+                lock.lock();
+                try {
+                    indexWriters[shard].deleteAll();
+                    indexWriters[shard].addIndexes(shardDirectories);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            logger.info("{} replaced with {} indexes", name, openedDirectories.size());
+            return trackingIndexWriter.getGeneration();
+        } finally {
+            for (Directory directory : openedDirectories) {
+                directory.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the current index generation, which contains all the already applied index changes.
+     *
+     * @return The current index generation.
+     */
+    public long getGeneration() {
+        return trackingIndexWriter.getGeneration();
+    }
+
+    /**
+     * Waits until the searchers returned by {@link #getSearcherManager()} view the specified index generation. The
+     * readers are reopened in at most {@link #MIN_REFRESH_SECONDS} when there is someone waiting.
+     *
+     * @param generation An index generation returned by a write operation or by {@link #getGeneration()}.
+     */
+    public void waitForGeneration(long generation) {
+        try {
+            searcherReopener.waitForGeneration(generation);
+        } catch (InterruptedException e) {
+            throw new IndexException(e, "Interrupted while waiting for index generation %d", generation);
+        }
+    }
+
+    /**
+     * Waits until the searchers returned by {@link #getSearcherManager()} view all the index changes applied before
+     * the specified number of milliseconds ago.
+     *
+     * @param maxStalenessMs The max age in milliseconds of the index changes not visible to the searchers.
+     */
+    public void waitForStaleness(long maxStalenessMs) {
+        if (System.currentTimeMillis() - searcherTime > maxStalenessMs) {
+            waitForGeneration(getGeneration());
+        }
     }
 
     /**
@@ -181,20 +513,120 @@ public class LuceneIndex implements LuceneIndexMBean {
      */
     @Override
     public void commit() throws IOException {
-        indexWriter.commit();
+        long writtenBytes = getWrittenBytes();
+        for (IndexWriter indexWriter : indexWriters) {
+            indexWriter.commit();
+        }
+        committedBytes = writtenBytes;
         logger.info("{} committed", name);
     }
 
+    /**
+     * Commits the pending changes, recording in the commit user data the specified commitlog position. All the writes
+     * before that position must have been already applied.
+     *
+     * @param position The commitlog position covered by the commit.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void commit(ReplayPosition position) throws IOException {
+        String value = position.segment + ":" + position.position;
+        for (IndexWriter indexWriter : indexWriters) {
+            indexWriter.setCommitData(Collections.singletonMap(REPLAY_POSITION_KEY, value));
+        }
+        commit();
+    }
+
+    /**
+     * Returns the commitlog position covered by the last commit that has recorded it. If the index is sharded, this is
+     * the oldest position covered by the last commit of any shard.
+     *
+     * @return The commitlog position covered by the last commit, or {@code null} if there is no such commit.
+     */
+    public ReplayPosition getCommittedPosition() {
+        ReplayPosition committedPosition = null;
+        for (IndexWriter indexWriter : indexWriters) {
+            String value = indexWriter.getCommitData().get(REPLAY_POSITION_KEY);
+            if (value == null) {
+                return null;
+            }
+            String[] parts = value.split(":");
+            ReplayPosition position = new ReplayPosition(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+            if (committedPosition == null || position.compareTo(committedPosition) < 0) {
+                committedPosition = position;
+            }
+        }
+        return committedPosition;
+    }
+
+    /**
+     * Returns the number of bytes written to the directories of all the shards.
+     *
+     * @return The number of written bytes.
+     */
+    private long getWrittenBytes() {
+        long writtenBytes = 0;
+        for (CountingDirectory directory : directories) {
+            writtenBytes += directory.getWrittenBytes();
+        }
+        return writtenBytes;
+    }
+
+    /**
+     * Returns if any of the shards has uncommitted changes.
+     *
+     * @return {@code true} if there are uncommitted changes, {@code false} otherwise.
+     */
+    private boolean hasUncommittedChanges() {
+        for (IndexWriter indexWriter : indexWriters) {
+            if (indexWriter.hasUncommittedChanges()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Commits the pending changes if there are any and at least the specified number of bytes have been written to
+     * the index directory since the last commit.
+     *
+     * @param minBytes The min number of bytes written since the last commit.
+     */
+    private void maybeCommit(long minBytes) {
+        try {
+            if (hasUncommittedChanges() && getWrittenBytes() - committedBytes >= minBytes) {
+                commit();
+            }
+        } catch (Exception e) {
+            logger.error("Error while committing " + name, e);
+        }
+    }
+
     /**
      * Commits all changes to the index, waits for pending merges to complete, and closes all associated resources.
      *
      * @throws IOException If Lucene throws IO errors.
      */
     public void close() throws IOException {
+        if (commitScheduler != null) {
+            commitScheduler.shutdownNow();
+        }
         searcherReopener.interrupt();
+        if (searchExecutor != null) {
+            searchExecutor.shutdown();
+            try {
+                if (!searchExecutor.awaitTermination(SEARCH_DRAIN_SECONDS, TimeUnit.SECONDS)) {
+                    logger.warn("{} closed with pending search tasks", name);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IndexException(e, "Interrupted while waiting for the searches of %s", name);
+            }
+        }
         searcherManager.close();
-        indexWriter.close();
-        directory.close();
+        for (int i = 0; i < indexWriters.length; i++) {
+            indexWriters[i].close();
+            directories[i].close();
+        }
         try {
             ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
         } catch (MBeanException | OperationsException e) {
@@ -214,10 +646,150 @@ public class LuceneIndex implements LuceneIndexMBean {
         logger.info("{} removed", name);
     }
 
-    public SearcherManager getSearcherManager() {
+    /**
+     * Sets the parallel builder of this index, to be used by {@link #rebuild()}.
+     *
+     * @param builder The parallel builder of this index, {@code null} means that the index is built by Cassandra.
+     */
+    void setBuilder(IndexBuilder builder) {
+        this.builder = builder;
+    }
+
+    public ReferenceManager<IndexSearcher> getSearcherManager() {
         return searcherManager;
     }
 
+    /**
+     * Returns an {@link IndexSearcher} over the shards intersecting the specified partition key range, which must be
+     * released with {@link #releaseSearcher(IndexSearcher)}.
+     *
+     * @param keyRange The partition key range to be searched.
+     * @return An {@link IndexSearcher} over the shards containing {@code keyRange}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public IndexSearcher acquireSearcher(AbstractBounds<RowPosition> keyRange) throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        if (shardBounds == null) {
+            return searcher;
+        }
+        int first = shard(keyRange.left.getToken());
+        int last = keyRange.right.isMinimum() ? indexWriters.length - 1 : shard(keyRange.right.getToken());
+        if (last < first || last - first == indexWriters.length - 1) {
+            return searcher;
+        }
+        try {
+            List<Integer> shards = new ArrayList<>(last - first + 1);
+            for (int shard = first; shard <= last; shard++) {
+                shards.add(shard);
+            }
+            return searcherManager.prune(searcher, shards);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Releases the specified {@link IndexSearcher}, which must have been acquired with {@link
+     * #acquireSearcher(AbstractBounds)}.
+     *
+     * @param searcher The {@link IndexSearcher} to be released.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void releaseSearcher(IndexSearcher searcher) throws IOException {
+        searcherManager.releasePruned(searcher);
+    }
+
+    /**
+     * Returns the number of shards of this index.
+     *
+     * @return The number of shards.
+     */
+    public int getNumShards() {
+        return indexWriters.length;
+    }
+
+    /**
+     * Returns the token range of each shard of this index.
+     *
+     * @return The token range of each shard, in token order, or {@code null} if the index is not sharded.
+     */
+    public List<Range<Token>> getShardRanges() {
+        return shardRanges;
+    }
+
+    /**
+     * Returns the sort of the merged index segments, which allows early termination of searches sorted by token.
+     *
+     * @return The sort of the merged segments, or {@code null} if the segments are not sorted.
+     */
+    Sort getIndexSort() {
+        return indexSort;
+    }
+
+    /**
+     * Returns the shard containing the specified {@link Token}.
+     *
+     * @param token A {@link Token}.
+     * @return The shard containing {@code token}.
+     */
+    public int shard(Token token) {
+        if (shardBounds == null) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(shardBounds, token);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Returns the shard containing the specified partition key.
+     *
+     * @param partitionKey A partition key.
+     * @return The shard containing {@code partitionKey}.
+     */
+    public int shard(DecoratedKey partitionKey) {
+        return shard(partitionKey.getToken());
+    }
+
+    /**
+     * Groups the specified index segments in the {@link IndexSearcher.LeafSlice}s to be collected by the same search
+     * thread, according to the configured max number of documents and segments per slice. Each slice contains
+     * consecutive segments of the same shard, so the merged hits keep the document order for ties, which is needed for
+     * paging.
+     *
+     * @param leaves The index segments, in document order.
+     * @return The search slices, in document order.
+     */
+    private IndexSearcher.LeafSlice[] searchSlices(List<LeafReaderContext> leaves) {
+        List<IndexSearcher.LeafSlice> slices = new ArrayList<>();
+        List<LeafReaderContext> sliceLeaves = new ArrayList<>();
+        int sliceDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            int leafDocs = leaf.reader().maxDoc();
+            if (!sliceLeaves.isEmpty() && (sliceLeaves.get(0).parent != leaf.parent
+                                           || sliceLeaves.size() >= searchSliceSegments
+                                           || sliceDocs + leafDocs > searchSliceDocs)) {
+                slices.add(new IndexSearcher.LeafSlice(sliceLeaves.toArray(new LeafReaderContext[sliceLeaves.size()])));
+                sliceLeaves.clear();
+                sliceDocs = 0;
+            }
+            sliceLeaves.add(leaf);
+            sliceDocs += leafDocs;
+        }
+        if (!sliceLeaves.isEmpty()) {
+            slices.add(new IndexSearcher.LeafSlice(sliceLeaves.toArray(new LeafReaderContext[sliceLeaves.size()])));
+        }
+        return slices.toArray(new IndexSearcher.LeafSlice[slices.size()]);
+    }
+
+    /**
+     * Returns the {@link SearchCache} of this index.
+     *
+     * @return The {@link SearchCache} of this index, {@code null} if search caching is disabled.
+     */
+    public SearchCache getSearchCache() {
+        return searchCache;
+    }
+
     /**
      * Finds the top {@code count} hits for {@code query}, applying {@code clusteringKeyFilter} if non-null and sorting
      * the hits by {@code sort}.
@@ -239,8 +811,7 @@ public class LuceneIndex implements LuceneIndexMBean {
                                           Set<String> fields) throws IOException {
 
         // Search for top documents
-        TopDocs topDocs = searcher.searchAfter(after, query, count, sort);
-        ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+        ScoreDoc[] scoreDocs = search(searcher, query, sort, after, count);
 
         // Collect the documents from query result
         LinkedHashMap<Document, ScoreDoc> searchResults = new LinkedHashMap<>();
@@ -252,6 +823,61 @@ public class LuceneIndex implements LuceneIndexMBean {
         return searchResults;
     }
 
+    /**
+     * Finds the top {@code count} hits for {@code query} sorting the hits by {@code sort}, without loading any stored
+     * field.
+     *
+     * @param searcher The {@link IndexSearcher} to be used.
+     * @param query    The {@link Query} to search for.
+     * @param sort     The {@link Sort} to be applied.
+     * @param after    The starting {@link ScoreDoc}.
+     * @param count    The max number of results to be collected.
+     * @return The found hits, sorted according to the supplied {@link Sort} instance.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public ScoreDoc[] search(IndexSearcher searcher, Query query, Sort sort, ScoreDoc after, int count)
+    throws IOException {
+        if (indexSort != null && sort.getSort()[0].equals(indexSort.getSort()[0])) {
+            return searchSorted(searcher, query, sort, (FieldDoc) after, count);
+        }
+        TopDocs topDocs = searcher.searchAfter(after, query, count, sort);
+        return topDocs.scoreDocs;
+    }
+
+    /**
+     * Finds the top {@code count} hits for {@code query} sorting the hits by {@code sort}, which must start with the
+     * index sort, terminating the collection of each sorted segment as soon as it has provided enough hits.
+     *
+     * @param searcher The {@link IndexSearcher} to be used.
+     * @param query    The {@link Query} to search for.
+     * @param sort     The {@link Sort} to be applied, starting with the index sort.
+     * @param after    The starting {@link FieldDoc}.
+     * @param count    The max number of results to be collected.
+     * @return The found hits, sorted according to the supplied {@link Sort} instance.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    private ScoreDoc[] searchSorted(IndexSearcher searcher, Query query, Sort sort, FieldDoc after, int count)
+    throws IOException {
+        int numHits = Math.min(count, Math.max(1, searcher.getIndexReader().maxDoc()));
+        TopFieldCollector collector = TopFieldCollector.create(sort, numHits, after, true, false, false);
+        Long afterToken = after == null ? null : (Long) after.fields[0];
+        String field = indexSort.getSort()[0].getField();
+        searcher.search(query, new EarlyTerminatingCollector(collector, field, indexSort, numHits, afterToken));
+        return collector.topDocs().scoreDocs;
+    }
+
+    /**
+     * Counts the hits for {@code query}, also returning its first hit in index order.
+     *
+     * @param searcher The {@link IndexSearcher} to be used.
+     * @param query    The {@link Query} to search for.
+     * @return The total number of hits and the first hit, if any.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public TopDocs count(IndexSearcher searcher, Query query) throws IOException {
+        return searcher.search(query, 1, Sort.INDEXORDER);
+    }
+
     /**
      * Returns the total number of {@link Document}s in this index.
      *
@@ -297,8 +923,10 @@ public class LuceneIndex implements LuceneIndexMBean {
     @Override
     public void forceMerge(int maxNumSegments, boolean doWait) throws IOException {
         logger.info("{} merging index segments to {}", name, maxNumSegments);
-        indexWriter.forceMerge(maxNumSegments, doWait);
-        indexWriter.commit();
+        for (IndexWriter indexWriter : indexWriters) {
+            indexWriter.forceMerge(maxNumSegments, doWait);
+            indexWriter.commit();
+        }
         logger.info("{} segments merge completed", name);
     }
 
@@ -312,18 +940,82 @@ public class LuceneIndex implements LuceneIndexMBean {
     @Override
     public void forceMergeDeletes(boolean doWait) throws IOException {
         logger.info("{} merging index segments with deletions", name);
-        indexWriter.forceMergeDeletes(doWait);
-        indexWriter.commit();
+        for (IndexWriter indexWriter : indexWriters) {
+            indexWriter.forceMergeDeletes(doWait);
+            indexWriter.commit();
+        }
         logger.info("{} merging index segments with deletions completed", name);
     }
 
     /**
-     * Refreshes the index readers.
+     * Refreshes the index readers, making visible the applied changes without committing them.
      */
     @Override
     public void refresh() throws IOException {
         logger.info("{} refreshing readers", name);
-        commit();
         searcherManager.maybeRefreshBlocking();
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public void rebuild() throws IOException {
+        if (builder == null) {
+            throw new IndexException("Parallel build is disabled in %s", name);
+        }
+        builder.build();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isBuilding() {
+        return builder != null && builder.isBuilding();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getBuiltPartitions() {
+        return builder == null ? 0 : builder.getBuiltPartitions();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getBuildProgress() {
+        return builder == null ? 0 : builder.getProgress();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getBuildPartitionsPerSecond() {
+        return builder == null ? 0 : builder.getPartitionsPerSecond();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getSearchTasks() {
+        return searchExecutor == null ? 0 : searchExecutor.getTasks();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getSearchTaskWaitMillis() {
+        return searchExecutor == null ? 0 : searchExecutor.getMeanWaitMillis();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getSearchCacheHits() {
+        return searchCache == null ? 0 : searchCache.getHits();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getSearchCacheMisses() {
+        return searchCache == null ? 0 : searchCache.getMisses();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return name;
+    }
 }
@@ -68,9 +68,74 @@ public interface LuceneIndexMBean {
     void forceMergeDeletes(boolean doWait) throws IOException;
 
     /**
-     * Refreshes the index readers.
+     * Refreshes the index readers, making visible the pending changes without committing them.
      *
      * @throws IOException If Lucene throws IO errors.
      */
     void refresh() throws IOException;
+
+    /**
+     * Rebuilds the whole index from the data stored in the indexed table, scanning token ring slices in parallel. This
+     * operation blocks until the build completes.
+     *
+     * @throws IOException If Lucene throws IO errors.
+     */
+    void rebuild() throws IOException;
+
+    /**
+     * Returns if there is a running parallel build of the index.
+     *
+     * @return {@code true} if the index is being built, {@code false} otherwise.
+     */
+    boolean isBuilding();
+
+    /**
+     * Returns the number of partitions already indexed by the current or last parallel build.
+     *
+     * @return The number of built partitions.
+     */
+    long getBuiltPartitions();
+
+    /**
+     * Returns the percentage of the estimated number of partitions already indexed by the current or last parallel
+     * build.
+     *
+     * @return The build progress, between {@code 0} and {@code 100}.
+     */
+    double getBuildProgress();
+
+    /**
+     * Returns the mean number of partitions indexed per second by the current or last parallel build.
+     *
+     * @return The build throughput in partitions per second.
+     */
+    double getBuildPartitionsPerSecond();
+
+    /**
+     * Returns the number of index segment slices collected by the parallel search threads.
+     *
+     * @return The number of parallel search tasks.
+     */
+    long getSearchTasks();
+
+    /**
+     * Returns the mean time in milliseconds spent by the index segment slices waiting for a parallel search thread.
+     *
+     * @return The mean parallel search task wait time in milliseconds.
+     */
+    double getSearchTaskWaitMillis();
+
+    /**
+     * Returns the number of searches whose results have been found in the search cache.
+     *
+     * @return The number of search cache hits.
+     */
+    long getSearchCacheHits();
+
+    /**
+     * Returns the number of searches whose results have not been found in the search cache.
+     *
+     * @return The number of search cache misses.
+     */
+    long getSearchCacheMisses();
 }
@@ -28,15 +28,20 @@ import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.dht.IPartitioner;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.List;
 
@@ -101,6 +106,7 @@ public final class PartitionKeyMapper {
         BytesRef bytesRef = ByteBufferUtils.bytesRef(bb);
         Field field = new StringField(FIELD_NAME, bytesRef, Store.YES);
         document.add(field);
+        document.add(new BinaryDocValuesField(FIELD_NAME, bytesRef));
     }
 
     /**
@@ -137,6 +143,49 @@ public final class PartitionKeyMapper {
         return partitionKey(bb);
     }
 
+    /**
+     * Returns the partition key doc values of the specified segment reader, to be reused for all its documents with
+     * {@link #partitionKey(BinaryDocValues, Bits, int)}.
+     *
+     * @param reader A Lucene segment reader.
+     * @return The partition key doc values of {@code reader}, or {@code null} if it has no such doc values.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public BinaryDocValues docValues(LeafReader reader) throws IOException {
+        return reader.getBinaryDocValues(FIELD_NAME);
+    }
+
+    /**
+     * Returns the documents of the specified segment reader having partition key doc values, to be reused for all its
+     * documents with {@link #partitionKey(BinaryDocValues, Bits, int)}.
+     *
+     * @param reader A Lucene segment reader.
+     * @return The documents of {@code reader} having partition key doc values, maybe {@code null}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public Bits docsWithField(LeafReader reader) throws IOException {
+        return reader.getDocsWithField(FIELD_NAME);
+    }
+
+    /**
+     * Returns the {@link DecoratedKey} stored in the specified segment doc values for the specified document, or
+     * {@code null} if the document has no partition key doc values, as it happens with documents indexed by older
+     * versions.
+     *
+     * @param docValues     The partition key doc values of a segment, as returned by {@link #docValues(LeafReader)}.
+     * @param docsWithField The segment documents having doc values, as returned by {@link #docsWithField(LeafReader)}.
+     * @param doc           A document identifier relative to the segment.
+     * @return The {@link DecoratedKey} contained in the doc values of the specified document, maybe {@code null}.
+     */
+    public DecoratedKey partitionKey(BinaryDocValues docValues, Bits docsWithField, int doc) {
+        if (docValues == null || docsWithField == null || !docsWithField.get(doc)) {
+            return null;
+        }
+        BytesRef bytesRef = BytesRef.deepCopyOf(docValues.get(doc));
+        ByteBuffer bb = ByteBufferUtils.byteBuffer(bytesRef);
+        return partitionKey(bb);
+    }
+
     /**
      * Returns the specified raw partition key as a a {@link DecoratedKey}.
      *
@@ -153,6 +153,35 @@ public final class RegularCellsMapper {
         return columns;
     }
 
+    /**
+     * Returns if the specified {@link ColumnFamily} contains any CQL3 row marker or any cell of a mapped column. Cells
+     * are not required to be live, so deletions of mapped columns are taken into account.
+     *
+     * @param columnFamily A {@link ColumnFamily}.
+     * @return {@code true} if {@code columnFamily} contains any row marker or mapped cell, {@code false} otherwise.
+     */
+    public boolean maps(ColumnFamily columnFamily) {
+        for (Cell cell : columnFamily) {
+            String name = cell.name().cql3ColumnName(metadata).toString();
+            if (name.length() == 0 || schema.maps(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a copy of the specified cell value which can be read without affecting the cell. Heap values are not
+     * modified once written, so they are shared without copying their contents. Off-heap values can be released with
+     * their memtable, so they are copied.
+     *
+     * @param value A cell value.
+     * @return A readable copy of {@code value}.
+     */
+    private static ByteBuffer slice(ByteBuffer value) {
+        return value.isDirect() ? ByteBufferUtil.clone(value) : value.duplicate();
+    }
+
     /**
      * Returns the columns contained in the regular cells specified row. Note that not all the contained columns are
      * returned, but only the regular cell ones.
@@ -183,14 +212,14 @@ public final class RegularCellsMapper {
             }
 
             AbstractType<?> valueType = columnDefinition.type;
-            ByteBuffer value = ByteBufferUtil.clone(cell.value());
+            ByteBuffer value = slice(cell.value());
 
             if ((valueType.isCollection()) && (!valueType.isFrozenCollection())) {
                 CollectionType<?> collectionType = (CollectionType<?>) valueType;
                 switch (collectionType.kind) {
                     case SET: {
                         AbstractType<?> type = collectionType.nameComparator();
-                        value = ByteBufferUtil.clone(cell.name().collectionElement());
+                        value = slice(cell.name().collectionElement());
                         columns.add(process(Column.builder(name), type, value, true));
                         break;
                     }
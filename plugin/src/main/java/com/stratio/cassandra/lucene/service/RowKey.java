@@ -22,6 +22,8 @@ import com.google.common.base.Objects;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.composites.CellName;
 
+import java.util.Arrays;
+
 /**
  * Class representing the primary key of a logical CQL row.
  *
@@ -35,6 +37,9 @@ public class RowKey {
     /** The clustering key. */
     private final CellName clusteringKey;
 
+    /** The Lucene sort values of the row, maybe {@code null} if they are unknown. */
+    private final Object[] sortValues;
+
     /**
      * Builds a new row key.
      *
@@ -42,8 +47,21 @@ public class RowKey {
      * @param clusteringKey The clustering key.
      */
     public RowKey(DecoratedKey partitionKey, CellName clusteringKey) {
+        this(partitionKey, clusteringKey, null);
+    }
+
+    /**
+     * Builds a new row key with the Lucene sort values of the row, so a search can be resumed after it without looking
+     * for its document.
+     *
+     * @param partitionKey  The partition key.
+     * @param clusteringKey The clustering key.
+     * @param sortValues    The Lucene sort values of the row, maybe {@code null} if they are unknown.
+     */
+    public RowKey(DecoratedKey partitionKey, CellName clusteringKey, Object[] sortValues) {
         this.partitionKey = partitionKey;
         this.clusteringKey = clusteringKey;
+        this.sortValues = sortValues;
     }
 
     /**
@@ -64,12 +82,43 @@ public class RowKey {
         return clusteringKey;
     }
 
+    /**
+     * Returns the Lucene sort values of the row.
+     *
+     * @return The Lucene sort values of the row, maybe {@code null} if they are unknown.
+     */
+    public Object[] getSortValues() {
+        return sortValues;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RowKey other = (RowKey) o;
+        return Objects.equal(partitionKey, other.partitionKey)
+               && Objects.equal(clusteringKey, other.clusteringKey)
+               && Arrays.equals(sortValues, other.sortValues);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(partitionKey, clusteringKey, Arrays.hashCode(sortValues));
+    }
+
     /** {@inheritDoc} */
     @Override
     public String toString() {
         return Objects.toStringHelper(this)
                       .add("partitionKey", partitionKey)
                       .add("clusteringKey", clusteringKey)
+                      .add("sortValues", sortValues == null ? null : Arrays.toString(sortValues))
                       .toString();
     }
 }
@@ -20,25 +20,35 @@ package com.stratio.cassandra.lucene.service;
 
 import com.google.common.collect.Ordering;
 import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.IndexException;
 import com.stratio.cassandra.lucene.schema.Schema;
 import com.stratio.cassandra.lucene.schema.column.Columns;
+import com.stratio.cassandra.lucene.schema.mapping.SingleColumnMapper;
 import com.stratio.cassandra.lucene.search.Search;
 import com.stratio.cassandra.lucene.util.ByteBufferUtils;
+import com.stratio.cassandra.lucene.util.SortValuesSerializer;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.ColumnDefinition;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.filter.IDiskAtomFilter;
 import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.utils.Pair;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FieldComparator;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
 
 /**
  * Class for several {@link Row} mappings between Cassandra and Lucene data models.
@@ -47,6 +57,9 @@ import java.util.List;
  */
 public abstract class RowMapper {
 
+    /** The format version of the serialized sort values carried next to the paging cursors. */
+    static final byte SORT_VALUES_VERSION = 1;
+
     /** The indexed table metadata. */
     final CFMetaData metadata;
 
@@ -108,6 +121,17 @@ public abstract class RowMapper {
         return columns(row.key, row.cf);
     }
 
+    /**
+     * Returns if the specified {@link ColumnFamily} contains any cell which is relevant for the index, that is, a CQL3
+     * row marker or a cell of a mapped column.
+     *
+     * @param columnFamily A {@link ColumnFamily}.
+     * @return {@code true} if {@code columnFamily} contains any cell relevant for the index, {@code false} otherwise.
+     */
+    public final boolean maps(ColumnFamily columnFamily) {
+        return regularCellsMapper.maps(columnFamily);
+    }
+
     /**
      * Returns the decorated partition key representing the specified raw partition key.
      *
@@ -159,6 +183,14 @@ public abstract class RowMapper {
      */
     public abstract CellName makeCellName(ColumnFamily columnFamily);
 
+    /**
+     * Returns a {@link CellName} for the indexed column in the row identified by the specified {@link RowKey}.
+     *
+     * @param rowKey A {@link RowKey}.
+     * @return A {@link CellName} for the indexed column in the row identified by {@code rowKey}.
+     */
+    protected abstract CellName makeCellName(RowKey rowKey);
+
     /**
      * Returns a {@link Row} {@link Comparator} using the same order that is used in Cassandra.
      *
@@ -166,6 +198,13 @@ public abstract class RowMapper {
      */
     protected abstract Comparator<Row> comparator();
 
+    /**
+     * Returns a {@link RowKey} {@link Comparator} using the same order that is used in Cassandra.
+     *
+     * @return A {@link RowKey} {@link Comparator} using the same order that is used in Cassandra.
+     */
+    protected abstract Comparator<RowKey> rowKeyComparator();
+
     /**
      * Returns the {@link Comparator} to be used for ordering the {@link Row}s obtained from the specified {@link
      * Search}. This {@link Comparator} is useful for merging the partial results obtained from running the specified
@@ -202,6 +241,92 @@ public abstract class RowMapper {
         return Ordering.compound(comparators);
     }
 
+    /**
+     * Returns the specified {@link Row}s sorted according to the specified {@link Search}, without duplicates. This
+     * has the same result as using {@link #comparator(Search)}, but the sort key of each {@link Row} is extracted only
+     * once, instead of decoding the {@link Row} columns and score on each comparison.
+     *
+     * @param rows   The {@link Row}s to be sorted.
+     * @param search The {@link Search} that found {@code rows}.
+     * @return The sorted {@link Row}s without duplicates.
+     */
+    public List<Row> sort(Collection<Row> rows, Search search) {
+
+        // Get the sort fields and their mappers
+        final List<com.stratio.cassandra.lucene.search.sort.SortField> sortFields = new ArrayList<>();
+        List<SingleColumnMapper> mappers = new ArrayList<>();
+        if (search.usesSorting()) {
+            for (com.stratio.cassandra.lucene.search.sort.SortField sortField : search.getSort().getSortFields()) {
+                sortFields.add(sortField);
+                mappers.add(schema.getSingleColumnMapper(sortField.getField()));
+            }
+        }
+        boolean usesRelevance = search.usesRelevance();
+
+        // Decorate each row with its sort key
+        List<SortKey> keys = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            Comparable[] bases = new Comparable[sortFields.size()];
+            if (!sortFields.isEmpty()) {
+                Columns columns = columns(row);
+                for (int i = 0; i < bases.length; i++) {
+                    bases[i] = sortFields.get(i).base(mappers.get(i), columns);
+                }
+            }
+            Float score = usesRelevance ? score(row) : null;
+            keys.add(new SortKey(row, bases, score, rowKey(row)));
+        }
+
+        // Sort the keys
+        final Comparator<RowKey> rowKeyComparator = rowKeyComparator();
+        Comparator<SortKey> comparator = new Comparator<SortKey>() {
+            @Override
+            public int compare(SortKey key1, SortKey key2) {
+                for (int i = 0; i < key1.bases.length; i++) {
+                    int comp = sortFields.get(i).compare(key1.bases[i], key2.bases[i]);
+                    if (comp != 0) {
+                        return comp;
+                    }
+                }
+                if (key1.score != null) {
+                    int comp = key2.score.compareTo(key1.score);
+                    if (comp != 0) {
+                        return comp;
+                    }
+                }
+                return rowKeyComparator.compare(key1.rowKey, key2.rowKey);
+            }
+        };
+        Collections.sort(keys, comparator);
+
+        // Undecorate removing duplicates, keeping the first one
+        List<Row> sortedRows = new ArrayList<>(keys.size());
+        SortKey previous = null;
+        for (SortKey key : keys) {
+            if (previous == null || comparator.compare(previous, key) != 0) {
+                sortedRows.add(key.row);
+            }
+            previous = key;
+        }
+        return sortedRows;
+    }
+
+    /** The values used to sort a {@link Row}, extracted only once. */
+    private static final class SortKey {
+
+        private final Row row;
+        private final Comparable[] bases;
+        private final Float score;
+        private final RowKey rowKey;
+
+        private SortKey(Row row, Comparable[] bases, Float score, RowKey rowKey) {
+            this.row = row;
+            this.bases = bases;
+            this.score = score;
+            this.rowKey = rowKey;
+        }
+    }
+
     /**
      * Returns the {@link SearchResult} defined by the specified {@link Document} and {@link ScoreDoc}.
      *
@@ -211,6 +336,81 @@ public abstract class RowMapper {
      */
     public abstract SearchResult searchResult(Document document, ScoreDoc scoreDoc);
 
+    /**
+     * Returns the {@link LeafSearchResults} reading the primary key doc values of the specified segment reader. The doc
+     * values are got only once per segment, and reused for all its documents.
+     *
+     * @param reader A Lucene segment reader.
+     * @return The {@link LeafSearchResults} of {@code reader}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    protected abstract LeafSearchResults leafSearchResults(LeafReader reader) throws IOException;
+
+    /**
+     * Builder of the {@link SearchResult}s of the documents of a single index segment from their primary key doc
+     * values. It is not thread safe.
+     */
+    protected interface LeafSearchResults {
+
+        /**
+         * Returns the {@link SearchResult} defined by the primary key doc values of the specified document, or {@code
+         * null} if the document has not such doc values.
+         *
+         * @param doc      A document identifier relative to the segment.
+         * @param scoreDoc The {@link ScoreDoc} of the document.
+         * @return The {@link SearchResult} defined by the doc values of the specified document, maybe {@code null}.
+         */
+        SearchResult searchResult(int doc, ScoreDoc scoreDoc);
+    }
+
+    /**
+     * Returns the {@link SearchResult}s defined by the specified {@link ScoreDoc}s, in the same order. The primary keys
+     * are read from doc values, visiting each segment in document order. The stored fields are loaded only for those
+     * documents without doc values, which could have been indexed by an older version.
+     *
+     * @param searcher  The {@link IndexSearcher} used to find the {@link ScoreDoc}s.
+     * @param scoreDocs The found {@link ScoreDoc}s.
+     * @param fields    The names of the stored fields to be loaded if there are no doc values.
+     * @return The {@link SearchResult}s defined by the specified {@link ScoreDoc}s.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public List<SearchResult> searchResults(IndexSearcher searcher, final ScoreDoc[] scoreDocs, Set<String> fields)
+    throws IOException {
+
+        // Sort hits by document identifier
+        Integer[] positions = new Integer[scoreDocs.length];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            positions[i] = i;
+        }
+        Arrays.sort(positions, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i, Integer j) {
+                return Integer.compare(scoreDocs[i].doc, scoreDocs[j].doc);
+            }
+        });
+
+        // Read keys segment by segment
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        LeafReaderContext leaf = null;
+        LeafSearchResults leafSearchResults = null;
+        SearchResult[] searchResults = new SearchResult[scoreDocs.length];
+        for (int position : positions) {
+            ScoreDoc scoreDoc = scoreDocs[position];
+            int doc = scoreDoc.doc;
+            if (leaf == null || doc >= leaf.docBase + leaf.reader().maxDoc()) {
+                leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+                leafSearchResults = leafSearchResults(leaf.reader());
+            }
+            SearchResult searchResult = leafSearchResults.searchResult(doc - leaf.docBase, scoreDoc);
+            if (searchResult == null) {
+                Document document = searcher.doc(doc, fields);
+                searchResult = searchResult(document, scoreDoc);
+            }
+            searchResults[position] = searchResult;
+        }
+        return Arrays.asList(searchResults);
+    }
+
     /**
      * Returns the score of the specified {@link Row}.
      *
@@ -294,4 +494,349 @@ public abstract class RowMapper {
      */
     public abstract RowKey rowKey(Row row);
 
+    /**
+     * Returns the values that the {@link SortField}s returned by {@link #sortFields()} assign to the document of the
+     * specified {@link RowKey}.
+     *
+     * @param rowKey A {@link RowKey}.
+     * @return The primary key sort values of the document of {@code rowKey}.
+     */
+    protected abstract List<Object> sortValues(RowKey rowKey);
+
+    /**
+     * Returns a {@link RowKey} representing the specified {@link Row} found by the specified {@link Search}, including
+     * the Lucene sort values of the row when they can be known without reading the index. This happens when the search
+     * doesn't use field sorting, so its sort values are just the optional score and the primary key values.
+     *
+     * @param row    A {@link Row} found by {@code search}.
+     * @param search The {@link Search} that found {@code row}.
+     * @return A {@link RowKey} representing the specified {@link Row}, maybe with its sort values.
+     */
+    public RowKey cursor(Row row, Search search) {
+        RowKey rowKey = rowKey(row);
+        if (search.usesSorting()) {
+            return rowKey;
+        }
+        List<Object> sortValues = new ArrayList<>();
+        if (search.usesRelevance()) {
+            sortValues.add(score(row));
+        }
+        sortValues.addAll(sortValues(rowKey));
+        return new RowKey(rowKey.getPartitionKey(), rowKey.getClusteringKey(), sortValues.toArray());
+    }
+
+    /**
+     * Returns the versioned serialization of the Lucene sort values of the specified {@link RowKey}, to be sent next to
+     * its primary key, which keeps the format of {@link #byteBuffer(RowKey)}. It starts with {@link
+     * #SORT_VALUES_VERSION}, followed by the values serialized with {@link SortValuesSerializer}.
+     *
+     * @param rowKey A {@link RowKey}.
+     * @return The serialized sort values of {@code rowKey}, or {@code null} if it has no sort values.
+     */
+    public ByteBuffer sortValuesByteBuffer(RowKey rowKey) {
+        Object[] sortValues = rowKey.getSortValues();
+        if (sortValues == null) {
+            return null;
+        }
+        ByteBuffer values = SortValuesSerializer.serialize(sortValues);
+        ByteBuffer bb = ByteBuffer.allocate(1 + values.remaining());
+        bb.put(SORT_VALUES_VERSION);
+        bb.put(values);
+        bb.flip();
+        return bb;
+    }
+
+    /**
+     * Returns the specified {@link RowKey} with the sort values serialized with {@link
+     * #sortValuesByteBuffer(RowKey)}. Sort values with an unknown format version are ignored, so the search is resumed
+     * by looking for the document of the key.
+     *
+     * @param rowKey     A {@link RowKey} without sort values.
+     * @param sortValues The serialized sort values of {@code rowKey}, maybe {@code null}.
+     * @return The specified {@link RowKey} with its sort values, if they are known.
+     */
+    public RowKey withSortValues(RowKey rowKey, ByteBuffer sortValues) {
+        ByteBuffer bb = sortValuesBody(sortValues);
+        if (bb == null) {
+            return rowKey;
+        }
+        return new RowKey(rowKey.getPartitionKey(), rowKey.getClusteringKey(), SortValuesSerializer.deserialize(bb));
+    }
+
+    /**
+     * Returns the versioned serialization of the Lucene sort values of the specified {@link RowKeys}, to be stored in a
+     * paging state next to the primary keys serialized with {@link #byteBuffer(RowKeys)}. It starts with {@link
+     * #SORT_VALUES_VERSION} and the number of keys, followed by the length and the serialized sort values of each key.
+     * Keys without sort values have a negative length.
+     *
+     * @param rowKeys A {@link RowKeys}.
+     * @return The serialized sort values of {@code rowKeys}, or {@code null} if none of the keys has sort values.
+     */
+    public ByteBuffer sortValuesByteBuffer(RowKeys rowKeys) {
+        List<ByteBuffer> allValues = new ArrayList<>(rowKeys.size());
+        boolean hasValues = false;
+        int size = 5;
+        for (RowKey rowKey : rowKeys) {
+            Object[] sortValues = rowKey.getSortValues();
+            ByteBuffer values = sortValues == null ? null : SortValuesSerializer.serialize(sortValues);
+            hasValues |= values != null;
+            allValues.add(values);
+            size += 4 + (values == null ? 0 : values.remaining());
+        }
+        if (!hasValues) {
+            return null;
+        }
+        ByteBuffer bb = ByteBuffer.allocate(size);
+        bb.put(SORT_VALUES_VERSION);
+        bb.putInt(allValues.size());
+        for (ByteBuffer values : allValues) {
+            if (values == null) {
+                bb.putInt(-1);
+            } else {
+                bb.putInt(values.remaining());
+                bb.put(values);
+            }
+        }
+        bb.flip();
+        return bb;
+    }
+
+    /**
+     * Returns the specified {@link RowKeys} with the sort values serialized with {@link
+     * #sortValuesByteBuffer(RowKeys)}. Sort values with an unknown format version or not matching the keys are
+     * ignored, so the searches are resumed by looking for the documents of the keys.
+     *
+     * @param rowKeys    A {@link RowKeys} without sort values.
+     * @param sortValues The serialized sort values of {@code rowKeys}, maybe {@code null}.
+     * @return The specified {@link RowKeys} with their sort values, if they are known.
+     */
+    public RowKeys withSortValues(RowKeys rowKeys, ByteBuffer sortValues) {
+        ByteBuffer bb = sortValuesBody(sortValues);
+        if (bb == null || bb.remaining() < 4 || bb.getInt() != rowKeys.size()) {
+            return rowKeys;
+        }
+        RowKeys result = new RowKeys();
+        for (RowKey rowKey : rowKeys) {
+            int length = bb.getInt();
+            if (length < 0) {
+                result.add(rowKey);
+            } else {
+                ByteBuffer values = bb.slice();
+                values.limit(length);
+                bb.position(bb.position() + length);
+                Object[] keySortValues = SortValuesSerializer.deserialize(values);
+                result.add(new RowKey(rowKey.getPartitionKey(), rowKey.getClusteringKey(), keySortValues));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the contents following the format version of the specified serialized sort values.
+     *
+     * @param sortValues Sort values serialized with {@link #SORT_VALUES_VERSION}, maybe {@code null}.
+     * @return The serialized sort values without version, or {@code null} if there are no values in a known format.
+     */
+    private static ByteBuffer sortValuesBody(ByteBuffer sortValues) {
+        if (sortValues == null || !sortValues.hasRemaining()) {
+            return null;
+        }
+        ByteBuffer bb = sortValues.duplicate();
+        return bb.get() == SORT_VALUES_VERSION ? bb : null;
+    }
+
+    /**
+     * Returns the specified {@link Row} with the specified Lucene score in the indexed column.
+     *
+     * @param row       A {@link Row}.
+     * @param score     The Lucene score of {@code row}.
+     * @param timestamp The score column timestamp.
+     * @return The specified {@link Row} with the specified score.
+     */
+    public Row addScore(Row row, Float score, long timestamp) {
+        ColumnFamily cf = ArrayBackedSortedColumns.factory.create(metadata);
+        ByteBuffer cellValue = UTF8Type.instance.decompose(score.toString());
+        cf.addColumn(makeCellName(row.cf), cellValue, timestamp);
+        cf.addAll(row.cf);
+        return new Row(row.key, cf);
+    }
+
+    /**
+     * Returns a synthetic {@link Row} containing only the specified {@link RowKey}, with its Lucene sort values in the
+     * indexed column. These rows are used to ship the best keys of a search without reading the actual rows.
+     *
+     * @param rowKey    A {@link RowKey} with sort values.
+     * @param timestamp The sort values column timestamp.
+     * @return A synthetic {@link Row} representing {@code rowKey}.
+     * @see #keyRowKey(Row)
+     */
+    public Row keyRow(RowKey rowKey, long timestamp) {
+        ColumnFamily cf = ArrayBackedSortedColumns.factory.create(metadata);
+        ByteBuffer cellValue = SortValuesSerializer.serialize(rowKey.getSortValues());
+        cf.addColumn(makeCellName(rowKey), cellValue, timestamp);
+        return new Row(rowKey.getPartitionKey(), cf);
+    }
+
+    /**
+     * Returns the {@link RowKey}, including its sort values, contained in the specified synthetic {@link Row}.
+     *
+     * @param keyRow A synthetic {@link Row} generated with {@link #keyRow(RowKey, long)}.
+     * @return The {@link RowKey} contained in {@code keyRow}.
+     */
+    public RowKey keyRowKey(Row keyRow) {
+        RowKey rowKey = rowKey(keyRow);
+        Cell cell = keyRow.cf.getColumn(makeCellName(rowKey));
+        Object[] sortValues = SortValuesSerializer.deserialize(cell.value());
+        return new RowKey(rowKey.getPartitionKey(), rowKey.getClusteringKey(), sortValues);
+    }
+
+    /**
+     * Returns a synthetic {@link Row} containing the specified number of matching rows, keyed by the specified
+     * {@link RowKey}. These rows are used to ship the partial counts of each token range without reading any row.
+     *
+     * @param rowKey    The {@link RowKey} of any of the counted rows.
+     * @param count     The number of counted rows.
+     * @param timestamp The count column timestamp.
+     * @return A synthetic count {@link Row}.
+     * @see #count(Row)
+     */
+    public Row countRow(RowKey rowKey, long count, long timestamp) {
+        Object[] values = new Object[]{count};
+        return keyRow(new RowKey(rowKey.getPartitionKey(), rowKey.getClusteringKey(), values), timestamp);
+    }
+
+    /**
+     * Returns the number of rows contained in the specified synthetic count {@link Row}.
+     *
+     * @param countRow A synthetic {@link Row} generated with {@link #countRow(RowKey, long, long)}.
+     * @return The number of rows counted in {@code countRow}.
+     */
+    public long count(Row countRow) {
+        return (Long) keyRowKey(countRow).getSortValues()[0];
+    }
+
+    /**
+     * Returns the specified synthetic key {@link Row}s sorted by their Lucene sort values according to the specified
+     * {@link Sort}, without duplicates. This is useful for merging the best keys found by several indexes.
+     *
+     * @param keyRows A list of synthetic {@link Row}s generated with {@link #keyRow(RowKey, long)}.
+     * @param sort    The Lucene {@link Sort} used to find {@code keyRows}.
+     * @return The sorted key {@link Row}s.
+     */
+    public List<Row> sortKeyRows(List<Row> keyRows, Sort sort) {
+
+        // Decode sort values only once per row
+        Map<RowKey, Pair<Object[], Row>> decorated = new LinkedHashMap<>(keyRows.size());
+        for (Row keyRow : keyRows) {
+            RowKey rowKey = keyRowKey(keyRow);
+            RowKey key = new RowKey(rowKey.getPartitionKey(), rowKey.getClusteringKey());
+            decorated.put(key, Pair.create(rowKey.getSortValues(), keyRow));
+        }
+
+        final SortField[] sortFields = sort.getSort();
+        final FieldComparator<?>[] comparators = new FieldComparator<?>[sortFields.length];
+        for (int i = 0; i < sortFields.length; i++) {
+            try {
+                comparators[i] = sortFields[i].getComparator(1, i);
+            } catch (IOException e) {
+                throw new IndexException(e, "Error while building comparator for %s", sortFields[i]);
+            }
+        }
+        List<Pair<Object[], Row>> sorted = new ArrayList<>(decorated.values());
+        Collections.sort(sorted, new Comparator<Pair<Object[], Row>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public int compare(Pair<Object[], Row> o1, Pair<Object[], Row> o2) {
+                for (int i = 0; i < comparators.length; i++) {
+                    FieldComparator<Object> comparator = (FieldComparator<Object>) comparators[i];
+                    int comp = comparator.compareValues(o1.left[i], o2.left[i]);
+                    if (comp != 0) {
+                        return sortFields[i].getReverse() ? -comp : comp;
+                    }
+                }
+                return 0;
+            }
+        });
+
+        List<Row> rows = new ArrayList<>(sorted.size());
+        for (Pair<Object[], Row> pair : sorted) {
+            rows.add(pair.right);
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the {@link ReadCommand}s for reading the actual rows of the specified synthetic key {@link Row}s.
+     *
+     * @param keyRows   A list of synthetic {@link Row}s generated with {@link #keyRow(RowKey, long)}.
+     * @param timestamp The read timestamp.
+     * @param filter    The {@link IDiskAtomFilter} of the original query.
+     * @return The {@link ReadCommand}s for reading the rows of {@code keyRows}.
+     */
+    public List<ReadCommand> readCommands(List<Row> keyRows, long timestamp, IDiskAtomFilter filter) {
+        Map<DecoratedKey, List<CellName>> keys = new LinkedHashMap<>();
+        for (Row keyRow : keyRows) {
+            RowKey rowKey = rowKey(keyRow);
+            List<CellName> clusteringKeys = keys.get(rowKey.getPartitionKey());
+            if (clusteringKeys == null) {
+                clusteringKeys = new ArrayList<>();
+                keys.put(rowKey.getPartitionKey(), clusteringKeys);
+            }
+            clusteringKeys.add(rowKey.getClusteringKey());
+        }
+        List<ReadCommand> commands = new ArrayList<>(keys.size());
+        for (Map.Entry<DecoratedKey, List<CellName>> entry : keys.entrySet()) {
+            ByteBuffer key = entry.getKey().getKey();
+            IDiskAtomFilter partitionFilter = filter(entry.getValue(), filter);
+            commands.add(ReadCommand.create(metadata.ksName, key, metadata.cfName, timestamp, partitionFilter));
+        }
+        return commands;
+    }
+
+    /**
+     * Returns the {@link IDiskAtomFilter} for reading the specified clustering keys of a partition.
+     *
+     * @param clusteringKeys The clustering keys to be read.
+     * @param filter         The {@link IDiskAtomFilter} of the original query.
+     * @return The {@link IDiskAtomFilter} for reading {@code clusteringKeys}.
+     */
+    protected abstract IDiskAtomFilter filter(List<CellName> clusteringKeys, IDiskAtomFilter filter);
+
+    /**
+     * Returns the logical {@link Row}s contained in the specified partitions read from Cassandra, indexed by their
+     * {@link RowKey}s. Rows without live data are ignored.
+     *
+     * @param partitions The partitions read from Cassandra.
+     * @param timestamp  The operation time.
+     * @return The logical {@link Row}s contained in {@code partitions}.
+     */
+    protected abstract Map<RowKey, Row> rows(List<Row> partitions, long timestamp);
+
+    /**
+     * Returns the actual {@link Row}s of the specified synthetic key {@link Row}s, in the same order, taken from the
+     * specified partitions read from Cassandra. Rows that don't exist anymore are ignored.
+     *
+     * @param keyRows       A list of synthetic {@link Row}s generated with {@link #keyRow(RowKey, long)}.
+     * @param partitions    The partitions read with the {@link ReadCommand}s returned by {@link #readCommands(List,
+     *                      long, IDiskAtomFilter)}.
+     * @param scorePosition The position of the score in the sort values, {@code -1} if there is no score.
+     * @param timestamp     The operation time.
+     * @return The actual {@link Row}s of {@code keyRows}.
+     */
+    public List<Row> rows(List<Row> keyRows, List<Row> partitions, int scorePosition, long timestamp) {
+        Map<RowKey, Row> rowsByKey = rows(partitions, timestamp);
+        List<Row> rows = new ArrayList<>(keyRows.size());
+        for (Row keyRow : keyRows) {
+            RowKey rowKey = keyRowKey(keyRow);
+            Row row = rowsByKey.get(new RowKey(rowKey.getPartitionKey(), rowKey.getClusteringKey()));
+            if (row != null) {
+                if (scorePosition >= 0) {
+                    row = addScore(row, (Float) rowKey.getSortValues()[scorePosition], timestamp);
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
 }
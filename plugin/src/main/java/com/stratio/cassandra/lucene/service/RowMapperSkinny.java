@@ -19,6 +19,7 @@
 package com.stratio.cassandra.lucene.service;
 
 import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.schema.DocumentTemplate;
 import com.stratio.cassandra.lucene.schema.column.Columns;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.composites.CellName;
@@ -27,15 +28,21 @@ import org.apache.cassandra.db.filter.IDiskAtomFilter;
 import org.apache.cassandra.db.filter.SliceQueryFilter;
 import org.apache.cassandra.dht.Token;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.Bits;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * {@link RowMapper} for skinny rows.
@@ -71,10 +78,23 @@ public class RowMapperSkinny extends RowMapper {
      * @return A Lucene {@link Document} representing the specified logical CQL row
      */
     public Document document(DecoratedKey partitionKey, Columns columns) {
-        Document document = new Document();
+        return document(partitionKey, columns, null);
+    }
+
+    /**
+     * Returns a Lucene {@link Document} representing the logical CQL row represented by the specified partition key and
+     * {@link Columns}, reusing the fields of the specified {@link DocumentTemplate}.
+     *
+     * @param partitionKey The partition key of the logical CQL row.
+     * @param columns      The {@link Columns} of the logical CQL row.
+     * @param template     The {@link DocumentTemplate} containing the reusable fields, {@code null} means no reuse.
+     * @return A Lucene {@link Document} representing the specified logical CQL row
+     */
+    public Document document(DecoratedKey partitionKey, Columns columns, DocumentTemplate template) {
+        Document document = template == null ? new Document() : template.newDocument();
         tokenMapper.addFields(document, partitionKey);
         partitionKeyMapper.addFields(document, partitionKey);
-        schema.addFields(document, columns);
+        schema.addFields(document, columns, template);
         return document;
     }
 
@@ -121,12 +141,47 @@ public class RowMapperSkinny extends RowMapper {
         return metadata.comparator.makeCellName(columnDefinition.name.bytes);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected CellName makeCellName(RowKey rowKey) {
+        return metadata.comparator.makeCellName(columnDefinition.name.bytes);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected IDiskAtomFilter filter(List<CellName> clusteringKeys, IDiskAtomFilter filter) {
+        return filter;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Map<RowKey, Row> rows(List<Row> partitions, long timestamp) {
+        Map<RowKey, Row> rows = new HashMap<>(partitions.size());
+        for (Row row : partitions) {
+            if (row.cf != null && !row.cf.hasOnlyTombstones(timestamp)) {
+                rows.put(new RowKey(row.key, null), row);
+            }
+        }
+        return rows;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Comparator<Row> comparator() {
         return tokenMapper.comparator();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected Comparator<RowKey> rowKeyComparator() {
+        return new Comparator<RowKey>() {
+            @Override
+            public int compare(RowKey rowKey1, RowKey rowKey2) {
+                return rowKey1.getPartitionKey().getToken().compareTo(rowKey2.getPartitionKey().getToken());
+            }
+        };
+    }
+
     /** {@inheritDoc} */
     @Override
     public SearchResult searchResult(Document document, ScoreDoc scoreDoc) {
@@ -134,6 +189,20 @@ public class RowMapperSkinny extends RowMapper {
         return new SearchResult(partitionKey, null, scoreDoc);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected LeafSearchResults leafSearchResults(LeafReader reader) throws IOException {
+        final BinaryDocValues partitionKeys = partitionKeyMapper.docValues(reader);
+        final Bits docsWithPartitionKey = partitionKeyMapper.docsWithField(reader);
+        return new LeafSearchResults() {
+            @Override
+            public SearchResult searchResult(int doc, ScoreDoc scoreDoc) {
+                DecoratedKey partitionKey = partitionKeyMapper.partitionKey(partitionKeys, docsWithPartitionKey, doc);
+                return partitionKey == null ? null : new SearchResult(partitionKey, null, scoreDoc);
+            }
+        };
+    }
+
     /** {@inheritDoc} */
     @Override
     public ByteBuffer byteBuffer(RowKey rowKey) {
@@ -153,4 +222,10 @@ public class RowMapperSkinny extends RowMapper {
         DecoratedKey partitionKey = row.key;
         return new RowKey(partitionKey, null);
     }
+
+    /** {@inheritDoc} */
+    @Override
+    protected List<Object> sortValues(RowKey rowKey) {
+        return tokenMapper.sortValues(rowKey.getPartitionKey());
+    }
 }
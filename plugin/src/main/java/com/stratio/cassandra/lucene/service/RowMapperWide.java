@@ -20,18 +20,26 @@ package com.stratio.cassandra.lucene.service;
 
 import com.google.common.collect.Ordering;
 import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.schema.DocumentTemplate;
 import com.stratio.cassandra.lucene.schema.column.Columns;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.CellNameType;
 import org.apache.cassandra.db.composites.Composite;
 import org.apache.cassandra.db.filter.ColumnSlice;
+import org.apache.cassandra.db.filter.IDiskAtomFilter;
 import org.apache.cassandra.db.filter.SliceQueryFilter;
 import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
+import org.apache.lucene.util.Bits;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
 
@@ -82,12 +90,29 @@ public class RowMapperWide extends RowMapper {
      * @return A Lucene {@link Document} representing the specified logical CQL row
      */
     public Document document(DecoratedKey partitionKey, CellName clusteringKey, Columns columns) {
-        Document document = new Document();
+        return document(partitionKey, clusteringKey, columns, null);
+    }
+
+    /**
+     * Returns a Lucene {@link Document} representing the logical CQL row represented by the specified partition key,
+     * clustering key and {@link Columns}, reusing the fields of the specified {@link DocumentTemplate}.
+     *
+     * @param partitionKey  The partition key of the logical CQL row.
+     * @param clusteringKey The clustering key of the logical CQL row.
+     * @param columns       The {@link Columns} of the logical CQL row.
+     * @param template      The {@link DocumentTemplate} containing the reusable fields, {@code null} means no reuse.
+     * @return A Lucene {@link Document} representing the specified logical CQL row
+     */
+    public Document document(DecoratedKey partitionKey,
+                             CellName clusteringKey,
+                             Columns columns,
+                             DocumentTemplate template) {
+        Document document = template == null ? new Document() : template.newDocument();
         tokenMapper.addFields(document, partitionKey);
         partitionKeyMapper.addFields(document, partitionKey);
         clusteringKeyMapper.addFields(document, clusteringKey);
         fullKeyMapper.addFields(document, partitionKey, clusteringKey);
-        schema.addFields(document, columns);
+        schema.addFields(document, columns, template);
         return document;
     }
 
@@ -107,12 +132,64 @@ public class RowMapperWide extends RowMapper {
         return clusteringKeyMapper.makeCellName(clusteringKey, columnDefinition);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected CellName makeCellName(RowKey rowKey) {
+        return clusteringKeyMapper.makeCellName(rowKey.getClusteringKey(), columnDefinition);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected IDiskAtomFilter filter(List<CellName> clusteringKeys, IDiskAtomFilter filter) {
+        ColumnSlice[] slices = clusteringKeyMapper.columnSlices(clusteringKeys);
+
+        if (metadata.hasStaticColumns()) {
+            LinkedList<ColumnSlice> l = new LinkedList<>(Arrays.asList(slices));
+            l.addFirst(metadata.comparator.staticPrefix().slice());
+            slices = new ColumnSlice[l.size()];
+            slices = l.toArray(slices);
+        }
+
+        int compositesToGroup = metadata.clusteringColumns().size();
+        return new SliceQueryFilter(slices, false, Integer.MAX_VALUE, compositesToGroup);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Map<RowKey, Row> rows(List<Row> partitions, long timestamp) {
+        Map<RowKey, Row> rows = new HashMap<>();
+        for (Row partition : partitions) {
+            if (partition.cf != null) {
+                for (Map.Entry<CellName, ColumnFamily> entry : splitRows(partition.cf).entrySet()) {
+                    ColumnFamily cf = entry.getValue();
+                    if (!cf.hasOnlyTombstones(timestamp)) {
+                        rows.put(new RowKey(partition.key, entry.getKey()), new Row(partition.key, cf));
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Comparator<Row> comparator() {
         return Ordering.compound(Arrays.asList(tokenMapper.comparator(), clusteringKeyMapper.comparator()));
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected Comparator<RowKey> rowKeyComparator() {
+        final CellNameType nameType = clusteringKeyMapper.getType();
+        return new Comparator<RowKey>() {
+            @Override
+            public int compare(RowKey rowKey1, RowKey rowKey2) {
+                int comp = rowKey1.getPartitionKey().getToken().compareTo(rowKey2.getPartitionKey().getToken());
+                return comp != 0 ? comp : nameType.compare(rowKey1.getClusteringKey(), rowKey2.getClusteringKey());
+            }
+        };
+    }
+
     /**
      * Returns the first clustering key contained in the specified {@link ColumnFamily}.
      *
@@ -245,6 +322,25 @@ public class RowMapperWide extends RowMapper {
         return new SearchResult(partitionKey, clusteringKey, scoreDoc);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected LeafSearchResults leafSearchResults(LeafReader reader) throws IOException {
+        final BinaryDocValues partitionKeys = partitionKeyMapper.docValues(reader);
+        final Bits docsWithPartitionKey = partitionKeyMapper.docsWithField(reader);
+        final SortedDocValues clusteringKeys = clusteringKeyMapper.docValues(reader);
+        return new LeafSearchResults() {
+            @Override
+            public SearchResult searchResult(int doc, ScoreDoc scoreDoc) {
+                DecoratedKey partitionKey = partitionKeyMapper.partitionKey(partitionKeys, docsWithPartitionKey, doc);
+                if (partitionKey == null) {
+                    return null;
+                }
+                CellName clusteringKey = clusteringKeyMapper.clusteringKey(clusteringKeys, doc);
+                return clusteringKey == null ? null : new SearchResult(partitionKey, clusteringKey, scoreDoc);
+            }
+        };
+    }
+
     /**
      * Returns a hash code to uniquely identify a CQL logical row key.
      *
@@ -277,4 +373,13 @@ public class RowMapperWide extends RowMapper {
         CellName clusteringKey = clusteringKey(row.cf);
         return new RowKey(partitionKey, clusteringKey);
     }
+
+    /** {@inheritDoc} */
+    @Override
+    protected List<Object> sortValues(RowKey rowKey) {
+        List<Object> sortValues = new ArrayList<>();
+        sortValues.addAll(tokenMapper.sortValues(rowKey.getPartitionKey()));
+        sortValues.addAll(clusteringKeyMapper.sortValues(rowKey.getClusteringKey()));
+        return sortValues;
+    }
 }
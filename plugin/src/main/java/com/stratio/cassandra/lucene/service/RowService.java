@@ -18,20 +18,28 @@
 
 package com.stratio.cassandra.lucene.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.IndexException;
+import com.stratio.cassandra.lucene.schema.DocumentTemplate;
 import com.stratio.cassandra.lucene.schema.Schema;
 import com.stratio.cassandra.lucene.schema.column.Column;
 import com.stratio.cassandra.lucene.schema.column.Columns;
 import com.stratio.cassandra.lucene.search.Search;
+import com.stratio.cassandra.lucene.search.SearchBuilder;
 import com.stratio.cassandra.lucene.util.TaskQueue;
 import com.stratio.cassandra.lucene.util.TimeCounter;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.cql3.Operator;
 import org.apache.cassandra.db.*;
-import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.commitlog.ReplayPosition;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
@@ -41,6 +49,8 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
@@ -63,6 +73,12 @@ public abstract class RowService {
     /** The min number of rows to be read per iteration. */
     private static final int MIN_PAGE_SIZE = 100;
 
+    /** The milliseconds to wait between checks for the end of a pipelined search. */
+    private static final long PIPELINING_POLL_MILLIS = 10;
+
+    /** The max number of compiled searches to be cached. */
+    private static final int MAX_COMPILED_SEARCHES = 1000;
+
     final ColumnFamilyStore baseCfs;
     final CFMetaData metadata;
     final RowMapper mapper;
@@ -72,6 +88,45 @@ public abstract class RowService {
     protected final Schema schema;
     private final TaskQueue indexQueue;
 
+    /** The grouped writes of each indexing thread, {@code null} means no grouping between different rows. */
+    private final IndexBatch[] batches;
+
+    /** The reusable document fields of each indexing thread, {@code null} means no reuse. */
+    private final ThreadLocal<DocumentTemplate> templates;
+
+    /** The max number of grouped writes of each indexing thread. */
+    private final int indexingBatchSize;
+
+    /** The max time in milliseconds that an incomplete group of writes waits for more writes. */
+    private final long indexingBatchLingerMs;
+
+    /** The scheduler of the delayed group writes, {@code null} means no delay. */
+    private final ScheduledExecutorService batchScheduler;
+
+    /** The number of threads used to read rows from the storage engine, {@code 0} means sequential reading. */
+    protected final int fetchingThreads;
+
+    /** The thread pool used to read rows from the storage engine, {@code null} means sequential reading. */
+    protected final ExecutorService fetchingPool;
+
+    /** The thread pool used to search the next page while reading rows, {@code null} means no pipelining. */
+    private final ExecutorService pipeliningPool;
+
+    /** If searches scanning all the token ranges must be run in two phases. */
+    private final boolean twoPhaseSearch;
+
+    /** If count queries must be solved by counting Lucene documents. */
+    private final boolean countPushdown;
+
+    /** The already compiled searches, indexed by their raw JSON expression. */
+    private final Cache<ByteBuffer, CompiledSearch> compiledSearches;
+
+    /** The last indexed rows of each partition, {@code null} means no cache. */
+    protected final IndexedRowsCache indexedRows;
+
+    /** The parallel builder of the whole index, {@code null} means that the index is built by Cassandra. */
+    private final IndexBuilder builder;
+
     /**
      * Returns a new {@code RowService} for the specified {@link IndexConfig}.
      *
@@ -88,7 +143,58 @@ public abstract class RowService {
         keySortFields = mapper.sortFields();
 
         int threads = config.getIndexingThreads();
-        indexQueue = threads > 0 ? new TaskQueue(threads, config.getIndexingQueuesSize()) : null;
+        indexQueue = threads > 0
+                     ? new TaskQueue(threads,
+                                     config.getIndexingQueuesSize(),
+                                     config.getIndexingWaitStrategy(),
+                                     new NamedThreadFactory("LuceneIndexing:" + config.getName()))
+                     : null;
+
+        indexingBatchSize = config.getIndexingBatchSize();
+        indexingBatchLingerMs = config.getIndexingBatchLingerMs();
+        if (indexQueue != null && indexingBatchSize > 0) {
+            batches = new IndexBatch[threads];
+            for (int i = 0; i < threads; i++) {
+                batches[i] = new IndexBatch(lucene);
+            }
+        } else {
+            batches = null;
+        }
+        templates = batches == null ? new ThreadLocal<DocumentTemplate>() {
+            @Override
+            protected DocumentTemplate initialValue() {
+                return new DocumentTemplate();
+            }
+        } : null;
+        NamedThreadFactory batchingThreads = new NamedThreadFactory("LuceneBatching:" + config.getName());
+        batchScheduler = batches != null && indexingBatchLingerMs > 0
+                         ? Executors.newSingleThreadScheduledExecutor(batchingThreads)
+                         : null;
+
+        fetchingThreads = config.getFetchingThreads();
+        fetchingPool = fetchingThreads > 0
+                       ? Executors.newFixedThreadPool(fetchingThreads,
+                                                      new NamedThreadFactory("LuceneFetching:" + config.getName()))
+                       : null;
+
+        pipeliningPool = config.isPipelinedSearch()
+                         ? new ThreadPoolExecutor(0,
+                                                  DatabaseDescriptor.getConcurrentReaders(),
+                                                  60,
+                                                  TimeUnit.SECONDS,
+                                                  new SynchronousQueue<Runnable>(),
+                                                  new NamedThreadFactory("LucenePipelining:" + config.getName()))
+                         : null;
+
+        twoPhaseSearch = config.isTwoPhaseSearch();
+        countPushdown = config.isCountPushdown();
+        compiledSearches = CacheBuilder.newBuilder().maximumSize(MAX_COMPILED_SEARCHES).build();
+
+        int indexedRowsCacheMb = config.getIndexedRowsCacheMb();
+        indexedRows = indexedRowsCacheMb > 0 ? new IndexedRowsCache(indexedRowsCacheMb) : null;
+
+        builder = config.getBuildThreads() > 0 ? new IndexBuilder(this, config) : null;
+        lucene.setBuilder(builder);
     }
 
     /**
@@ -112,6 +218,65 @@ public abstract class RowService {
         return schema;
     }
 
+    /**
+     * Returns if searches scanning all the token ranges must first collect the best keys of each range, and then read
+     * only the rows of the global best keys.
+     *
+     * @return {@code true} if two-phase searches are enabled, {@code false} otherwise.
+     */
+    public final boolean isTwoPhaseSearch() {
+        return twoPhaseSearch;
+    }
+
+    /**
+     * Returns if count queries must be solved by counting the matching Lucene documents instead of reading rows. This
+     * is never done for tables with a default time-to-live, because the documents of expired rows are still counted.
+     * Rows expired by a per-write TTL and deletions still waiting to be indexed are also counted, so it must be
+     * explicitly enabled with {@link IndexConfig#isCountPushdown()}.
+     *
+     * @return {@code true} if count pushdown is enabled, {@code false} otherwise.
+     */
+    public final boolean isCountPushdown() {
+        return countPushdown && metadata.getDefaultTimeToLive() == 0;
+    }
+
+    /**
+     * Returns the {@link CompiledSearch} represented by the specified JSON search expression. Compiled searches are
+     * cached, so each distinct expression is parsed, validated and translated to Lucene only once.
+     *
+     * @param expression A JSON {@link Search} expression.
+     * @return The {@link CompiledSearch} represented by {@code expression}.
+     */
+    public final CompiledSearch compile(ByteBuffer expression) {
+        CompiledSearch compiledSearch = compiledSearches.getIfPresent(expression);
+        if (compiledSearch == null) {
+            String json = UTF8Type.instance.compose(expression);
+            compiledSearch = compile(SearchBuilder.fromJson(json).build());
+            compiledSearches.put(ByteBufferUtil.clone(expression), compiledSearch);
+        }
+        return compiledSearch;
+    }
+
+    /**
+     * Returns the {@link CompiledSearch} for the specified {@link Search}, validating it against the index schema.
+     *
+     * @param search A {@link Search}.
+     * @return The {@link CompiledSearch} for {@code search}.
+     */
+    public final CompiledSearch compile(Search search) {
+        search.validate(schema);
+        Query query = search.query(schema);
+        Query filter = search.filter(schema);
+        return new CompiledSearch(search, query, filter, sort(search), scorePosition(search));
+    }
+
+    /**
+     * Discards all the cached {@link CompiledSearch}s, so they are compiled again with the current schema.
+     */
+    public final void invalidateCompiledSearches() {
+        compiledSearches.invalidateAll();
+    }
+
     /**
      * Returns the names of the document fields to be loaded when reading a Lucene index.
      *
@@ -131,7 +296,8 @@ public abstract class RowService {
      * Indexes the logical {@link Row} identified by the specified key and column family using the specified time stamp.
      * The may require reading from the base {@link ColumnFamilyStore} because it could exist previously having more
      * columns than the specified ones. The specified {@link ColumnFamily} is used for determine the cluster key. This
-     * operation is performed asynchronously.
+     * operation is performed asynchronously. Updates without deletions, row markers nor mapped columns are ignored if
+     * all their rows are known to be already indexed.
      *
      * @param key          A partition key.
      * @param columnFamily A {@link ColumnFamily} with a single common cluster key.
@@ -139,14 +305,32 @@ public abstract class RowService {
      * @throws IOException If there are I/O errors.
      */
     public void index(final ByteBuffer key, final ColumnFamily columnFamily, final long timestamp) throws IOException {
+
+        // Updates not affecting the indexed columns can be ignored if their rows are already indexed
+        final boolean unmapped = indexedRows != null && columnFamily.deletionInfo().isLive() &&
+                                 !mapper.maps(columnFamily);
+
+        if (builder != null && builder.isBuilding()) {
+            builder.written(mapper.partitionKey(key));
+        }
+
         if (indexQueue == null) {
-            doIndex(key, columnFamily, timestamp);
+            IndexBatch batch = new IndexBatch(lucene);
+            if (!unmapped || !isIndexed(mapper.partitionKey(key), columnFamily, timestamp)) {
+                doIndex(batch, key, columnFamily, timestamp);
+            }
+            batch.flush();
         } else {
+            final int worker = indexQueue.worker(key);
             indexQueue.submitAsynchronous(key, new Runnable() {
                 @Override
                 public void run() {
                     try {
-                        doIndex(key, columnFamily, timestamp);
+                        IndexBatch batch = batch(worker);
+                        if (!unmapped || !isIndexed(mapper.partitionKey(key), columnFamily, timestamp)) {
+                            doIndex(batch, key, columnFamily, timestamp);
+                        }
+                        flush(worker, batch);
                     } catch (Exception e) {
                         logger.error("Unrecoverable error during asynchronously indexing", e);
                     }
@@ -159,12 +343,26 @@ public abstract class RowService {
      * Puts in the Lucene index the Cassandra's the row identified by the specified partition key and the clustering
      * keys contained in the specified {@link ColumnFamily}.
      *
+     * @param batch        The {@link IndexBatch} where the index writes are added.
      * @param key          A partition key.
      * @param columnFamily A {@link ColumnFamily} with a single common cluster key.
      * @param timestamp    The insertion time.
      * @throws IOException If there are I/O errors.
      */
-    protected abstract void doIndex(ByteBuffer key, ColumnFamily columnFamily, long timestamp) throws IOException;
+    protected abstract void doIndex(IndexBatch batch, ByteBuffer key, ColumnFamily columnFamily, long timestamp)
+    throws IOException;
+
+    /**
+     * Returns if all the rows affected by the specified update are known to be already indexed, according to the cache
+     * of indexed rows. This is checked after applying all the previous writes of the partition, so rows which are new
+     * or have been deleted are never considered indexed.
+     *
+     * @param partitionKey The partition key.
+     * @param columnFamily The updated {@link ColumnFamily}.
+     * @param timestamp    The time stamp to ignore deleted columns.
+     * @return {@code true} if all the updated rows are already indexed, {@code false} otherwise.
+     */
+    protected abstract boolean isIndexed(DecoratedKey partitionKey, ColumnFamily columnFamily, long timestamp);
 
     /**
      * Deletes the partition identified by the specified partition key. This operation is performed asynchronously.
@@ -173,14 +371,22 @@ public abstract class RowService {
      * @throws IOException If there are I/O errors.
      */
     public void delete(final DecoratedKey partitionKey) throws IOException {
+        if (builder != null) {
+            builder.written(partitionKey);
+        }
         if (indexQueue == null) {
-            doDelete(partitionKey);
+            IndexBatch batch = new IndexBatch(lucene);
+            doDelete(batch, partitionKey);
+            batch.flush();
         } else {
+            final int worker = indexQueue.worker(partitionKey);
             indexQueue.submitAsynchronous(partitionKey, new Runnable() {
                 @Override
                 public void run() {
                     try {
-                        doDelete(partitionKey);
+                        IndexBatch batch = batch(worker);
+                        doDelete(batch, partitionKey);
+                        flush(worker, batch);
                     } catch (Exception e) {
                         logger.error("Unrecoverable error during asynchronous deletion", e);
                     }
@@ -192,10 +398,119 @@ public abstract class RowService {
     /**
      * Deletes the partition identified by the specified partition key.
      *
+     * @param batch        The {@link IndexBatch} where the index writes are added.
      * @param partitionKey The partition key identifying the partition to be deleted.
      * @throws IOException If there are I/O errors.
      */
-    protected abstract void doDelete(DecoratedKey partitionKey) throws IOException;
+    protected abstract void doDelete(IndexBatch batch, DecoratedKey partitionKey) throws IOException;
+
+    /**
+     * Removes the specified partition from the cache of indexed rows, if any.
+     *
+     * @param partitionKey A partition key.
+     */
+    protected void invalidate(DecoratedKey partitionKey) {
+        if (indexedRows != null) {
+            indexedRows.invalidate(partitionKey);
+        }
+    }
+
+    /**
+     * Returns the {@link DocumentTemplate} of the current thread to build a single document, which must be written to
+     * the index before building the next one. Documents retained by grouped writes can't reuse fields.
+     *
+     * @return The {@link DocumentTemplate} of the current thread, or {@code null} if fields can't be reused.
+     */
+    protected DocumentTemplate template() {
+        return templates == null ? null : templates.get();
+    }
+
+    /**
+     * Returns the {@link IndexBatch} where the writes of the specified indexing thread must be grouped.
+     *
+     * @param worker The index of an indexing thread.
+     * @return The {@link IndexBatch} for {@code worker}.
+     */
+    private IndexBatch batch(int worker) {
+        return batches == null ? new IndexBatch(lucene) : batches[worker];
+    }
+
+    /**
+     * Applies the specified {@link IndexBatch} of the specified indexing thread unless it should wait for more writes.
+     * A batch waits while it is not full and its indexing thread has more pending tasks, or during the linger time.
+     *
+     * @param worker The index of the indexing thread running the current task.
+     * @param batch  The {@link IndexBatch} of {@code worker}.
+     * @throws IOException If there are I/O errors.
+     */
+    private void flush(int worker, final IndexBatch batch) throws IOException {
+        if (batches == null || batch.size() >= indexingBatchSize) {
+            batch.flush();
+        } else if (indexQueue.isDrained(worker)) {
+            if (batchScheduler == null) {
+                batch.flush();
+            } else if (batch.scheduleFlush()) {
+                batchScheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            batch.flush();
+                        } catch (Exception e) {
+                            logger.error("Unrecoverable error during delayed index writes", e);
+                        }
+                    }
+                }, indexingBatchLingerMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Waits for all the pending index writes to be applied.
+     *
+     * @throws IOException If there are I/O errors.
+     */
+    private void awaitIndexing() throws IOException {
+        if (indexQueue != null) {
+            indexQueue.await();
+            if (batches != null) {
+                for (IndexBatch batch : batches) {
+                    batch.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until the index searchers view the index changes required by the specified {@link Search}. Refreshing
+     * searches wait for the index writes submitted before them to be applied and visible, without committing them.
+     * Searches with a max staleness only wait for the readers to be reopened if they are older than allowed.
+     *
+     * @param search A {@link Search}.
+     * @throws IOException If there are I/O errors.
+     */
+    private void awaitVisibility(Search search) throws IOException {
+        if (search.refresh()) {
+            awaitIndexing();
+            lucene.waitForGeneration(lucene.getGeneration());
+        } else if (search.getMaxStalenessMs() != null) {
+            lucene.waitForStaleness(search.getMaxStalenessMs());
+        }
+    }
+
+    /**
+     * Builds the whole index from the data stored in the indexed table scanning token ring slices in parallel, if it
+     * is enabled. The current contents of the index are replaced.
+     *
+     * @return {@code true} if the index has been built, {@code false} if it must be built by Cassandra.
+     * @throws IOException If there are I/O errors.
+     */
+    public final boolean build() throws IOException {
+        if (builder == null) {
+            return false;
+        }
+        builder.build();
+        return true;
+    }
 
     /**
      * Deletes all the {@link Document}s.
@@ -203,6 +518,9 @@ public abstract class RowService {
      * @throws IOException If there are I/O errors.
      */
     public final void truncate() throws IOException {
+        if (indexedRows != null) {
+            indexedRows.clear();
+        }
         lucene.truncate();
     }
 
@@ -215,28 +533,67 @@ public abstract class RowService {
         if (indexQueue != null) {
             indexQueue.shutdown();
         }
+        if (batchScheduler != null) {
+            batchScheduler.shutdown();
+        }
+        if (fetchingPool != null) {
+            fetchingPool.shutdown();
+        }
+        if (pipeliningPool != null) {
+            pipeliningPool.shutdown();
+        }
+        if (indexedRows != null) {
+            indexedRows.clear();
+        }
         lucene.delete();
         schema.close();
     }
 
     /**
-     * Commits the pending changes. This operation is performed asynchronously.
+     * Commits the pending changes together with the commits requested by other indexes, waiting for it.
      *
      * @throws IOException If there are I/O errors.
      */
     public final void commit() throws IOException {
-        if (indexQueue != null) {
-            indexQueue.await();
-        }
-        lucene.commit();
+        CommitCoordinator.instance.commit(this);
+    }
+
+    /**
+     * Requests a commit of the pending changes to be done together with the commits requested by other indexes,
+     * without waiting for it.
+     *
+     * @param maxDelayMillis The max time in milliseconds that the commit can be delayed.
+     */
+    public final void requestCommit(long maxDelayMillis) {
+        CommitCoordinator.instance.request(this, maxDelayMillis);
+    }
+
+    /**
+     * Returns the commitlog position covered by the last commit of the index.
+     *
+     * @return The commitlog position covered by the last commit, or {@code null} if it is unknown.
+     */
+    public final ReplayPosition getCommittedPosition() {
+        return lucene.getCommittedPosition();
+    }
+
+    /**
+     * Commits the pending changes covering the specified commitlog position.
+     *
+     * @param position A commitlog position whose previous writes have been already applied.
+     * @throws IOException If there are I/O errors.
+     */
+    final void commit(ReplayPosition position) throws IOException {
+        awaitIndexing();
+        lucene.commit(position);
     }
 
     /**
      * Returns the Lucene {@link Document}s represented by the specified Cassandra row associated with their identifying
-     * {@link Term}s.
+     * {@link Term}s. The missing mapped columns are taken from the cache of indexed rows or read from the storage.
      *
      * @param partitionKey A partition key.
-     * @param columnFamily A column family.
+     * @param columnFamily A column family, maybe containing tombstones.
      * @param timestamp    The operation time.
      * @return The Lucene {@link Document}s represented by the specified Cassandra row associated with their identifying
      * {@link Term}s.
@@ -246,114 +603,132 @@ public abstract class RowService {
     /**
      * Returns the stored and indexed {@link Row}s satisfying the specified restrictions.
      *
-     * @param search      The {@link Search} to be performed.
+     * @param search      The {@link CompiledSearch} to be performed.
      * @param expressions A list of filtering {@link IndexExpression}s to be satisfied.
      * @param dataRange   A {@link DataRange} to be satisfied.
      * @param limit       The max number of {@link Row}s to be returned.
      * @param timestamp   The operation time stamp.
      * @param after       A {@link RowKey} to start the search after.
      * @param distinct    If CQL DISTINCT operator is used.
+     * @param keysOnly    If only synthetic key rows must be returned instead of the actual rows.
      * @return The {@link Row}s satisfying the specified restrictions.
      * @throws IOException If there are I/O errors.
      */
-    public final List<Row> search(Search search,
+    public final List<Row> search(CompiledSearch search,
                                   List<IndexExpression> expressions,
                                   DataRange dataRange,
                                   final int limit,
                                   long timestamp,
                                   RowKey after,
-                                  boolean distinct) throws IOException {
+                                  boolean distinct,
+                                  boolean keysOnly) throws IOException {
 
         // Setup stats
         TimeCounter afterTime = TimeCounter.create();
         TimeCounter queryTime = TimeCounter.create();
         TimeCounter storeTime = TimeCounter.create();
-        int numDocs = 0;
-        int numPages = 0;
-        int numRows = 0;
+        int numDocs;
 
         List<Row> rows = new LinkedList<>();
 
         // Refresh index if needed
-        if (search.refresh()) {
-            if (indexQueue != null) {
-                indexQueue.await();
-            }
-            lucene.refresh();
-            if (search.isEmpty()) {
-                return rows;
-            }
+        awaitVisibility(search.getSearch());
+        if (search.getSearch().refresh() && search.getSearch().isEmpty()) {
+            return rows;
         }
 
         // Setup search
         Query query = query(search, dataRange);
-        Sort sort = sort(search);
+        Sort sort = search.getSort();
 
         // Setup paging
-        int scorePosition = scorePosition(search);
-        int page = min(limit, MAX_PAGE_SIZE);
-        boolean mayBeMoreDocs;
-        int remainingRows;
-
-        SearcherManager searcherManager = lucene.getSearcherManager();
-        IndexSearcher searcher = searcherManager.acquire();
-        Set<DecoratedKey> partitionKeys = new HashSet<>();
+        int scorePosition = search.getScorePosition();
+        int numRows = 0;
+        int numPages = 0;
+
+        IndexSearcher searcher = lucene.acquireSearcher(dataRange.keyRange());
         try {
 
-            // Get last position
-            afterTime.start();
-            ScoreDoc last = after(searcher, after, query, sort);
-            afterTime.stop();
-
-            do {
-                // Search rows identifiers in Lucene
-                queryTime.start();
-                Set<String> fields = fieldsToLoad();
-                Map<Document, ScoreDoc> docs = lucene.search(searcher, query, sort, last, page, fields);
-                List<SearchResult> searchResults = new ArrayList<>(docs.size());
-                int numIterationDocs = 0;
-                for (Map.Entry<Document, ScoreDoc> entry : docs.entrySet()) {
-                    Document document = entry.getKey();
-                    ScoreDoc scoreDoc = entry.getValue();
-                    last = scoreDoc;
-                    SearchResult searchResult = mapper.searchResult(document, scoreDoc);
-                    DecoratedKey partitionKey = searchResult.getPartitionKey();
-                    if (!(distinct && (partitionKeys.contains(partitionKey)
-                                       || after != null && after.getPartitionKey().equals(partitionKey)))) {
-                        searchResults.add(searchResult);
-                        partitionKeys.add(partitionKey);
-                    }
-                    numIterationDocs++;
-                }
-                numDocs += numIterationDocs;
-                queryTime.stop();
+            // Look for cached results
+            SearchCache searchCache = lucene.getSearchCache();
+            SearchCache.Key cacheKey = null;
+            SearchCache.Entry cached = null;
+            if (searchCache != null) {
+                cacheKey = searchCache.key(searcher, query, sort, after, limit, distinct);
+                cached = searchCache.get(cacheKey);
+            }
+
+            final Pages pages = new Pages(searcher, query, sort, after, distinct, queryTime, cacheKey != null);
+            int pageSize = min(limit, MAX_PAGE_SIZE);
+            boolean mayBeMoreRows = true;
+            if (cached == null) {
+
+                // Get last position
+                afterTime.start();
+                pages.last = after(searcher, after, query, sort);
+                afterTime.stop();
 
-                // Collect rows from Cassandra
+            } else {
+
+                // Read the rows of the cached results, resuming the search later if they are not enough
+                Page page = pages.resume(cached);
                 storeTime.start();
-                for (Row row : rows(searchResults, timestamp, scorePosition)) {
-                    if (accepted(row, expressions)) {
-                        rows.add(row);
-                        numRows++;
-                    }
-                }
+                numRows += collect(page, rows, expressions, timestamp, scorePosition, keysOnly);
                 storeTime.stop();
-
-                // Setup next iteration
-                mayBeMoreDocs = numIterationDocs == page;
-                remainingRows = limit - numRows;
-                page = min(max(MIN_PAGE_SIZE, remainingRows), MAX_PAGE_SIZE);
+                pageSize = min(max(MIN_PAGE_SIZE, limit - numRows), MAX_PAGE_SIZE);
                 numPages++;
+                mayBeMoreRows = page.mayBeMoreDocs() && limit - numRows > 0;
+            }
+
+            final AtomicInteger remainingRows = new AtomicInteger(limit - numRows);
+            Future<?> producer = mayBeMoreRows ? pipelined(pages, remainingRows, pageSize) : null;
+            if (producer == null && mayBeMoreRows) {
 
-                // Iterate while there are still documents to read and we don't have enough rows
-            } while (mayBeMoreDocs && remainingRows > 0);
+                // Search pages sequentially
+                Page page;
+                do {
+                    page = pages.next(pageSize);
+                    storeTime.start();
+                    numRows += collect(page, rows, expressions, timestamp, scorePosition, keysOnly);
+                    storeTime.stop();
+                    pageSize = min(max(MIN_PAGE_SIZE, limit - numRows), MAX_PAGE_SIZE);
+                    numPages++;
+
+                    // Iterate while there are still documents to read and we don't have enough rows
+                } while (page.mayBeMoreDocs() && limit - numRows > 0);
+
+            } else if (producer != null) {
+
+                // Consume the pages searched ahead by the producer
+                try {
+                    Page page;
+                    do {
+                        page = pages.take(producer);
+                        storeTime.start();
+                        numRows += collect(page, rows, expressions, timestamp, scorePosition, keysOnly);
+                        storeTime.stop();
+                        remainingRows.set(limit - numRows);
+                        numPages++;
+                    } while (page.mayBeMoreDocs() && limit - numRows > 0);
+                } finally {
+                    pages.stop(producer);
+                }
+            }
+
+            // Cache results
+            if (cacheKey != null && pages.searched) {
+                searchCache.put(cacheKey, pages.entry());
+            }
+            numDocs = pages.numDocs;
 
         } finally {
-            searcherManager.release(searcher);
+            lucene.releaseSearcher(searcher);
         }
 
-        // Ensure sorting
-        Comparator<Row> comparator = mapper.comparator(search);
-        Collections.sort(rows, comparator);
+        // Ensure sorting, key rows are already sorted by Lucene
+        if (!keysOnly) {
+            rows = mapper.sort(rows, search.getSearch());
+        }
 
         logger.debug("Search     : {}", search);
         logger.debug("Query      : {}", query);
@@ -369,18 +744,140 @@ public abstract class RowService {
     }
 
     /**
-     * Returns the {@link Query} representation of the specified {@link Search} filtered by the specified {@link
-     * DataRange}.
+     * Starts searching in background the pages of the specified {@link Pages}, so the next page can be searched while
+     * the rows of the current one are read from the storage engine. The produced pages size is based on the specified
+     * number of remaining rows, which should be updated by the consumer.
+     *
+     * @param pages         The {@link Pages} to be searched.
+     * @param remainingRows The number of rows that are still required.
+     * @param firstPageSize The max number of documents to be found in the first page.
+     * @return The {@link Future} of the producer task, or {@code null} if the search can't be pipelined.
+     */
+    private Future<?> pipelined(final Pages pages, final AtomicInteger remainingRows, final int firstPageSize) {
+        if (pipeliningPool == null) {
+            return null;
+        }
+        try {
+            return pipeliningPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int pageSize = firstPageSize;
+                        Page page;
+                        do {
+                            page = pages.next(pageSize);
+                            if (!pages.offer(page)) {
+                                return;
+                            }
+                            pageSize = min(max(MIN_PAGE_SIZE, remainingRows.get()), MAX_PAGE_SIZE);
+                        } while (page.mayBeMoreDocs() && remainingRows.get() > 0);
+                    } catch (Throwable e) {
+                        pages.offer(new Page(e));
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Pipelining pool is exhausted, searching sequentially");
+            return null;
+        }
+    }
+
+    /**
+     * Reads from the storage engine the {@link Row}s of the specified {@link Page}, adding to the specified list those
+     * satisfying the specified {@link IndexExpression}s.
+     *
+     * @param page          The {@link Page} to be read.
+     * @param rows          The list where the read {@link Row}s are added.
+     * @param expressions   A list of filtering {@link IndexExpression}s to be satisfied.
+     * @param timestamp     The operation time stamp.
+     * @param scorePosition The position where score column is placed.
+     * @param keysOnly      If synthetic key rows must be collected instead of the actual rows.
+     * @return The number of collected {@link Row}s.
+     */
+    private int collect(Page page,
+                        List<Row> rows,
+                        List<IndexExpression> expressions,
+                        long timestamp,
+                        int scorePosition,
+                        boolean keysOnly) {
+        List<Row> pageRows = keysOnly ? keyRows(page.results, timestamp) : rows(page.results, timestamp, scorePosition);
+        int numRows = 0;
+        for (Row row : pageRows) {
+            if (accepted(row, expressions)) {
+                rows.add(row);
+                numRows++;
+            }
+        }
+        return numRows;
+    }
+
+    /**
+     * Returns the number of indexed rows satisfying the specified restrictions, without reading any row from the
+     * storage engine. The count is returned as a synthetic count {@link Row} keyed by one of the matching rows, or as
+     * an empty list if there are no matches.
+     *
+     * @param search    The {@link CompiledSearch} to be performed.
+     * @param dataRange A {@link DataRange} to be satisfied.
+     * @param timestamp The operation time stamp.
+     * @return A list containing the synthetic count {@link Row}, if any.
+     * @throws IOException If there are I/O errors.
+     * @see RowMapper#countRow(RowKey, long, long)
+     */
+    public final List<Row> count(CompiledSearch search, DataRange dataRange, long timestamp) throws IOException {
+
+        // Refresh index if needed
+        awaitVisibility(search.getSearch());
+
+        TimeCounter time = TimeCounter.create().start();
+        Query query = query(search, dataRange);
+        IndexSearcher searcher = lucene.acquireSearcher(dataRange.keyRange());
+        try {
+            TopDocs topDocs = lucene.count(searcher, query);
+            logger.debug("Counted {} documents in {}", topDocs.totalHits, time.stop());
+            if (topDocs.totalHits == 0) {
+                return Collections.emptyList();
+            }
+            SearchResult first = mapper.searchResults(searcher, topDocs.scoreDocs, fieldsToLoad()).get(0);
+            RowKey rowKey = new RowKey(first.getPartitionKey(), first.getClusteringKey());
+            return Collections.singletonList(mapper.countRow(rowKey, topDocs.totalHits, timestamp));
+        } finally {
+            lucene.releaseSearcher(searcher);
+        }
+    }
+
+    /**
+     * Returns the synthetic key {@link Row}s of the specified {@link SearchResult}s, containing their primary keys and
+     * Lucene sort values but none of their actual columns, so no reads from the storage engine are needed.
+     *
+     * @param searchResults The {@link SearchResult}s.
+     * @param timestamp     The operation time stamp.
+     * @return The synthetic key {@link Row}s of {@code searchResults}.
+     */
+    private List<Row> keyRows(List<SearchResult> searchResults, long timestamp) {
+        List<Row> rows = new ArrayList<>(searchResults.size());
+        for (SearchResult searchResult : searchResults) {
+            FieldDoc fieldDoc = (FieldDoc) searchResult.getScoreDoc();
+            RowKey rowKey = new RowKey(searchResult.getPartitionKey(),
+                                       searchResult.getClusteringKey(),
+                                       fieldDoc.fields);
+            rows.add(mapper.keyRow(rowKey, timestamp));
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the {@link Query} representation of the specified {@link CompiledSearch} filtered by the specified
+     * {@link DataRange}.
      *
-     * @param search    A {@link Search}.
+     * @param search    A {@link CompiledSearch}.
      * @param dataRange A {@link DataRange}.
-     * @return The {@link Query} representation of the specified {@link Search} filtered by the specified {@link
-     * DataRange}.
+     * @return The {@link Query} representation of the specified {@link CompiledSearch} filtered by the specified
+     * {@link DataRange}.
      */
-    public Query query(Search search, DataRange dataRange) {
+    public Query query(CompiledSearch search, DataRange dataRange) {
         Query range = mapper.query(dataRange);
-        Query query = search.query(schema);
-        Query filter = search.filter(schema);
+        Query query = search.getQuery();
+        Query filter = search.getFilter();
         if (query == null && filter == null && range == null) {
             return new MatchAllDocsQuery();
         }
@@ -424,7 +921,8 @@ public abstract class RowService {
     }
 
     /**
-     * Returns the {@link ScoreDoc} of a previous search.
+     * Returns the {@link ScoreDoc} of a previous search. If the specified key carries its Lucene sort values then they
+     * are used directly, otherwise the document of the key is searched again.
      *
      * @param searcher The Lucene {@link IndexSearcher} to be used.
      * @param key      The key of the last found row.
@@ -438,14 +936,20 @@ public abstract class RowService {
             return null;
         }
 
+        // Resume directly from the sort values if they are known, using the last doc to skip ties
+        Object[] sortValues = key.getSortValues();
+        if (sortValues != null && sortValues.length == sort.getSort().length) {
+            int doc = max(0, searcher.getIndexReader().maxDoc() - 1);
+            return new FieldDoc(doc, Float.NaN, sortValues);
+        }
+
         BooleanQuery.Builder builder = new BooleanQuery.Builder();
         builder.add(mapper.query(key), FILTER);
         builder.add(query, MUST);
         Query afterQuery = builder.build();
 
-        Set<String> fields = Collections.emptySet();
-        Map<Document, ScoreDoc> results = lucene.search(searcher, afterQuery, sort, null, 1, fields);
-        return results.isEmpty() ? null : results.values().iterator().next();
+        ScoreDoc[] scoreDocs = lucene.search(searcher, afterQuery, sort, null, 1);
+        return scoreDocs.length == 0 ? null : scoreDocs[0];
     }
 
     /**
@@ -550,21 +1054,64 @@ public abstract class RowService {
 
     /**
      * Returns a {@link ColumnFamily} composed by the non expired {@link Cell}s of the specified  {@link ColumnFamily}.
+     * The {@link Cell}s shadowed by the {@link DeletionInfo} of the {@link ColumnFamily} are also discarded.
      *
      * @param columnFamily A {@link ColumnFamily}.
      * @param timestamp    The max allowed timestamp for the {@link Cell}s.
      * @return A {@link ColumnFamily} composed by the non expired {@link Cell}s of the specified  {@link ColumnFamily}.
      */
-    protected ColumnFamily cleanExpired(ColumnFamily columnFamily, long timestamp) {
-        ColumnFamily cleanColumnFamily = ArrayBackedSortedColumns.factory.create(baseCfs.metadata);
+    protected static ColumnFamily cleanExpired(ColumnFamily columnFamily, long timestamp) {
+        ColumnFamily cleanColumnFamily = ArrayBackedSortedColumns.factory.create(columnFamily.metadata());
+        DeletionInfo deletionInfo = columnFamily.deletionInfo();
         for (Cell cell : columnFamily) {
-            if (cell.isLive(timestamp)) {
+            if (cell.isLive(timestamp) && !deletionInfo.isDeleted(cell)) {
                 cleanColumnFamily.addColumn(cell);
             }
         }
         return cleanColumnFamily;
     }
 
+    /**
+     * Returns if the specified {@link ColumnFamily} is not modified by {@link #cleanExpired(ColumnFamily, long)}, that
+     * is, if it has no deletion info and all its {@link Cell}s are live.
+     *
+     * @param columnFamily A {@link ColumnFamily}.
+     * @param timestamp    The max allowed timestamp for the {@link Cell}s.
+     * @return {@code true} if {@code columnFamily} has no expired nor deleted {@link Cell}s, {@code false} otherwise.
+     */
+    protected static boolean isClean(ColumnFamily columnFamily, long timestamp) {
+        if (!columnFamily.deletionInfo().isLive()) {
+            return false;
+        }
+        for (Cell cell : columnFamily) {
+            if (!cell.isLive(timestamp)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a {@link ColumnFamily} composed by the reconciliation of the {@link Cell}s and {@link DeletionInfo}s of
+     * the specified {@link ColumnFamily}s, as the storage engine does when reading them together. At least one of them
+     * must not be {@code null}.
+     *
+     * @param columnFamily1 A {@link ColumnFamily}, maybe {@code null}.
+     * @param columnFamily2 Another {@link ColumnFamily}, maybe {@code null}.
+     * @return The reconciliation of {@code columnFamily1} and {@code columnFamily2}.
+     */
+    protected static ColumnFamily merge(ColumnFamily columnFamily1, ColumnFamily columnFamily2) {
+        CFMetaData metadata = columnFamily2 == null ? columnFamily1.metadata() : columnFamily2.metadata();
+        ColumnFamily mergedColumnFamily = ArrayBackedSortedColumns.factory.create(metadata);
+        if (columnFamily1 != null) {
+            mergedColumnFamily.addAll(columnFamily1);
+        }
+        if (columnFamily2 != null) {
+            mergedColumnFamily.addAll(columnFamily2);
+        }
+        return mergedColumnFamily;
+    }
+
     /**
      * Adds to the specified {@link Row} the specified Lucene score column.
      *
@@ -575,18 +1122,9 @@ public abstract class RowService {
      * @return The {@link Row} with the score.
      */
     protected Row addScoreColumn(Row row, long timestamp, ScoreDoc scoreDoc, int scorePosition) {
-
-        ColumnFamily cf = row.cf;
-        CellName cellName = mapper.makeCellName(cf);
         FieldDoc fieldDoc = (FieldDoc) scoreDoc;
         Float score = Float.parseFloat(fieldDoc.fields[scorePosition].toString());
-
-        ColumnFamily dcf = ArrayBackedSortedColumns.factory.create(baseCfs.metadata);
-        ByteBuffer cellValue = UTF8Type.instance.decompose(score.toString());
-        dcf.addColumn(cellName, cellValue, timestamp);
-        dcf.addAll(row.cf);
-
-        return new Row(row.key, dcf);
+        return mapper.addScore(row, score, timestamp);
     }
 
     /**
@@ -597,4 +1135,202 @@ public abstract class RowService {
     public RowMapper mapper() {
         return mapper;
     }
+
+    /** A page of Lucene search results. */
+    private static final class Page {
+
+        /** The found search results, without distinct duplicates. */
+        private final List<SearchResult> results;
+
+        /** The number of found documents. */
+        private final int numDocs;
+
+        /** If there could be more documents after this page. */
+        private final boolean mayBeMoreDocs;
+
+        /** The error produced while searching, if any. */
+        private final Throwable error;
+
+        private Page(List<SearchResult> results, int numDocs, boolean mayBeMoreDocs) {
+            this.results = results;
+            this.numDocs = numDocs;
+            this.mayBeMoreDocs = mayBeMoreDocs;
+            this.error = null;
+        }
+
+        private Page(Throwable error) {
+            this.results = Collections.emptyList();
+            this.numDocs = 0;
+            this.mayBeMoreDocs = false;
+            this.error = error;
+        }
+
+        /**
+         * Returns {@code true} if there could be more documents after this page, {@code false} otherwise.
+         *
+         * @return {@code true} if there could be more documents after this page, {@code false} otherwise.
+         */
+        private boolean mayBeMoreDocs() {
+            return mayBeMoreDocs;
+        }
+    }
+
+    /**
+     * The sequence of {@link Page}s of a search, which can be iterated by the searching thread or produced by a
+     * pipelining thread and consumed by the searching thread through a single element hand-off queue.
+     */
+    private final class Pages {
+
+        private final IndexSearcher searcher;
+        private final Query query;
+        private final Sort sort;
+        private final RowKey after;
+        private final boolean distinct;
+        private final TimeCounter queryTime;
+        private final Set<DecoratedKey> partitionKeys = new HashSet<>();
+        private final BlockingQueue<Page> queue = new ArrayBlockingQueue<>(1);
+        private final List<SearchResult> recorded;
+        private volatile boolean stopped = false;
+        private ScoreDoc last;
+        private int numDocs = 0;
+        private boolean mayBeMoreDocs = true;
+        private boolean searched = false;
+
+        private Pages(IndexSearcher searcher,
+                      Query query,
+                      Sort sort,
+                      RowKey after,
+                      boolean distinct,
+                      TimeCounter queryTime,
+                      boolean recording) {
+            this.searcher = searcher;
+            this.query = query;
+            this.sort = sort;
+            this.after = after;
+            this.distinct = distinct;
+            this.queryTime = queryTime;
+            this.recorded = recording ? new ArrayList<SearchResult>() : null;
+        }
+
+        /**
+         * Searches the next {@link Page} in Lucene.
+         *
+         * @param size The max number of documents to be found.
+         * @return The next {@link Page}.
+         * @throws IOException If there are I/O errors.
+         */
+        private Page next(int size) throws IOException {
+            queryTime.start();
+            ScoreDoc[] scoreDocs = lucene.search(searcher, query, sort, last, size);
+            List<SearchResult> searchResults = new ArrayList<>(scoreDocs.length);
+            for (SearchResult searchResult : mapper.searchResults(searcher, scoreDocs, fieldsToLoad())) {
+                last = searchResult.getScoreDoc();
+                DecoratedKey partitionKey = searchResult.getPartitionKey();
+                if (!(distinct && (partitionKeys.contains(partitionKey)
+                                   || after != null && after.getPartitionKey().equals(partitionKey)))) {
+                    searchResults.add(searchResult);
+                    partitionKeys.add(partitionKey);
+                }
+            }
+            numDocs += scoreDocs.length;
+            mayBeMoreDocs = scoreDocs.length == size;
+            searched = true;
+            if (recorded != null) {
+                recorded.addAll(searchResults);
+            }
+            queryTime.stop();
+            return new Page(searchResults, scoreDocs.length, mayBeMoreDocs);
+        }
+
+        /**
+         * Returns the {@link Page} of the specified cached search results, moving the search position after them.
+         *
+         * @param entry The cached search results.
+         * @return The {@link Page} of the cached search results.
+         */
+        private Page resume(SearchCache.Entry entry) {
+            List<SearchResult> searchResults = entry.getResults();
+            for (SearchResult searchResult : searchResults) {
+                partitionKeys.add(searchResult.getPartitionKey());
+            }
+            last = entry.getLast();
+            numDocs += entry.getNumDocs();
+            mayBeMoreDocs = entry.mayBeMoreDocs();
+            if (recorded != null) {
+                recorded.addAll(searchResults);
+            }
+            return new Page(searchResults, entry.getNumDocs(), mayBeMoreDocs);
+        }
+
+        /**
+         * Returns the cacheable results of all the searched pages.
+         *
+         * @return The results of all the searched pages.
+         */
+        private SearchCache.Entry entry() {
+            return new SearchCache.Entry(recorded, last, numDocs, mayBeMoreDocs);
+        }
+
+        /**
+         * Hands off the specified {@link Page} to the consumer, waiting until it is taken or the consumer stops.
+         *
+         * @param page The {@link Page} to be handed off.
+         * @return {@code true} if the {@link Page} has been handed off, {@code false} if the consumer has stopped.
+         */
+        private boolean offer(Page page) {
+            try {
+                while (!stopped) {
+                    if (queue.offer(page, PIPELINING_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        /**
+         * Returns the next {@link Page} handed off by the specified producer, waiting if necessary.
+         *
+         * @param producer The producer task.
+         * @return The next {@link Page}.
+         * @throws IOException If the producer has failed.
+         */
+        private Page take(Future<?> producer) throws IOException {
+            try {
+                Page page;
+                while ((page = queue.poll(PIPELINING_POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                    if (producer.isDone() && queue.isEmpty()) {
+                        throw new IndexException("Lucene search pipeline stopped unexpectedly");
+                    }
+                }
+                if (page.error instanceof IOException) {
+                    throw (IOException) page.error;
+                } else if (page.error != null) {
+                    throw new IndexException(page.error, "Lucene search pipeline failed: %s", page.error.getMessage());
+                }
+                return page;
+            } catch (InterruptedException e) {
+                throw new IndexException(e, "Interrupted while waiting for Lucene search pipeline");
+            }
+        }
+
+        /**
+         * Stops the specified producer and waits for its termination, so the searcher can be safely released.
+         *
+         * @param producer The producer task.
+         */
+        private void stop(Future<?> producer) {
+            stopped = true;
+            queue.clear();
+            try {
+                producer.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                logger.error("Lucene search pipeline failed", e);
+            }
+        }
+    }
 }
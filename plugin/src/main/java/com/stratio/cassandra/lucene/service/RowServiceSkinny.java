@@ -19,6 +19,7 @@
 package com.stratio.cassandra.lucene.service;
 
 import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.IndexException;
 import com.stratio.cassandra.lucene.schema.column.Columns;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.filter.QueryFilter;
@@ -29,6 +30,10 @@ import org.apache.lucene.search.ScoreDoc;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
 
 /**
  * {@link RowService} that manages simple rows.
@@ -48,6 +53,9 @@ public class RowServiceSkinny extends RowService {
     /** The used row mapper. */
     private final RowMapperSkinny mapper;
 
+    /** The {@link Columns} of the validated updates. */
+    private final ValidationHandOff<Columns> validatedColumns = new ValidationHandOff<>();
+
     /**
      * Returns a new {@code RowServiceSimple} to manage simple rows.
      *
@@ -76,54 +84,128 @@ public class RowServiceSkinny extends RowService {
         DecoratedKey partitionKey = mapper.partitionKey(key);
         Columns columns = mapper.columns(partitionKey, columnFamily);
         schema.validate(columns);
+        if (indexedRows == null) {
+            validatedColumns.put(columnFamily, columns);
+        }
     }
 
     /** {@inheritDoc} */
     @Override
-    public void doIndex(ByteBuffer key, ColumnFamily columnFamily, long timestamp) throws IOException {
+    public void doIndex(IndexBatch batch, ByteBuffer key, ColumnFamily columnFamily, long timestamp)
+    throws IOException {
         DecoratedKey partitionKey = mapper.partitionKey(key);
+        int shard = lucene.shard(partitionKey);
         if (columnFamily.iterator().hasNext()) {
-            ColumnFamily cleanColumnFamily = cleanExpired(columnFamily, timestamp);
-            lucene.upsert(documents(partitionKey, cleanColumnFamily, timestamp));
+            batch.upsert(shard, documents(partitionKey, columnFamily, timestamp));
         } else if (columnFamily.deletionInfo() != null) {
+            invalidate(partitionKey);
             Term term = mapper.term(partitionKey);
-            lucene.delete(term);
+            batch.delete(shard, term);
         }
     }
 
     /** {@inheritDoc} */
     @Override
-    public void doDelete(DecoratedKey partitionKey) throws IOException {
+    protected boolean isIndexed(DecoratedKey partitionKey, ColumnFamily columnFamily, long timestamp) {
+        Lock lock = indexedRows.lock(partitionKey);
+        lock.lock();
+        try {
+            return indexedRows.get(partitionKey) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void doDelete(IndexBatch batch, DecoratedKey partitionKey) throws IOException {
+        invalidate(partitionKey);
         Term term = mapper.term(partitionKey);
-        lucene.delete(term);
+        batch.delete(lucene.shard(partitionKey), term);
     }
 
     /** {@inheritDoc} */
     @Override
     public Map<Term, Document> documents(DecoratedKey partitionKey, ColumnFamily columnFamily, long timestamp) {
-        Columns columns = mapper.columns(partitionKey, columnFamily);
+        Columns columns = indexedRows == null
+                          ? columns(partitionKey, columnFamily, timestamp)
+                          : cachedColumns(partitionKey, columnFamily, timestamp);
+        Document document = mapper.document(partitionKey, columns, template());
+        Term term = mapper.term(partitionKey);
+        return Collections.singletonMap(term, document);
+    }
+
+    /**
+     * Returns the {@link Columns} of the row resulting of applying the specified update, reading the row from the
+     * storage engine if the update doesn't contain all the mapped columns. The {@link Columns} of the update computed
+     * during its validation are reused if it has no expired nor deleted cells.
+     *
+     * @param partitionKey The partition key.
+     * @param columnFamily The updated {@link ColumnFamily}.
+     * @param timestamp    The time stamp to ignore deleted columns.
+     * @return The {@link Columns} of the updated row.
+     */
+    private Columns columns(DecoratedKey partitionKey, ColumnFamily columnFamily, long timestamp) {
+        Columns columns = validatedColumns.take(columnFamily);
+        if (columns == null || !isClean(columnFamily, timestamp)) {
+            columns = mapper.columns(partitionKey, cleanExpired(columnFamily, timestamp));
+        }
         if (!schema.mapsAll(columns)) {
             ColumnFamily completeColumnFamily = row(partitionKey, timestamp);
             columns = mapper.columns(partitionKey, completeColumnFamily);
         }
-        Document document = mapper.document(partitionKey, columns);
-        Term term = mapper.term(partitionKey);
-        return Collections.singletonMap(term, document);
+        return columns;
+    }
+
+    /**
+     * Returns the {@link Columns} of the row resulting of applying the specified update to the cached row, which is
+     * then replaced by the updated one. The row is read from the storage engine only if it is not cached and the
+     * update doesn't contain all the mapped columns.
+     *
+     * @param partitionKey The partition key.
+     * @param columnFamily The updated {@link ColumnFamily}.
+     * @param timestamp    The time stamp to ignore deleted columns.
+     * @return The {@link Columns} of the updated row.
+     */
+    private Columns cachedColumns(DecoratedKey partitionKey, ColumnFamily columnFamily, long timestamp) {
+        Lock lock = indexedRows.lock(partitionKey);
+        lock.lock();
+        try {
+            ColumnFamily cachedColumnFamily = indexedRows.get(partitionKey);
+            ColumnFamily mergedColumnFamily = merge(cachedColumnFamily, columnFamily);
+            Columns columns = mapper.columns(partitionKey, cleanExpired(mergedColumnFamily, timestamp));
+            if (cachedColumnFamily == null && !schema.mapsAll(columns)) {
+                mergedColumnFamily = merge(read(partitionKey, timestamp), columnFamily);
+                columns = mapper.columns(partitionKey, cleanExpired(mergedColumnFamily, timestamp));
+            }
+            indexedRows.put(partitionKey, mergedColumnFamily);
+            return columns;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /** {@inheritDoc} */
     @Override
     protected List<Row> rows(List<SearchResult> searchResults, long timestamp, int scorePosition) {
-        List<Row> rows = new ArrayList<>(searchResults.size());
+
+        // Read rows from storage
+        List<DecoratedKey> partitionKeys = new ArrayList<>(searchResults.size());
         for (SearchResult searchResult : searchResults) {
+            partitionKeys.add(searchResult.getPartitionKey());
+        }
+        ColumnFamily[] columnFamilies = rows(partitionKeys, timestamp);
+
+        List<Row> rows = new ArrayList<>(searchResults.size());
+        for (int i = 0; i < columnFamilies.length; i++) {
 
             // Extract row from document
-            DecoratedKey partitionKey = searchResult.getPartitionKey();
-            ColumnFamily columnFamily = row(partitionKey, timestamp);
+            ColumnFamily columnFamily = columnFamilies[i];
             if (columnFamily == null) {
                 continue;
             }
-            Row row = new Row(partitionKey, columnFamily);
+            SearchResult searchResult = searchResults.get(i);
+            Row row = new Row(searchResult.getPartitionKey(), columnFamily);
 
             // Return decorated row
             if (scorePosition >= 0) {
@@ -135,6 +217,96 @@ public class RowServiceSkinny extends RowService {
         return rows;
     }
 
+    /**
+     * Returns the CQL3 {@link Row}s identified by the specified partition keys, using the specified time stamp to
+     * ignore deleted columns. The returned array keeps the order of the specified keys, having a {@code null} value
+     * for each not found row.
+     *
+     * If a fetching thread pool has been configured, the keys are sorted by token and split in contiguous groups that
+     * are read in parallel, one group per thread.
+     *
+     * @param partitionKeys The partition keys.
+     * @param timestamp     The time stamp to ignore deleted columns.
+     * @return The CQL3 {@link Row}s identified by the specified keys, in the same order.
+     */
+    private ColumnFamily[] rows(final List<DecoratedKey> partitionKeys, final long timestamp) {
+
+        final int numKeys = partitionKeys.size();
+        final ColumnFamily[] columnFamilies = new ColumnFamily[numKeys];
+
+        // Sequential reading
+        if (fetchingPool == null || numKeys < 2) {
+            for (int i = 0; i < numKeys; i++) {
+                columnFamilies[i] = row(partitionKeys.get(i), timestamp);
+            }
+            return columnFamilies;
+        }
+
+        // Read each contiguous token group in a different thread
+        int[][] groups = tokenGroups(partitionKeys, fetchingThreads);
+        List<Callable<Void>> tasks = new ArrayList<>(groups.length);
+        for (final int[] positions : groups) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int position : positions) {
+                        columnFamilies[position] = row(partitionKeys.get(position), timestamp);
+                    }
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Void> future : fetchingPool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw new IndexException(e, "Interrupted while reading rows");
+        } catch (ExecutionException e) {
+            throw new IndexException(e.getCause(), "Error while reading rows: %s", e.getCause().getMessage());
+        }
+        return columnFamilies;
+    }
+
+    /**
+     * Splits the positions of the specified partition keys in at most the specified number of groups of contiguous
+     * tokens. The positions of each group are sorted by token, so they can be read with a storage friendly access
+     * pattern.
+     *
+     * @param partitionKeys The partition keys.
+     * @param numGroups     The max number of groups.
+     * @return The positions in {@code partitionKeys} of the keys of each group.
+     */
+    static int[][] tokenGroups(final List<DecoratedKey> partitionKeys, int numGroups) {
+
+        // Sort key positions by token
+        int numKeys = partitionKeys.size();
+        Integer[] positions = new Integer[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            positions[i] = i;
+        }
+        Arrays.sort(positions, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i, Integer j) {
+                return partitionKeys.get(i).compareTo(partitionKeys.get(j));
+            }
+        });
+
+        // Split sorted positions in contiguous groups
+        int numTasks = Math.max(1, Math.min(numGroups, numKeys));
+        int groupSize = Math.max(1, (numKeys + numTasks - 1) / numTasks);
+        int[][] groups = new int[(numKeys + groupSize - 1) / groupSize][];
+        for (int g = 0; g < groups.length; g++) {
+            int from = g * groupSize;
+            int to = Math.min(from + groupSize, numKeys);
+            groups[g] = new int[to - from];
+            for (int i = from; i < to; i++) {
+                groups[g][i - from] = positions[i];
+            }
+        }
+        return groups;
+    }
+
     /**
      * Returns the CQL3 {@link Row} identified by the specified key pair, using the specified time stamp to ignore
      * deleted columns. The {@link Row} is retrieved from the storage engine, so it involves IO operations.
@@ -144,11 +316,23 @@ public class RowServiceSkinny extends RowService {
      * @return The CQL3 {@link Row} identified by the specified key pair.
      */
     private ColumnFamily row(DecoratedKey partitionKey, long timestamp) {
-        QueryFilter queryFilter = QueryFilter.getIdentityFilter(partitionKey, metadata.cfName, timestamp);
-        ColumnFamily columnFamily = baseCfs.getColumnFamily(queryFilter);
+        ColumnFamily columnFamily = read(partitionKey, timestamp);
         if (columnFamily != null) {
             return cleanExpired(columnFamily, timestamp);
         }
         return null;
     }
+
+    /**
+     * Returns the {@link ColumnFamily} identified by the specified partition key as it is retrieved from the storage
+     * engine, without removing its tombstones.
+     *
+     * @param partitionKey The partition key.
+     * @param timestamp    The read time stamp.
+     * @return The stored {@link ColumnFamily}, or {@code null} if there is no such partition.
+     */
+    private ColumnFamily read(DecoratedKey partitionKey, long timestamp) {
+        QueryFilter queryFilter = QueryFilter.getIdentityFilter(partitionKey, metadata.cfName, timestamp);
+        return baseCfs.getColumnFamily(queryFilter);
+    }
 }
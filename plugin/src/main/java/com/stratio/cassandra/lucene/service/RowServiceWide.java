@@ -20,6 +20,7 @@ package com.stratio.cassandra.lucene.service;
 
 import com.google.common.collect.Lists;
 import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.schema.DocumentTemplate;
 import com.stratio.cassandra.lucene.schema.column.Columns;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.composites.CellName;
@@ -35,6 +36,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.locks.Lock;
 
 /**
  * {@link RowService} that manages wide rows.
@@ -57,6 +59,9 @@ public class RowServiceWide extends RowService {
     /** The used row mapper. */
     private final RowMapperWide mapper;
 
+    /** The {@link Columns} of the CQL3 rows of the validated updates, indexed by clustering key. */
+    private final ValidationHandOff<Map<CellName, Columns>> validatedRows = new ValidationHandOff<>();
+
     /**
      * Returns a new {@code RowServiceWide} to manage wide rows.
      *
@@ -83,60 +88,127 @@ public class RowServiceWide extends RowService {
     @Override
     public void validate(final ByteBuffer key, final ColumnFamily columnFamily) {
         DecoratedKey partitionKey = mapper.partitionKey(key);
-        for (ColumnFamily cf : mapper.splitRows(columnFamily).values()) {
-            Columns columns = mapper.columns(partitionKey, cf);
+        Map<CellName, ColumnFamily> rows = mapper.splitRows(columnFamily);
+        Map<CellName, Columns> rowsColumns = new LinkedHashMap<>(rows.size());
+        for (Entry<CellName, ColumnFamily> entry : rows.entrySet()) {
+            Columns columns = mapper.columns(partitionKey, entry.getValue());
             schema.validate(columns);
+            rowsColumns.put(entry.getKey(), columns);
+        }
+        if (indexedRows == null) {
+            validatedRows.put(columnFamily, rowsColumns);
         }
     }
 
     /** {@inheritDoc} */
     @Override
-    public void doIndex(ByteBuffer key, ColumnFamily columnFamily, long timestamp) throws IOException {
+    public void doIndex(IndexBatch batch, ByteBuffer key, ColumnFamily columnFamily, long timestamp)
+    throws IOException {
         DeletionInfo deletionInfo = columnFamily.deletionInfo();
         DecoratedKey partitionKey = mapper.partitionKey(key);
+        int shard = lucene.shard(partitionKey);
 
         if (columnFamily.iterator().hasNext()) {
-            ColumnFamily cleanColumnFamily = cleanExpired(columnFamily, timestamp);
-            lucene.upsert(documents(partitionKey, cleanColumnFamily, timestamp));
+            batch.upsert(shard, documents(partitionKey, columnFamily, timestamp));
         } else if (deletionInfo != null) {
+            invalidate(partitionKey);
             Iterator<RangeTombstone> iterator = deletionInfo.rangeIterator();
             if (iterator.hasNext()) {
                 while (iterator.hasNext()) {
                     RangeTombstone rangeTombstone = iterator.next();
                     Query query = mapper.query(partitionKey, rangeTombstone);
-                    lucene.delete(query);
+                    batch.delete(shard, query);
                 }
             } else {
                 Term term = mapper.term(partitionKey);
-                lucene.delete(term);
+                batch.delete(shard, term);
             }
         }
     }
 
     /** {@inheritDoc} */
     @Override
-    public void doDelete(DecoratedKey partitionKey) throws IOException {
+    protected boolean isIndexed(DecoratedKey partitionKey, ColumnFamily columnFamily, long timestamp) {
+        Lock lock = indexedRows.lock(partitionKey);
+        lock.lock();
+        try {
+            ColumnFamily cachedColumnFamily = indexedRows.get(partitionKey);
+            if (cachedColumnFamily == null) {
+                return false;
+            }
+            Set<CellName> cachedRows = mapper.splitRows(cleanExpired(cachedColumnFamily, timestamp)).keySet();
+            return cachedRows.containsAll(mapper.splitRows(columnFamily).keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void doDelete(IndexBatch batch, DecoratedKey partitionKey) throws IOException {
+        invalidate(partitionKey);
         Term term = mapper.term(partitionKey);
-        lucene.delete(term);
+        batch.delete(lucene.shard(partitionKey), term);
     }
 
     /** {@inheritDoc} */
     @Override
     public Map<Term, Document> documents(DecoratedKey partitionKey, ColumnFamily columnFamily, long timestamp) {
+        Map<CellName, Columns> rows = indexedRows == null
+                                      ? completeRows(partitionKey, columnFamily, timestamp)
+                                      : columns(partitionKey, cachedRows(partitionKey, columnFamily, timestamp));
+        Map<Term, Document> documents = new HashMap<>(rows.size());
+        DocumentTemplate template = rows.size() == 1 ? template() : null;
+        for (Entry<CellName, Columns> entry : rows.entrySet()) {
+            CellName clusteringKey = entry.getKey();
+            Columns columns = entry.getValue();
+            Term term = mapper.term(partitionKey, clusteringKey);
+            Document document = mapper.document(partitionKey, clusteringKey, columns, template);
+            documents.put(term, document);
+        }
+        return documents;
+    }
+
+    /**
+     * Returns the {@link Columns} of the specified CQL3 rows.
+     *
+     * @param partitionKey The partition key.
+     * @param rows         The CQL3 rows indexed by clustering key.
+     * @return The {@link Columns} of {@code rows} indexed by clustering key.
+     */
+    private Map<CellName, Columns> columns(DecoratedKey partitionKey, Map<CellName, ColumnFamily> rows) {
+        Map<CellName, Columns> columns = new LinkedHashMap<>(rows.size());
+        for (Entry<CellName, ColumnFamily> entry : rows.entrySet()) {
+            columns.put(entry.getKey(), mapper.columns(partitionKey, entry.getValue()));
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the {@link Columns} of the complete CQL3 rows resulting of applying the specified update, reading from
+     * the storage engine the rows for which the update doesn't contain all the mapped columns. The {@link Columns} of
+     * the update computed during its validation are reused if it has no expired nor deleted cells.
+     *
+     * @param partitionKey The partition key.
+     * @param columnFamily The updated {@link ColumnFamily}.
+     * @param timestamp    The time stamp to ignore deleted columns.
+     * @return The {@link Columns} of the updated CQL3 rows indexed by clustering key.
+     */
+    private Map<CellName, Columns> completeRows(DecoratedKey partitionKey, ColumnFamily columnFamily, long timestamp) {
 
-        Map<CellName, ColumnFamily> incomingRows = mapper.splitRows(columnFamily);
-        Map<Term, Document> documents = new HashMap<>(incomingRows.size());
+        Map<CellName, Columns> incomingRows = validatedRows.take(columnFamily);
+        if (incomingRows == null || !isClean(columnFamily, timestamp)) {
+            incomingRows = columns(partitionKey, mapper.splitRows(cleanExpired(columnFamily, timestamp)));
+        }
+        Map<CellName, Columns> completeRows = new LinkedHashMap<>(incomingRows.size());
         List<CellName> incompleteRows = new ArrayList<>(incomingRows.size());
 
         // Separate complete and incomplete rows
-        for (Map.Entry<CellName, ColumnFamily> entry : incomingRows.entrySet()) {
+        for (Map.Entry<CellName, Columns> entry : incomingRows.entrySet()) {
             CellName clusteringKey = entry.getKey();
-            ColumnFamily rowColumnFamily = entry.getValue();
-            Columns columns = mapper.columns(partitionKey, rowColumnFamily);
+            Columns columns = entry.getValue();
             if (schema.mapsAll(columns)) {
-                Term term = mapper.term(partitionKey, clusteringKey);
-                Document document = mapper.document(partitionKey, clusteringKey, columns);
-                documents.put(term, document);
+                completeRows.put(clusteringKey, columns);
             } else {
                 incompleteRows.add(clusteringKey);
             }
@@ -144,16 +216,62 @@ public class RowServiceWide extends RowService {
 
         // Read incomplete rows from Cassandra storage engine
         if (!incompleteRows.isEmpty()) {
-            for (Entry<CellName, ColumnFamily> entry : rows(partitionKey, incompleteRows, timestamp).entrySet()) {
-                CellName clusteringKey = entry.getKey();
-                ColumnFamily rowColumnFamily = entry.getValue();
-                Columns columns = mapper.columns(partitionKey, rowColumnFamily);
-                Term term = mapper.term(partitionKey, clusteringKey);
-                Document document = mapper.document(partitionKey, clusteringKey, columns);
-                documents.put(term, document);
+            completeRows.putAll(columns(partitionKey, rows(partitionKey, incompleteRows, timestamp)));
+        }
+        return completeRows;
+    }
+
+    /**
+     * Returns the complete CQL3 rows resulting of applying the specified update to the cached partition, which is then
+     * replaced by the updated one. Only the rows which are not cached and for which the update doesn't contain all the
+     * mapped columns are read from the storage engine.
+     *
+     * @param partitionKey The partition key.
+     * @param columnFamily The updated {@link ColumnFamily}.
+     * @param timestamp    The time stamp to ignore deleted columns.
+     * @return The updated CQL3 rows indexed by clustering key.
+     */
+    private Map<CellName, ColumnFamily> cachedRows(DecoratedKey partitionKey,
+                                                   ColumnFamily columnFamily,
+                                                   long timestamp) {
+        Lock lock = indexedRows.lock(partitionKey);
+        lock.lock();
+        try {
+            ColumnFamily cachedColumnFamily = indexedRows.get(partitionKey);
+            Set<CellName> cachedRows = cachedColumnFamily == null
+                                       ? Collections.<CellName>emptySet()
+                                       : mapper.splitRows(cachedColumnFamily).keySet();
+            Set<CellName> updatedRows = mapper.splitRows(cleanExpired(columnFamily, timestamp)).keySet();
+            ColumnFamily mergedColumnFamily = merge(cachedColumnFamily, columnFamily);
+            Map<CellName, ColumnFamily> mergedRows = mapper.splitRows(cleanExpired(mergedColumnFamily, timestamp));
+
+            // Read the rows which are neither cached nor complete
+            List<CellName> incompleteRows = new ArrayList<>(updatedRows.size());
+            for (CellName clusteringKey : updatedRows) {
+                ColumnFamily rowColumnFamily = mergedRows.get(clusteringKey);
+                if (!cachedRows.contains(clusteringKey) &&
+                    (rowColumnFamily == null || !schema.mapsAll(mapper.columns(partitionKey, rowColumnFamily)))) {
+                    incompleteRows.add(clusteringKey);
+                }
+            }
+            if (!incompleteRows.isEmpty()) {
+                mergedColumnFamily = merge(mergedColumnFamily, read(partitionKey, incompleteRows, timestamp));
+                mergedRows = mapper.splitRows(cleanExpired(mergedColumnFamily, timestamp));
             }
+            indexedRows.put(partitionKey, mergedColumnFamily);
+
+            // Keep only the updated rows
+            Map<CellName, ColumnFamily> rows = new LinkedHashMap<>(updatedRows.size());
+            for (CellName clusteringKey : updatedRows) {
+                ColumnFamily rowColumnFamily = mergedRows.get(clusteringKey);
+                if (rowColumnFamily != null) {
+                    rows.put(clusteringKey, rowColumnFamily);
+                }
+            }
+            return rows;
+        } finally {
+            lock.unlock();
         }
-        return documents;
     }
 
     /**
@@ -212,20 +330,8 @@ public class RowServiceWide extends RowService {
      * @return The CQL3 {@link Row} identified by the specified key pair.
      */
     private Map<CellName, ColumnFamily> rows(DecoratedKey partitionKey, List<CellName> clusteringKeys, long timestamp) {
-        ColumnSlice[] slices = mapper.columnSlices(clusteringKeys);
 
-        if (baseCfs.metadata.hasStaticColumns()) {
-            LinkedList<ColumnSlice> l = new LinkedList<>(Arrays.asList(slices));
-            l.addFirst(baseCfs.metadata.comparator.staticPrefix().slice());
-            slices = new ColumnSlice[l.size()];
-            slices = l.toArray(slices);
-        }
-
-        int compositesToGroup = baseCfs.metadata.clusteringColumns().size();
-        SliceQueryFilter dataFilter = new SliceQueryFilter(slices, false, Integer.MAX_VALUE, compositesToGroup);
-        QueryFilter queryFilter = new QueryFilter(partitionKey, baseCfs.name, dataFilter, timestamp);
-
-        ColumnFamily queryColumnFamily = baseCfs.getColumnFamily(queryFilter);
+        ColumnFamily queryColumnFamily = read(partitionKey, clusteringKeys, timestamp);
 
         // Avoid null
         if (queryColumnFamily == null) {
@@ -239,4 +345,29 @@ public class RowServiceWide extends RowService {
         return mapper.splitRows(cleanQueryColumnFamily);
     }
 
+    /**
+     * Returns the {@link ColumnFamily} containing the CQL3 rows identified by the specified key pairs as it is
+     * retrieved from the storage engine, without removing its tombstones.
+     *
+     * @param partitionKey   The partition key.
+     * @param clusteringKeys The clustering keys.
+     * @param timestamp      The read time stamp.
+     * @return The stored {@link ColumnFamily}, or {@code null} if there is no such partition.
+     */
+    private ColumnFamily read(DecoratedKey partitionKey, List<CellName> clusteringKeys, long timestamp) {
+        ColumnSlice[] slices = mapper.columnSlices(clusteringKeys);
+
+        if (baseCfs.metadata.hasStaticColumns()) {
+            LinkedList<ColumnSlice> l = new LinkedList<>(Arrays.asList(slices));
+            l.addFirst(baseCfs.metadata.comparator.staticPrefix().slice());
+            slices = new ColumnSlice[l.size()];
+            slices = l.toArray(slices);
+        }
+
+        int compositesToGroup = baseCfs.metadata.clusteringColumns().size();
+        SliceQueryFilter dataFilter = new SliceQueryFilter(slices, false, Integer.MAX_VALUE, compositesToGroup);
+        QueryFilter queryFilter = new QueryFilter(partitionKey, baseCfs.name, dataFilter, timestamp);
+        return baseCfs.getColumnFamily(queryFilter);
+    }
+
 }
@@ -0,0 +1,240 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A bounded LRU cache of the {@link SearchResult}s found by Lucene searches. Entries are bound to the version of the
+ * index reader used to find them, so they are never returned for a different reader. All the entries are discarded
+ * each time the associated {@link org.apache.lucene.search.ReferenceManager} opens a new reader.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class SearchCache implements ReferenceManager.RefreshListener {
+
+    /** The cached search results. */
+    private final Cache<Key, Entry> cache;
+
+    /**
+     * Builds a new {@link SearchCache} with the specified max number of entries.
+     *
+     * @param maxSize The max number of cached searches.
+     */
+    public SearchCache(int maxSize) {
+        cache = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+    }
+
+    /**
+     * Returns the key for the specified search arguments using the specified {@link IndexSearcher}.
+     *
+     * @param searcher The {@link IndexSearcher} to be used.
+     * @param query    The Lucene {@link Query}, including the data range restrictions.
+     * @param sort     The Lucene {@link Sort}.
+     * @param after    The {@link RowKey} to start the search after, maybe {@code null}.
+     * @param limit    The max number of rows to be returned.
+     * @param distinct If CQL DISTINCT operator is used.
+     * @return A search cache key.
+     */
+    public Key key(IndexSearcher searcher, Query query, Sort sort, RowKey after, int limit, boolean distinct) {
+        IndexReader reader = searcher.getIndexReader();
+        long version = -1;
+        if (reader instanceof DirectoryReader) {
+            version = ((DirectoryReader) reader).getVersion();
+        } else if (reader instanceof ShardedSearcherManager.ShardsReader) {
+            version = ((ShardedSearcherManager.ShardsReader) reader).getVersion();
+        }
+        return new Key(version, query, sort, after, limit, distinct);
+    }
+
+    /**
+     * Returns the cached {@link Entry} for the specified {@link Key}, or {@code null} if there is no such entry.
+     *
+     * @param key A search cache key.
+     * @return The cached {@link Entry}, maybe {@code null}.
+     */
+    public Entry get(Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Caches the specified {@link Entry} for the specified {@link Key}.
+     *
+     * @param key   A search cache key.
+     * @param entry The {@link Entry} to be cached.
+     */
+    public void put(Key key, Entry entry) {
+        cache.put(key, entry);
+    }
+
+    /**
+     * Discards all the cached entries.
+     */
+    public void invalidate() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns the number of times a lookup has found a cached entry.
+     *
+     * @return The number of cache hits.
+     */
+    public long getHits() {
+        return cache.stats().hitCount();
+    }
+
+    /**
+     * Returns the number of times a lookup has not found a cached entry.
+     *
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        return cache.stats().missCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void beforeRefresh() {
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void afterRefresh(boolean didRefresh) {
+        if (didRefresh) {
+            invalidate();
+        }
+    }
+
+    /** The identity of a search against a certain index reader. */
+    public static final class Key {
+
+        private final long version;
+        private final Query query;
+        private final Sort sort;
+        private final RowKey after;
+        private final int limit;
+        private final boolean distinct;
+
+        private Key(long version, Query query, Sort sort, RowKey after, int limit, boolean distinct) {
+            this.version = version;
+            this.query = query;
+            this.sort = sort;
+            this.after = after;
+            this.limit = limit;
+            this.distinct = distinct;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return version == key.version
+                   && limit == key.limit
+                   && distinct == key.distinct
+                   && query.equals(key.query)
+                   && sort.equals(key.sort)
+                   && Objects.equal(after, key.after);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(version, query, sort, after, limit, distinct);
+        }
+    }
+
+    /** The ordered results of a search, with the position where the search can be resumed. */
+    public static final class Entry {
+
+        private final List<SearchResult> results;
+        private final ScoreDoc last;
+        private final int numDocs;
+        private final boolean mayBeMoreDocs;
+
+        /**
+         * Builds a new {@link Entry}.
+         *
+         * @param results       The found {@link SearchResult}s, in search order.
+         * @param last          The last found hit, where the search can be resumed.
+         * @param numDocs       The number of found documents, including distinct duplicates.
+         * @param mayBeMoreDocs If there could be more documents after {@code last}.
+         */
+        public Entry(List<SearchResult> results, ScoreDoc last, int numDocs, boolean mayBeMoreDocs) {
+            this.results = Collections.unmodifiableList(new ArrayList<>(results));
+            this.last = last;
+            this.numDocs = numDocs;
+            this.mayBeMoreDocs = mayBeMoreDocs;
+        }
+
+        /**
+         * Returns the found {@link SearchResult}s, in search order.
+         *
+         * @return The found {@link SearchResult}s.
+         */
+        public List<SearchResult> getResults() {
+            return results;
+        }
+
+        /**
+         * Returns the last found hit, where the search can be resumed.
+         *
+         * @return The last found hit.
+         */
+        public ScoreDoc getLast() {
+            return last;
+        }
+
+        /**
+         * Returns the number of found documents, including distinct duplicates.
+         *
+         * @return The number of found documents.
+         */
+        public int getNumDocs() {
+            return numDocs;
+        }
+
+        /**
+         * Returns if there could be more documents after the last found hit.
+         *
+         * @return {@code true} if there could be more documents, {@code false} otherwise.
+         */
+        public boolean mayBeMoreDocs() {
+            return mayBeMoreDocs;
+        }
+    }
+}
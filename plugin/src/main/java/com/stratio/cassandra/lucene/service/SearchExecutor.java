@@ -0,0 +1,111 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded executor shared by all the searches of an index, used by its {@link IndexSearcher}s to collect the index
+ * segment slices in parallel. When its queue is full or it has been shut down the slices are collected by the searching
+ * thread itself, so searches are never rejected. It keeps track of the time spent by the tasks waiting to be run.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+class SearchExecutor extends ThreadPoolExecutor {
+
+    /** The max number of queued tasks per thread before running them in the submitting thread. */
+    private static final int MAX_QUEUED_TASKS_PER_THREAD = 16;
+
+    /** The number of executed tasks. */
+    private final AtomicLong tasks = new AtomicLong();
+
+    /** The total time in nanoseconds spent by the executed tasks waiting to be run. */
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    /**
+     * Builds a new {@link SearchExecutor} with the specified number of threads.
+     *
+     * @param name    The name of the index.
+     * @param threads The number of threads.
+     */
+    SearchExecutor(String name, int threads) {
+        super(threads,
+              threads,
+              0L,
+              TimeUnit.MILLISECONDS,
+              new LinkedBlockingQueue<Runnable>(threads * MAX_QUEUED_TASKS_PER_THREAD),
+              new NamedThreadFactory("LuceneSearching:" + name),
+              new CallerAlwaysRunsPolicy());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void execute(final Runnable command) {
+        final long submitTime = System.nanoTime();
+        super.execute(new Runnable() {
+            @Override
+            public void run() {
+                waitNanos.addAndGet(System.nanoTime() - submitTime);
+                tasks.incrementAndGet();
+                command.run();
+            }
+        });
+    }
+
+    /**
+     * Returns the number of tasks executed by this.
+     *
+     * @return The number of executed tasks.
+     */
+    long getTasks() {
+        return tasks.get();
+    }
+
+    /**
+     * Returns the mean time in milliseconds spent by the executed tasks waiting to be run.
+     *
+     * @return The mean wait time in milliseconds.
+     */
+    double getMeanWaitMillis() {
+        long count = tasks.get();
+        return count == 0 ? 0 : waitNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * {@link RejectedExecutionHandler} running the rejected tasks in the submitting thread. Unlike
+     * {@link CallerRunsPolicy}, the tasks are also run after shutdown, so searches can't wait forever for a discarded
+     * task.
+     */
+    private static class CallerAlwaysRunsPolicy implements RejectedExecutionHandler {
+
+        /** {@inheritDoc} */
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * {@link ReferenceManager} of NRT {@link IndexSearcher}s over several {@link IndexWriter}s, each of them indexing a
+ * different shard of the same index. It works as a {@link SearcherManager} searching a {@link MultiReader} composed by
+ * one {@link DirectoryReader} per shard, where only the readers of the modified shards are reopened on refresh.
+ *
+ * Each shard has a {@link ReadWriteLock} whose read lock is held by the writers during grouped updates that must be
+ * atomic as seen by readers. The write lock of a shard is held only while its new reader is opened, after flushing the
+ * buffered changes without blocking the writers, so the writers wait only for the changes done in the meantime.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+class ShardedSearcherManager extends ReferenceManager<IndexSearcher> {
+
+    private final IndexWriter[] indexWriters;
+    private final ReadWriteLock[] updateLocks;
+    private final SearcherFactory searcherFactory;
+
+    /**
+     * Builds a new {@link ShardedSearcherManager} searching the specified shards.
+     *
+     * @param indexWriters    The {@link IndexWriter} of each shard.
+     * @param updateLocks     The lock preventing the reader of each shard from being reopened during grouped updates.
+     * @param searcherFactory The {@link SearcherFactory} to build the {@link IndexSearcher}s.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    ShardedSearcherManager(IndexWriter[] indexWriters, ReadWriteLock[] updateLocks, SearcherFactory searcherFactory)
+    throws IOException {
+        this.indexWriters = indexWriters;
+        this.updateLocks = updateLocks;
+        this.searcherFactory = searcherFactory;
+        DirectoryReader[] readers = new DirectoryReader[indexWriters.length];
+        try {
+            for (int i = 0; i < indexWriters.length; i++) {
+                readers[i] = DirectoryReader.open(indexWriters[i], true);
+            }
+            current = searcherFactory.newSearcher(new ShardsReader(readers, false), null);
+        } finally {
+            for (DirectoryReader reader : readers) {
+                if (reader != null) {
+                    reader.decRef();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a new {@link IndexSearcher} over the specified shards of the specified {@link IndexSearcher}, which must
+     * have been acquired from this. The returned searcher must be released with {@link #releasePruned(IndexSearcher)},
+     * and it is still usable after releasing the searcher used to build it.
+     *
+     * @param searcher An {@link IndexSearcher} acquired from this.
+     * @param shards   The indexes of the shards to be searched.
+     * @return A new {@link IndexSearcher} over {@code shards}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    IndexSearcher prune(IndexSearcher searcher, List<Integer> shards) throws IOException {
+        DirectoryReader[] readers = ((ShardsReader) searcher.getIndexReader()).shards();
+        DirectoryReader[] prunedReaders = new DirectoryReader[shards.size()];
+        for (int i = 0; i < prunedReaders.length; i++) {
+            prunedReaders[i] = readers[shards.get(i)];
+        }
+        ShardsReader prunedReader = new ShardsReader(prunedReaders, true);
+        try {
+            return searcherFactory.newSearcher(prunedReader, null);
+        } catch (IOException | RuntimeException e) {
+            prunedReader.decRef();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the specified {@link IndexSearcher}, which must have been returned by {@link #acquire()} or by {@link
+     * #prune(IndexSearcher, List)}.
+     *
+     * @param searcher The {@link IndexSearcher} to be released.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    void releasePruned(IndexSearcher searcher) throws IOException {
+        if (((ShardsReader) searcher.getIndexReader()).pruned) {
+            searcher.getIndexReader().decRef();
+        } else {
+            release(searcher);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void decRef(IndexSearcher reference) throws IOException {
+        reference.getIndexReader().decRef();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected IndexSearcher refreshIfNeeded(IndexSearcher referenceToRefresh) throws IOException {
+        IndexReader previousReader = referenceToRefresh.getIndexReader();
+        DirectoryReader[] readers = ((ShardsReader) previousReader).shards();
+        List<DirectoryReader> openedReaders = new ArrayList<>(readers.length);
+        try {
+            for (int i = 0; i < readers.length; i++) {
+                DirectoryReader reader = openIfChanged(i, readers[i]);
+                if (reader != null) {
+                    readers[i] = reader;
+                    openedReaders.add(reader);
+                }
+            }
+            if (openedReaders.isEmpty()) {
+                return null;
+            }
+            ShardsReader reader = new ShardsReader(readers, false);
+            try {
+                return searcherFactory.newSearcher(reader, previousReader);
+            } catch (IOException | RuntimeException e) {
+                reader.decRef();
+                throw e;
+            }
+        } finally {
+            for (DirectoryReader reader : openedReaders) {
+                reader.decRef();
+            }
+        }
+    }
+
+    /**
+     * Returns a new NRT reader of the specified shard if it has changed since the specified reader was opened.
+     *
+     * @param shard  The index of the shard.
+     * @param reader The current reader of the shard.
+     * @return A new reader of the shard, or {@code null} if it hasn't changed.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    private DirectoryReader openIfChanged(int shard, DirectoryReader reader) throws IOException {
+        IndexWriter indexWriter = indexWriters[shard];
+        indexWriter.flush();
+        Lock lock = updateLocks[shard].writeLock();
+        lock.lock();
+        try {
+            return DirectoryReader.openIfChanged(reader, indexWriter, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean tryIncRef(IndexSearcher reference) {
+        return reference.getIndexReader().tryIncRef();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected int getRefCount(IndexSearcher reference) {
+        return reference.getIndexReader().getRefCount();
+    }
+
+    /**
+     * {@link MultiReader} over the {@link DirectoryReader}s of several shards, which are referenced but not owned by
+     * it.
+     */
+    static final class ShardsReader extends MultiReader {
+
+        private final DirectoryReader[] shards;
+        private final boolean pruned;
+
+        /**
+         * Builds a new {@link ShardsReader} over the specified shard readers.
+         *
+         * @param shards The {@link DirectoryReader} of each shard.
+         * @param pruned If the reader doesn't contain all the shards of the index.
+         * @throws IOException If Lucene throws IO errors.
+         */
+        private ShardsReader(DirectoryReader[] shards, boolean pruned) throws IOException {
+            super(shards, false);
+            this.shards = shards.clone();
+            this.pruned = pruned;
+        }
+
+        /**
+         * Returns the {@link DirectoryReader} of each shard.
+         *
+         * @return The shard readers.
+         */
+        DirectoryReader[] shards() {
+            return shards.clone();
+        }
+
+        /**
+         * Returns the sum of the versions of the shard readers, which grows with any change in any of them.
+         *
+         * @return The version of this reader.
+         */
+        long getVersion() {
+            long version = 0;
+            for (DirectoryReader shard : shards) {
+                version += shard.getVersion();
+            }
+            return version;
+        }
+    }
+}
@@ -24,12 +24,16 @@ import org.apache.cassandra.db.Row;
 import org.apache.cassandra.db.RowPosition;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SortField;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -54,6 +58,44 @@ public abstract class TokenMapper {
         }
     }
 
+    /**
+     * Returns the {@link Range} covering the whole token ring of the current partitioner.
+     *
+     * @return The whole token ring.
+     */
+    public static Range<Token> ring() {
+        Token minimum = DatabaseDescriptor.getPartitioner().getMinimumToken();
+        return new Range<>(minimum, minimum);
+    }
+
+    /**
+     * Splits the specified {@link Token} range in the specified number of contiguous ranges, by repeatedly splitting
+     * the widest ranges in halves. The resulting ranges have the same width only if their number is a power of two.
+     *
+     * @param range     The {@link Token} range to be split.
+     * @param numRanges The number of ranges to be returned.
+     * @return The ranges covering {@code range}, in token order.
+     */
+    public static List<Range<Token>> split(Range<Token> range, int numRanges) {
+        IPartitioner partitioner = DatabaseDescriptor.getPartitioner();
+        LinkedList<Range<Token>> ranges = new LinkedList<>();
+        ranges.add(range);
+        while (ranges.size() < numRanges) {
+            Range<Token> widest = ranges.removeFirst();
+            Token midpoint = partitioner.midpoint(widest.left, widest.right);
+            ranges.addLast(new Range<>(widest.left, midpoint));
+            ranges.addLast(new Range<>(midpoint, widest.right));
+        }
+        List<Range<Token>> sortedRanges = new ArrayList<>(ranges);
+        Collections.sort(sortedRanges, new Comparator<Range<Token>>() {
+            @Override
+            public int compare(Range<Token> range1, Range<Token> range2) {
+                return range1.left.compareTo(range2.left);
+            }
+        });
+        return sortedRanges;
+    }
+
     /**
      * Adds to the specified {@link Document} the {@link org.apache.lucene.document.Field}s associated to the token of
      * the specified row key.
@@ -120,6 +162,15 @@ public abstract class TokenMapper {
      */
     public abstract List<SortField> sortFields();
 
+    /**
+     * Returns the values that the {@link SortField}s returned by {@link #sortFields()} assign to the documents of the
+     * specified partition key.
+     *
+     * @param partitionKey A partition key.
+     * @return The sort values of the documents of {@code partitionKey}.
+     */
+    public abstract List<Object> sortValues(DecoratedKey partitionKey);
+
     /**
      * Returns {@code true} if the specified lower row position kind must be included in the filtered range, {@code
      * false} otherwise.
@@ -82,18 +82,13 @@ public class TokenMapperGeneric extends TokenMapper {
     /** {@inheritDoc} */
     @Override
     public List<SortField> sortFields() {
-        return Collections.singletonList(new SortField(FIELD_NAME, new FieldComparatorSource() {
-            @Override
-            public FieldComparator<?> newComparator(String field, int hits, int sort, boolean reversed)
-            throws IOException {
-                return new FieldComparator.TermValComparator(hits, field, false) {
-                    @Override
-                    public int compareValues(BytesRef val1, BytesRef val2) {
-                        return token(val1).compareTo(token(val2));
-                    }
-                };
-            }
-        }));
+        return Collections.singletonList(new SortField(FIELD_NAME, new TokenComparatorSource(this)));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Object> sortValues(DecoratedKey partitionKey) {
+        return Collections.<Object>singletonList(bytesRef(partitionKey.getToken()));
     }
 
     /**
@@ -119,4 +114,45 @@ public class TokenMapperGeneric extends TokenMapper {
         return new BytesRef(bytes);
     }
 
+    /**
+     * {@link FieldComparatorSource} sorting documents by token. All the sources are equal because they share the
+     * partitioner, so the {@link SortField}s of independently built sorts are equal too.
+     */
+    private static final class TokenComparatorSource extends FieldComparatorSource {
+
+        private final TokenMapperGeneric mapper;
+
+        /**
+         * Builds a new {@link TokenComparatorSource} for the specified {@link TokenMapperGeneric}.
+         *
+         * @param mapper The {@link TokenMapperGeneric} to be used.
+         */
+        private TokenComparatorSource(TokenMapperGeneric mapper) {
+            this.mapper = mapper;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public FieldComparator<?> newComparator(String field, int hits, int sort, boolean reversed)
+        throws IOException {
+            return new FieldComparator.TermValComparator(hits, field, false) {
+                @Override
+                public int compareValues(BytesRef val1, BytesRef val2) {
+                    return mapper.token(val1).compareTo(mapper.token(val2));
+                }
+            };
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o != null && getClass() == o.getClass();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return getClass().hashCode();
+        }
+    }
 }
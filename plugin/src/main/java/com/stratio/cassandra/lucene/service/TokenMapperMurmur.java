@@ -93,6 +93,12 @@ public class TokenMapperMurmur extends TokenMapper {
         return Collections.singletonList(new SortField(FIELD_NAME, SortField.Type.LONG));
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public List<Object> sortValues(DecoratedKey partitionKey) {
+        return Collections.<Object>singletonList(value(partitionKey.getToken()));
+    }
+
     static Long value(Token token) {
         return (Long) token.getTokenValue();
     }
@@ -18,6 +18,7 @@
 
 package com.stratio.cassandra.lucene.service;
 
+import com.google.common.base.Objects;
 import org.apache.cassandra.dht.Token;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.lucene.index.FilteredTermsEnum;
@@ -91,6 +92,28 @@ public class TokenQuery extends MultiTermQuery {
                                         .toString();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!super.equals(o)) {
+            return false;
+        }
+        TokenQuery other = (TokenQuery) o;
+        return includeLower == other.includeLower
+               && includeUpper == other.includeUpper
+               && Objects.equal(lower, other.lower)
+               && Objects.equal(upper, other.upper);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Objects.hashCode(lower, upper, includeLower, includeUpper);
+    }
+
     /**
      * {@link FilteredTermsEnum} for generic tokens.
      */
@@ -0,0 +1,72 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.cassandra.db.ColumnFamily;
+
+/**
+ * Bounded hand-off of the mapping results computed while validating an update, to be reused when the same update is
+ * indexed. The results are attached to the {@link ColumnFamily} instance of the update, compared by identity, so they
+ * are only found when the validated update is applied locally. Validation and indexing usually run in different
+ * threads, so the hand-off is shared by all of them.
+ *
+ * The {@link ColumnFamily}s are weakly referenced, so the results of the updates which are never indexed, as those
+ * coordinated for other replicas, are discarded without waiting for eviction.
+ *
+ * @param <T> The type of the mapping results.
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+class ValidationHandOff<T> {
+
+    /** The max number of mapping results waiting to be indexed. */
+    private static final int MAX_SIZE = 1024;
+
+    /** The mapping results waiting to be indexed, indexed by validated update. */
+    private final Cache<ColumnFamily, T> results = CacheBuilder.newBuilder()
+                                                               .weakKeys()
+                                                               .maximumSize(MAX_SIZE)
+                                                               .build();
+
+    /**
+     * Attaches the specified mapping result to the specified validated update.
+     *
+     * @param columnFamily A validated update.
+     * @param result       The mapping result of {@code columnFamily}.
+     */
+    void put(ColumnFamily columnFamily, T result) {
+        results.put(columnFamily, result);
+    }
+
+    /**
+     * Returns and removes the mapping result attached to the specified update.
+     *
+     * @param columnFamily An update.
+     * @return The mapping result of {@code columnFamily}, or {@code null} if there is no such result.
+     */
+    T take(ColumnFamily columnFamily) {
+        T result = results.getIfPresent(columnFamily);
+        if (result != null) {
+            results.invalidate(columnFamily);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.util;
+
+import com.stratio.cassandra.lucene.IndexException;
+import org.apache.lucene.util.BytesRef;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Utility class for serializing the values of Lucene {@link org.apache.lucene.search.FieldDoc}s, which are the
+ * positions where a sorted search can be resumed. Only the value classes produced by the comparators used in this
+ * index are supported, that is, {@link Float}, {@link Long}, {@link Integer}, {@link Double} and {@link BytesRef}.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public final class SortValuesSerializer {
+
+    private static final byte NULL = 0;
+    private static final byte FLOAT = 1;
+    private static final byte LONG = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BYTES_REF = 5;
+
+    /** Private constructor to hide the implicit public one. */
+    private SortValuesSerializer() {
+    }
+
+    /**
+     * Returns the {@link ByteBuffer} representation of the specified sort values.
+     *
+     * @param values The sort values to be serialized.
+     * @return The {@link ByteBuffer} representation of {@code values}.
+     */
+    public static ByteBuffer serialize(Object[] values) {
+        int size = 4;
+        for (Object value : values) {
+            size += 1 + size(value);
+        }
+        ByteBuffer bb = ByteBuffer.allocate(size);
+        bb.putInt(values.length);
+        for (Object value : values) {
+            if (value == null) {
+                bb.put(NULL);
+            } else if (value instanceof Float) {
+                bb.put(FLOAT).putFloat((Float) value);
+            } else if (value instanceof Long) {
+                bb.put(LONG).putLong((Long) value);
+            } else if (value instanceof Integer) {
+                bb.put(INTEGER).putInt((Integer) value);
+            } else if (value instanceof Double) {
+                bb.put(DOUBLE).putDouble((Double) value);
+            } else {
+                BytesRef bytesRef = (BytesRef) value;
+                bb.put(BYTES_REF).putInt(bytesRef.length).put(bytesRef.bytes, bytesRef.offset, bytesRef.length);
+            }
+        }
+        bb.flip();
+        return bb;
+    }
+
+    /**
+     * Returns the sort values represented by the specified {@link ByteBuffer}, which is not modified.
+     *
+     * @param byteBuffer A {@link ByteBuffer} generated with {@link #serialize(Object[])}.
+     * @return The sort values represented by {@code byteBuffer}.
+     */
+    public static Object[] deserialize(ByteBuffer byteBuffer) {
+        ByteBuffer bb = byteBuffer.duplicate();
+        Object[] values = new Object[bb.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            byte type = bb.get();
+            switch (type) {
+                case NULL:
+                    values[i] = null;
+                    break;
+                case FLOAT:
+                    values[i] = bb.getFloat();
+                    break;
+                case LONG:
+                    values[i] = bb.getLong();
+                    break;
+                case INTEGER:
+                    values[i] = bb.getInt();
+                    break;
+                case DOUBLE:
+                    values[i] = bb.getDouble();
+                    break;
+                case BYTES_REF:
+                    byte[] bytes = new byte[bb.getInt()];
+                    bb.get(bytes);
+                    values[i] = new BytesRef(bytes);
+                    break;
+                default:
+                    throw new IndexException("Unknown sort value type %d", type);
+            }
+        }
+        return values;
+    }
+
+    private static int size(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Float || value instanceof Integer) {
+            return 4;
+        } else if (value instanceof Long || value instanceof Double) {
+            return 8;
+        } else if (value instanceof BytesRef) {
+            return 4 + ((BytesRef) value).length;
+        } else {
+            throw new IndexException("Unsupported sort value type %s", value.getClass().getSimpleName());
+        }
+    }
+}
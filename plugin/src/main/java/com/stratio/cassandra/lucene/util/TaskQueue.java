@@ -16,140 +16,268 @@
  * under the License.
  */
 
+
 package com.stratio.cassandra.lucene.util;
 
 import com.stratio.cassandra.lucene.IndexException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A queue that executes each submitted task using one of possibly several pooled threads. Tasks can be submitted with
  * an identifier, ensuring that all tasks with same identifier will be executed orderly in the same thread. Each thread
  * has its own task queue.
  *
+ * Each thread queue is a bounded ring buffer where the submitting threads claim sequence numbers without locking, and
+ * where the executor thread consumes the tasks in sequence order. Waiting for the completion of the submitted tasks
+ * doesn't stop new submissions, it just waits for the executor threads to reach the last claimed sequence numbers.
+ *
  * @author Andres de la Pena {@literal <adelapena@stratio.com>}
  */
 public class TaskQueue {
 
     private static final Logger logger = LoggerFactory.getLogger(TaskQueue.class);
 
-    private final NotifyingBlockingThreadPoolExecutor[] pools;
-
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Shard[] shards;
 
     /**
      * Returns a new {@link TaskQueue}.
      *
-     * @param numThreads The number of executor threads.
-     * @param queuesSize The max number of tasks in each thread queue before blocking.
+     * @param numThreads    The number of executor threads.
+     * @param queuesSize    The max number of tasks in each thread queue before blocking.
+     * @param waitStrategy  The {@link WaitStrategy} used by the threads waiting for tasks or free space.
+     * @param threadFactory The {@link ThreadFactory} used to create the executor threads.
      */
-    public TaskQueue(int numThreads, int queuesSize) {
-
-        pools = new NotifyingBlockingThreadPoolExecutor[numThreads];
+    public TaskQueue(int numThreads, int queuesSize, WaitStrategy waitStrategy, ThreadFactory threadFactory) {
+        shards = new Shard[numThreads];
         for (int i = 0; i < numThreads; i++) {
-            pools[i] = new NotifyingBlockingThreadPoolExecutor(1,
-                                                               queuesSize,
-                                                               Long.MAX_VALUE,
-                                                               TimeUnit.DAYS,
-                                                               0,
-                                                               TimeUnit.NANOSECONDS,
-                                                               null);
-            pools[i].submit(new Runnable() {
-                @Override
-                public void run() {
-                    logger.debug("Task queue starts");
-                }
-            });
+            shards[i] = new Shard(queuesSize, waitStrategy);
+            Thread thread = threadFactory.newThread(shards[i]);
+            shards[i].consumer = thread;
+            thread.start();
         }
+        logger.debug("Task queue starts");
     }
 
     /**
      * Submits a non value-returning task for asynchronous execution.
      *
      * The specified identifier is used to choose the thread executor where the task will be queued. The selection and
-     * load balancing is based in the {@link #hashCode()} of this identifier.
+     * load balancing is based in the {@link #hashCode()} of this identifier. If the thread queue is full, this method
+     * waits until there is free space.
      *
      * @param id   The identifier of the task used to choose the thread executor where the task will be queued for
      *             asynchronous execution.
      * @param task A task to be queued for asynchronous execution.
-     * @return A future for the submitted task.
      */
-    public Future<?> submitAsynchronous(Object id, Runnable task) {
-        lock.readLock().lock();
-        try {
-            int i = Math.abs(id.hashCode() % pools.length);
-            return pools[i].submit(task);
-        } catch (Exception e) {
-            logger.error("Task queue submission failed", e);
-            throw new IndexException(e);
-        } finally {
-            lock.readLock().unlock();
-        }
+    public void submitAsynchronous(Object id, Runnable task) {
+        shards[worker(id)].publish(task);
     }
 
     /**
-     * Submits a non value-returning task for synchronous execution. It waits for all synchronous tasks to be
-     * completed.
+     * Returns the number of executor threads.
      *
-     * @param task A task to be executed synchronously.
+     * @return The number of executor threads.
      */
-    public void submitSynchronous(Runnable task) {
-        lock.writeLock().lock();
-        try {
-            await();
-            task.run();
-        } finally {
-            lock.writeLock().unlock();
-        }
+    public int getNumThreads() {
+        return shards.length;
     }
 
     /**
-     * Await for task completion.
+     * Returns the index of the thread executor where the tasks with the specified identifier are queued.
+     *
+     * @param id The identifier of a task.
+     * @return The index of the thread executor for {@code id}, between {@code 0} and the number of threads.
+     */
+    public int worker(Object id) {
+        return Math.abs(id.hashCode() % shards.length);
+    }
+
+    /**
+     * Returns if the specified thread executor has no queued tasks waiting for execution, apart from the running one.
+     *
+     * @param worker The index of a thread executor.
+     * @return {@code true} if there are no queued tasks, {@code false} otherwise.
+     */
+    public boolean isDrained(int worker) {
+        return shards[worker].size() <= 1;
+    }
+
+    /**
+     * Await for the completion of all the tasks submitted before the call to this method. Tasks submitted during the
+     * wait are not awaited.
      */
     public void await() {
-        lock.writeLock().lock();
-        try {
-            Future<?>[] futures = new Future<?>[pools.length];
-            for (int i = 0; i < pools.length; i++) {
-                Future<?> future = pools[i].submit(new Runnable() {
-                    @Override
-                    public void run() {
-                    }
-                });
-                futures[i] = future;
-            }
-            for (Future<?> future : futures) {
-                future.get();
-            }
-        } catch (InterruptedException e) {
-            logger.error("Task queue await interrupted", e);
-            throw new IndexException(e);
-        } catch (ExecutionException e) {
-            logger.error("Task queue await failed", e);
-            throw new IndexException(e);
-        } finally {
-            lock.writeLock().unlock();
+        long[] sequences = new long[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            sequences[i] = shards[i].claimed.get();
+        }
+        for (int i = 0; i < shards.length; i++) {
+            shards[i].waitFor(sequences[i]);
         }
     }
 
     /**
-     * Shutdowns this task.
+     * Shutdowns this task. The already submitted tasks are executed, but new tasks are rejected.
      */
     public void shutdown() {
-        lock.writeLock().lock();
-        try {
-            for (int i = 0; i < pools.length; i++) {
-                pools[i].shutdown();
-            }
-        } finally {
-            lock.writeLock().unlock();
+        for (Shard shard : shards) {
+            shard.running = false;
+            LockSupport.unpark(shard.consumer);
         }
     }
 
-}
\ No newline at end of file
+    /** A bounded multi-producer single-consumer ring buffer of tasks and its consumer. */
+    private static final class Shard implements Runnable {
+
+        /** The slots for the published tasks, {@code null} means empty. */
+        private final AtomicReferenceArray<Runnable> buffer;
+
+        /** The mask to get the slot of a sequence number. */
+        private final int mask;
+
+        /** The way in which producers and consumer wait. */
+        private final WaitStrategy waitStrategy;
+
+        /** The next sequence number to be claimed by a producer. */
+        private final AtomicLong claimed = new AtomicLong();
+
+        /** The number of completed tasks, which is the next sequence number to be consumed. */
+        private final AtomicLong completed = new AtomicLong();
+
+        /** The threads parked waiting for the completion of a sequence number. */
+        private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+        /** The consumer thread. */
+        private volatile Thread consumer;
+
+        /** If the consumer thread is parked waiting for a new task. */
+        private volatile boolean consumerParked = false;
+
+        /** If new tasks are accepted. */
+        private volatile boolean running = true;
+
+        /** If the consumer thread has finished. */
+        private volatile boolean terminated = false;
+
+        /**
+         * Builds a new empty {@link Shard}.
+         *
+         * @param size         The min number of slots, which will be rounded to the next power of two.
+         * @param waitStrategy The way in which producers and consumer wait.
+         */
+        Shard(int size, WaitStrategy waitStrategy) {
+            int capacity = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+            buffer = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+            this.waitStrategy = waitStrategy;
+        }
+
+        /**
+         * Returns the number of submitted tasks which have not been completed yet.
+         *
+         * @return The number of queued and running tasks.
+         */
+        long size() {
+            return claimed.get() - completed.get();
+        }
+
+        /**
+         * Adds the specified task to the buffer, waiting for free space if needed.
+         *
+         * @param task The task to be executed.
+         */
+        void publish(Runnable task) {
+            long sequence;
+            while (true) {
+                if (!running) {
+                    throw new IndexException("Task queue submission failed: the queue is shut down");
+                }
+                sequence = claimed.get();
+                if (sequence - completed.get() >= buffer.length()) {
+                    waitFor(sequence - buffer.length() + 1);
+                } else if (claimed.compareAndSet(sequence, sequence + 1)) {
+                    break;
+                }
+            }
+            buffer.set((int) sequence & mask, task);
+            if (consumerParked) {
+                LockSupport.unpark(consumer);
+            }
+        }
+
+        /**
+         * Waits until the specified number of tasks have been completed, or until the consumer thread is terminated.
+         *
+         * @param sequence The number of tasks to be completed.
+         */
+        void waitFor(long sequence) {
+            int attempt = 0;
+            while (completed.get() < sequence && !terminated) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IndexException("Task queue await interrupted");
+                }
+                if (waitStrategy.parks(attempt)) {
+                    Thread thread = Thread.currentThread();
+                    waiters.add(thread);
+                    if (completed.get() < sequence) {
+                        waitStrategy.idle(attempt);
+                    }
+                    waiters.remove(thread);
+                } else {
+                    waitStrategy.idle(attempt);
+                }
+                attempt = WaitStrategy.next(attempt);
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void run() {
+            long sequence = 0;
+            int attempt = 0;
+            while (true) {
+                int slot = (int) sequence & mask;
+                Runnable task = buffer.get(slot);
+                if (task != null) {
+                    buffer.lazySet(slot, null);
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        logger.error("Task queue execution failed", e);
+                    }
+                    completed.set(++sequence);
+                    if (!waiters.isEmpty()) {
+                        for (Thread waiter : waiters) {
+                            LockSupport.unpark(waiter);
+                        }
+                    }
+                    attempt = 0;
+                } else if (!running && sequence >= claimed.get()) {
+                    break;
+                } else if (waitStrategy.parks(attempt)) {
+                    consumerParked = true;
+                    if (buffer.get(slot) == null && running) {
+                        waitStrategy.idle(attempt);
+                    }
+                    consumerParked = false;
+                    attempt = WaitStrategy.next(attempt);
+                } else {
+                    waitStrategy.idle(attempt);
+                    attempt = WaitStrategy.next(attempt);
+                }
+            }
+            terminated = true;
+            for (Thread waiter : waiters) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The ways in which a {@link TaskQueue} thread can wait for a condition to be satisfied, trading latency for CPU usage.
+ * All the strategies first spin a few times before using their specific waiting method.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public enum WaitStrategy {
+
+    /** Parks the thread until it is signaled, using the least CPU. */
+    BLOCKING,
+
+    /** Yields the thread for a while and then periodically sleeps it for a short time. */
+    SLEEPING,
+
+    /** Yields the thread, giving low latency at the cost of CPU usage. */
+    YIELDING,
+
+    /** Spins the thread, giving the lowest latency at the cost of keeping a CPU busy. */
+    BUSY_SPIN;
+
+    /** The number of failed checks before starting to use the specific waiting method. */
+    private static final int SPIN_TRIES = 100;
+
+    /** The nanoseconds slept by {@link #SLEEPING} strategy. */
+    private static final long SLEEP_NANOS = 100000;
+
+    /**
+     * The max nanoseconds parked by {@link #BLOCKING} strategy without being signaled. Parked threads are always
+     * signaled when the awaited condition changes, so this is just a safety timeout, long enough to keep idle threads
+     * from waking up often.
+     */
+    private static final long MAX_PARK_NANOS = 100000000;
+
+    /**
+     * Returns the {@link WaitStrategy} represented by the specified name, ignoring case.
+     *
+     * @param name A {@link WaitStrategy} name.
+     * @return The {@link WaitStrategy} represented by {@code name}, or {@code null} if there is no such strategy.
+     */
+    public static WaitStrategy fromName(String name) {
+        for (WaitStrategy waitStrategy : values()) {
+            if (waitStrategy.name().equalsIgnoreCase(name)) {
+                return waitStrategy;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of failed checks after failing again a check which has already failed the specified number of
+     * times. The returned number never exceeds the point from which all the strategies wait in the same way, so it
+     * doesn't overflow during long waits.
+     *
+     * @param attempt The number of previous failed checks of the awaited condition.
+     * @return The number of failed checks including the new failure.
+     */
+    static int next(int attempt) {
+        return attempt < 2 * SPIN_TRIES ? attempt + 1 : 2 * SPIN_TRIES;
+    }
+
+    /**
+     * Returns if waiting after the specified number of failed checks parks the thread until it is signaled with
+     * {@link LockSupport#unpark(Thread)}.
+     *
+     * @param attempt The number of previous failed checks of the awaited condition.
+     * @return {@code true} if the waiting thread must be signaled, {@code false} otherwise.
+     */
+    boolean parks(int attempt) {
+        return this == BLOCKING && attempt >= SPIN_TRIES;
+    }
+
+    /**
+     * Waits before checking again a condition which has failed the specified number of times.
+     *
+     * @param attempt The number of previous failed checks of the awaited condition.
+     */
+    void idle(int attempt) {
+        if (attempt < SPIN_TRIES || this == BUSY_SPIN) {
+            return;
+        }
+        switch (this) {
+            case BLOCKING:
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                break;
+            case SLEEPING:
+                if (attempt < 2 * SPIN_TRIES) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(this, SLEEP_NANOS);
+                }
+                break;
+            default:
+                Thread.yield();
+        }
+    }
+}
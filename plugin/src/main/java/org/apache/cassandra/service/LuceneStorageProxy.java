@@ -21,7 +21,6 @@ package org.apache.cassandra.service;
 import com.stratio.cassandra.lucene.IndexSearcher;
 import com.stratio.cassandra.lucene.service.RowKey;
 import com.stratio.cassandra.lucene.service.RowKeys;
-import com.stratio.cassandra.lucene.service.RowMapper;
 import org.apache.cassandra.concurrent.Stage;
 import org.apache.cassandra.concurrent.StageManager;
 import org.apache.cassandra.config.DatabaseDescriptor;
@@ -40,6 +39,7 @@ import org.apache.cassandra.net.AsyncOneResponse;
 import org.apache.cassandra.net.MessageOut;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.tracing.Tracing;
+import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.Pair;
 import org.slf4j.Logger;
@@ -47,6 +47,7 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Method;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -146,10 +147,14 @@ public class LuceneStorageProxy {
         return null;
     }
 
-    public static RowKey last(RowMapper mapper, RowKey rowKey, List<Row> rows, List<Row> processedRows) {
+    public static RowKey last(IndexSearcher searcher,
+                              List<IndexExpression> expressions,
+                              RowKey rowKey,
+                              List<Row> rows,
+                              List<Row> processedRows) {
         for (int i = rows.size() - 1; i >= 0; i--) {
             Row row = rows.get(i);
-            if (processedRows.contains(row)) return mapper.rowKey(row);
+            if (processedRows.contains(row)) return searcher.cursor(expressions, row);
         }
         return rowKey;
     }
@@ -165,6 +170,19 @@ public class LuceneStorageProxy {
                                                          ConsistencyLevel consistency_level,
                                                          RowKeys rowKeys,
                                                          boolean countCQL3Rows) throws Exception {
+        if (searcher.requiresTwoPhases(expressions, predicate, consistency_level)) {
+            return getRangeSliceTwoPhases(searcher,
+                                          keyspaceName,
+                                          columnFamily,
+                                          timestamp,
+                                          predicate,
+                                          keyRange,
+                                          expressions,
+                                          limit,
+                                          consistency_level,
+                                          rowKeys,
+                                          countCQL3Rows);
+        }
         Tracing.trace("Computing ranges to query");
         long startTime = System.nanoTime();
 
@@ -283,6 +301,12 @@ public class LuceneStorageProxy {
                         decoratedExpressions.add(new IndexExpression(IndexSearcher.AFTER,
                                                                      Operator.EQ,
                                                                      searcher.mapper().byteBuffer(after)));
+                        ByteBuffer sortValues = searcher.mapper().sortValuesByteBuffer(after);
+                        if (sortValues != null) {
+                            decoratedExpressions.add(new IndexExpression(IndexSearcher.AFTER_SORT_VALUES,
+                                                                         Operator.EQ,
+                                                                         sortValues));
+                        }
                     }
                     RangeSliceCommand command = new RangeSliceCommand(keyspaceName,
                                                                       columnFamily,
@@ -384,7 +408,7 @@ public class LuceneStorageProxy {
                 }
 
                 if (haveSufficientRows)
-                    return makeResult(rows, searcher, expressions, limit, rowsPerRange, rowKeys, searcher.mapper());
+                    return makeResult(rows, searcher, expressions, limit, rowsPerRange, rowKeys);
 
                 // we didn't get enough rows in our concurrent fetch; recalculate our concurrency factor
                 // based on the results we've seen so far (as long as we still have ranges left to query)
@@ -415,7 +439,149 @@ public class LuceneStorageProxy {
             Keyspace.open(keyspaceName).getColumnFamilyStore(columnFamily).metric.coordinatorScanLatency.update(latency,
                                                                                                                 TimeUnit.NANOSECONDS);
         }
-        return makeResult(rows, searcher, expressions, limit, rowsPerRange, rowKeys, searcher.mapper());
+        return makeResult(rows, searcher, expressions, limit, rowsPerRange, rowKeys);
+    }
+
+    private static Pair<List<Row>, RowKeys> getRangeSliceTwoPhases(IndexSearcher searcher,
+                                                                   String keyspaceName,
+                                                                   String columnFamily,
+                                                                   long timestamp,
+                                                                   IDiskAtomFilter predicate,
+                                                                   AbstractBounds<RowPosition> keyRange,
+                                                                   List<IndexExpression> expressions,
+                                                                   int limit,
+                                                                   ConsistencyLevel consistency_level,
+                                                                   RowKeys rowKeys,
+                                                                   boolean countCQL3Rows) throws Exception {
+
+        // Collect the global best keys, the query consistency level is always ONE or LOCAL_ONE, so there is no
+        // read-repair of the synthetic key rows
+        List<IndexExpression> keysExpressions = new ArrayList<>(expressions);
+        keysExpressions.add(new IndexExpression(IndexSearcher.KEYS_ONLY,
+                                                Operator.EQ,
+                                                ByteBufferUtil.EMPTY_BYTE_BUFFER));
+        List<Row> rows = new ArrayList<>();
+        RowKeys keysCursor = rowKeys;
+        while (rows.size() < limit) {
+            int keysLimit = limit - rows.size();
+            Tracing.trace("Collecting {} best keys", keysLimit);
+            Pair<List<Row>, RowKeys> keys = getRangeSlice(searcher,
+                                                          keyspaceName,
+                                                          columnFamily,
+                                                          timestamp,
+                                                          predicate,
+                                                          keyRange,
+                                                          keysExpressions,
+                                                          keysLimit,
+                                                          consistency_level,
+                                                          keysCursor,
+                                                          countCQL3Rows);
+            List<Row> keyRows = keys.left;
+            if (keyRows.isEmpty()) {
+                break;
+            }
+            keysCursor = keys.right;
+
+            // Read only the rows of the best keys
+            Tracing.trace("Reading {} best rows", keyRows.size());
+            List<ReadCommand> commands = searcher.mapper().readCommands(keyRows, timestamp, predicate);
+            List<Row> partitions = StorageProxy.read(commands, consistency_level);
+            rows.addAll(searcher.rows(keysExpressions, keyRows, partitions, timestamp));
+
+            // Stop if there are no more keys, otherwise replace the rows that are gone since the keys were collected
+            if (keyRows.size() < keysLimit) {
+                break;
+            }
+        }
+        return Pair.create(rows, keysCursor);
+    }
+
+    public static long getCount(IndexSearcher searcher,
+                                String keyspaceName,
+                                String columnFamily,
+                                long timestamp,
+                                IDiskAtomFilter predicate,
+                                AbstractBounds<RowPosition> keyRange,
+                                List<IndexExpression> expressions,
+                                ConsistencyLevel consistency_level) throws Exception {
+        Tracing.trace("Computing ranges to count");
+        long startTime = System.nanoTime();
+
+        Keyspace keyspace = Keyspace.open(keyspaceName);
+        List<IndexExpression> countExpressions = new ArrayList<>(expressions);
+        countExpressions.add(new IndexExpression(IndexSearcher.COUNT_ONLY,
+                                                 Operator.EQ,
+                                                 ByteBufferUtil.EMPTY_BYTE_BUFFER));
+
+        // Count with a single replica per range, the query consistency level is always ONE or LOCAL_ONE
+        try {
+            List<? extends AbstractBounds<RowPosition>> ranges;
+            if (keyspace.getReplicationStrategy() instanceof LocalStrategy) ranges = keyRange.unwrap();
+            else ranges = StorageProxy.getRestrictedRanges(keyRange);
+
+            // Send all the count requests at once, merging consecutive ranges whenever it is possible because each
+            // request costs a single Lucene search no matter how many rows it counts
+            List<ReadCallback<RangeSliceReply, Iterable<Row>>> handlers = new ArrayList<>();
+            int i = 0;
+            while (i < ranges.size()) {
+                AbstractBounds<RowPosition> range = ranges.get(i);
+                List<InetAddress> liveEndpoints = getLiveSortedEndpoints(keyspace, range.right);
+                ++i;
+                while (i < ranges.size() && !range.right.isMinimum()) {
+                    AbstractBounds<RowPosition> nextRange = ranges.get(i);
+                    List<InetAddress> nextEndpoints = getLiveSortedEndpoints(keyspace, nextRange.right);
+                    List<InetAddress> merged = intersection(liveEndpoints, nextEndpoints);
+                    if (!consistency_level.isSufficientLiveNodes(keyspace, merged)) break;
+                    range = range.withNewRight(nextRange.right);
+                    liveEndpoints = merged;
+                    ++i;
+                }
+                List<InetAddress> filteredEndpoints = consistency_level.filterForQuery(keyspace, liveEndpoints);
+
+                RangeSliceCommand command = new RangeSliceCommand(keyspaceName,
+                                                                  columnFamily,
+                                                                  timestamp,
+                                                                  predicate,
+                                                                  range,
+                                                                  countExpressions,
+                                                                  1);
+                RangeSliceResponseResolver resolver = new RangeSliceResponseResolver(keyspaceName, timestamp);
+                ReadCallback<RangeSliceReply, Iterable<Row>> handler = new ReadCallback<>(resolver,
+                                                                                          consistency_level,
+                                                                                          command,
+                                                                                          filteredEndpoints);
+                handler.assureSufficientLiveNodes();
+                resolver.setSources(filteredEndpoints);
+                if (filteredEndpoints.size() == 1 &&
+                    filteredEndpoints.get(0).equals(FBUtilities.getBroadcastAddress())) {
+                    StageManager.getStage(Stage.READ)
+                                .execute(new LocalRangeSliceRunnable(command, handler), Tracing.instance.get());
+                } else {
+                    MessageOut<? extends AbstractRangeCommand> message = command.createMessage();
+                    for (InetAddress endpoint : filteredEndpoints) {
+                        Tracing.trace("Enqueuing count request to {}", endpoint);
+                        MessagingService.instance().sendRR(message, endpoint, handler);
+                    }
+                }
+                handlers.add(handler);
+            }
+            Tracing.trace("Submitted {} count requests covering {} ranges", handlers.size(), ranges.size());
+
+            // Add the partial counts
+            long count = 0;
+            for (ReadCallback<RangeSliceReply, Iterable<Row>> handler : handlers) {
+                for (Row row : handler.get()) {
+                    count += searcher.mapper().count(row);
+                }
+            }
+            Tracing.trace("Counted {} rows", count);
+            return count;
+        } finally {
+            long latency = System.nanoTime() - startTime;
+            rangeMetrics.addNano(latency);
+            keyspace.getColumnFamilyStore(columnFamily).metric.coordinatorScanLatency.update(latency,
+                                                                                             TimeUnit.NANOSECONDS);
+        }
     }
 
     public static Pair<List<Row>, RowKeys> makeResult(List<Row> rows,
@@ -423,14 +589,13 @@ public class LuceneStorageProxy {
                                                       List<IndexExpression> expressions,
                                                       int limit,
                                                       Map<AbstractBounds<RowPosition>, List<Row>> rowsPerRange,
-                                                      RowKeys rowKeys,
-                                                      RowMapper mapper) {
+                                                      RowKeys rowKeys) {
         rows = searcher.postReconciliationProcessing(expressions, rows);
         rows = rows.size() > limit ? rows.subList(0, limit) : rows;
         RowKeys newRowKeys = new RowKeys();
         for (Map.Entry<AbstractBounds<RowPosition>, List<Row>> entry : rowsPerRange.entrySet()) {
             RowKey rowKey = rowKey(entry.getKey(), rowKeys);
-            RowKey newRowKey = last(mapper, rowKey, rows, entry.getValue());
+            RowKey newRowKey = last(searcher, expressions, rowKey, rows, entry.getValue());
             if (newRowKey != null) newRowKeys.add(newRowKey);
         }
         return Pair.create(rows, newRowKeys);
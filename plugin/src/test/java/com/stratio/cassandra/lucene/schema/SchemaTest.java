@@ -24,6 +24,7 @@ import com.stratio.cassandra.lucene.schema.column.Columns;
 import com.stratio.cassandra.lucene.schema.mapping.Mapper;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.db.marshal.AsciiType;
+import org.apache.cassandra.db.marshal.Int32Type;
 import org.apache.cassandra.db.marshal.IntegerType;
 import org.apache.cassandra.db.marshal.UTF8Type;
 import org.apache.cassandra.exceptions.ConfigurationException;
@@ -36,6 +37,7 @@ import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.en.EnglishAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -180,6 +182,67 @@ public class SchemaTest {
         schema.close();
     }
 
+    @Test
+    public void testAddFieldsWithTemplate() {
+        Schema schema = SchemaBuilders.schema().mapper("field1", stringMapper()).build();
+        DocumentTemplate template = new DocumentTemplate();
+        Columns columns = new Columns().add(Column.builder("field1").composedValue("value1", UTF8Type.instance));
+        Document document = template.newDocument();
+        schema.addFields(document, columns, template);
+        IndexableField field = document.getField("field1");
+        assertEquals("Expected value1", "value1", field.stringValue());
+
+        columns = new Columns().add(Column.builder("field1").composedValue("value2", UTF8Type.instance))
+                               .add(Column.builder("field1").composedValue("value3", UTF8Type.instance));
+        document = template.newDocument();
+        schema.addFields(document, columns, template);
+        IndexableField[] fields = document.getFields("field1");
+        assertEquals("Expected 2 fields", 2, fields.length);
+        assertSame("Expected reused field", field, fields[0]);
+        assertEquals("Expected value2", "value2", fields[0].stringValue());
+        assertEquals("Expected value3", "value3", fields[1].stringValue());
+        schema.close();
+    }
+
+    @Test
+    public void testAddFieldsWithTemplateAndMap() {
+        Schema schema = SchemaBuilders.schema().mapper("field1", stringMapper()).build();
+        DocumentTemplate template = new DocumentTemplate();
+        Columns columns = new Columns().add(Column.builder("field1")
+                                                  .mapName("key1")
+                                                  .composedValue("value1", UTF8Type.instance));
+        Document document = template.newDocument();
+        schema.addFields(document, columns, template);
+        IndexableField field = document.getField("field1$key1");
+        assertEquals("Expected value1", "value1", field.stringValue());
+        assertNull("Expected no reusable field", template.indexedField("field1$key1"));
+
+        document = template.newDocument();
+        schema.addFields(document, columns, template);
+        assertNotSame("Expected new field", field, document.getField("field1$key1"));
+        assertNull("Expected no reusable field", template.indexedField("field1$key1"));
+        schema.close();
+    }
+
+    @Test
+    public void testAddFieldsDispatch() {
+        Schema schema = SchemaBuilders.schema()
+                                      .mapper("field1", stringMapper())
+                                      .mapper("field2", stringMapper())
+                                      .mapper("field3", stringMapper())
+                                      .mapper("point", geoPointMapper("lat", "lon").maxLevels(10))
+                                      .build();
+        Columns columns = new Columns().add(Column.builder("field2").composedValue("value", UTF8Type.instance))
+                                       .add(Column.builder("lat").composedValue(20, Int32Type.instance))
+                                       .add(Column.builder("lon").composedValue(30, Int32Type.instance));
+        Document document = new Document();
+        schema.addFields(document, columns);
+        assertNull("Expected no field", document.getField("field1"));
+        assertNotNull("Expected field", document.getField("field2"));
+        assertNotNull("Expected field", document.getField("point.dist"));
+        schema.close();
+    }
+
     @Test
     public void testAddFieldsFailing() {
         Schema schema = SchemaBuilders.schema().mapper("field1", integerMapper()).build();
@@ -57,6 +57,7 @@ public class ColumnTest {
         assertEquals("Column cell name is wrong", "my", column.getCellName());
         assertEquals("Column mapper name is wrong", "my", column.getMapperName());
         assertEquals("Column field name is wrong", "field$column", column.getFieldName("field"));
+        assertTrue("Column map value is wrong", column.isMapValue());
         assertEquals("Column type is wrong", type, column.getType());
         assertEquals("Column composedValue is wrong", composedValue, column.getComposedValue());
         assertEquals("Column decomposedValue is wrong", decomposedValue, column.getDecomposedValue());
@@ -73,6 +74,7 @@ public class ColumnTest {
         assertEquals("Column cell name is wrong", "my", column.getCellName());
         assertEquals("Column mapper name is wrong", "my.column", column.getMapperName());
         assertEquals("Column field name is wrong", "field", column.getFieldName("field"));
+        assertFalse("Column map value is wrong", column.isMapValue());
         assertEquals("Column type is wrong", type, column.getType());
         assertEquals("Column composedValue is wrong", composedValue, column.getComposedValue());
         assertEquals("Column decomposedValue is wrong", decomposedValue, column.getDecomposedValue());
@@ -97,6 +99,7 @@ public class ColumnTest {
         assertEquals("Column cell name is wrong", "my", column.getCellName());
         assertEquals("Column mapper name is wrong", "my.1.2.3", column.getMapperName());
         assertEquals("Column field name is wrong", "field$4$5$6", column.getFieldName("field"));
+        assertTrue("Column map value is wrong", column.isMapValue());
         assertEquals("Column type is wrong", type, column.getType());
         assertEquals("Column composedValue is wrong", composedValue, column.getComposedValue());
         assertEquals("Column decomposedValue is wrong", decomposedValue, column.getDecomposedValue());
@@ -128,6 +131,7 @@ public class ColumnTest {
         assertEquals("Column cell name is wrong", "my", column.getCellName());
         assertEquals("Column mapper name is wrong", "my.column", column.getMapperName());
         assertEquals("Column field name is wrong", "field", column.getFieldName("field"));
+        assertFalse("Column map value is wrong", column.isMapValue());
         assertEquals("Column composedValue is wrong", composedValue, column.getComposedValue());
         assertEquals("Column decomposedValue is wrong", decomposedValue, column.getDecomposedValue());
         assertFalse("Column multiCell is wrong", column.isMultiCell());
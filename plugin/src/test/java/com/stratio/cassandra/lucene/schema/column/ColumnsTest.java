@@ -113,6 +113,21 @@ public class ColumnsTest {
         assertEquals("Columns size is wrong", 0, columns.getColumnsByMapperName("field2").size());
     }
 
+    @Test
+    public void testGetColumnsAfterAdd() {
+        Columns columns = new Columns();
+        columns.add(Column.builder("field1").composedValue("value", UTF8Type.instance));
+        assertEquals("Columns size is wrong", 1, columns.getColumnsByCellName("field1").size());
+        assertEquals("Columns size is wrong", 0, columns.getColumnsByCellName("field2").size());
+        columns.add(Column.builder("field1").mapName("1").composedValue("value", UTF8Type.instance));
+        columns.add(Column.builder("field2").composedValue("value", UTF8Type.instance));
+        assertEquals("Columns size is wrong", 2, columns.getColumnsByCellName("field1").size());
+        assertEquals("Columns size is wrong", 1, columns.getColumnsByCellName("field2").size());
+        assertEquals("Columns size is wrong", 1, columns.getColumnsByFullName("field1$1").size());
+        Column<?> first = columns.getColumnsByMapperName("field2").getFirst();
+        assertEquals("Columns first is wrong", "field2", first.getFullName());
+    }
+
     @Test
     public void testToString() {
         assertEquals("Method #toString is wrong", "Columns{}", new Columns().toString());
@@ -35,6 +35,20 @@ public class SearchTest {
     public void testBuilderEmpty() {
         Search search = new Search(null, null, null, null);
         assertFalse("Default refresh is not set", search.refresh());
+        assertNull("Default max staleness is not set", search.getMaxStalenessMs());
+    }
+
+    @Test
+    public void testBuilderMaxStaleness() {
+        Search search = search().filter(match("field", "value")).maxStalenessMs(500L).build();
+        assertEquals("Max staleness is not set", 500L, (long) search.getMaxStalenessMs());
+    }
+
+    @Test
+    public void testJsonMaxStaleness() {
+        Search search = SearchBuilder.fromJson("{filter:{type:\"match\",field:\"field\",value:\"value\"}," +
+                                               "max_staleness_ms:250}").build();
+        assertEquals("Max staleness is not parsed", 250L, (long) search.getMaxStalenessMs());
     }
 
     @Test
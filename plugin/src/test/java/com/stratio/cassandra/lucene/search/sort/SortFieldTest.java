@@ -258,6 +258,22 @@ public class SortFieldTest {
         assertEquals("SortField compare is wrong", 0, sortField.compare(null, null));
     }
 
+    @Test
+    public void testBase() {
+
+        SortField sortField = new SortField("field", false);
+        SingleColumnMapper mapper = stringMapper().build("field");
+
+        Columns columns = new Columns(Column.builder("field").composedValue("a", UTF8Type.instance));
+        Columns emptyColumns = new Columns();
+
+        assertEquals("SortField base is wrong", "a", sortField.base(mapper, columns));
+        assertNull("SortField base is wrong", sortField.base(mapper, emptyColumns));
+        assertEquals("SortField base is not consistent with compare",
+                     sortField.compare(mapper, columns, emptyColumns),
+                     sortField.compare(sortField.base(mapper, columns), sortField.base(mapper, emptyColumns)));
+    }
+
     private static SortField nullSortField() {
         return null;
     }
@@ -0,0 +1,194 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.stratio.cassandra.lucene.IndexException;
+import org.apache.cassandra.db.commitlog.ReplayPosition;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link CommitCoordinator}.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class CommitCoordinatorTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Test
+    public void testGroupedCommits() throws Exception {
+        final TestCoordinator coordinator = new TestCoordinator();
+        final RowService service1 = mock(RowService.class);
+        final RowService service2 = mock(RowService.class);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<ListenableFuture<Void>>> requests = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final RowService service = i % 2 == 0 ? service1 : service2;
+            requests.add(pool.submit(new Callable<ListenableFuture<Void>>() {
+                @Override
+                public ListenableFuture<Void> call() {
+                    Uninterruptibles.awaitUninterruptibly(start);
+                    return coordinator.request(service, 1000);
+                }
+            }));
+        }
+        start.countDown();
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (Future<ListenableFuture<Void>> request : requests) {
+            futures.add(request.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        for (int i = 2; i < futures.size(); i++) {
+            assertSame("Requests of the same index must be grouped", futures.get(i - 2), futures.get(i));
+        }
+        for (ListenableFuture<Void> future : futures) {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        assertEquals("Expected a single commitlog position", 1, coordinator.positions.get());
+        assertEquals("Expected a commit per index", 1, coordinator.commits.get(service1).size());
+        assertEquals("Expected a commit per index", 1, coordinator.commits.get(service2).size());
+    }
+
+    @Test
+    public void testCommittedPosition() throws Exception {
+        TestCoordinator coordinator = new TestCoordinator();
+        coordinator.writes = new CountDownLatch(1);
+        RowService service = mock(RowService.class);
+        ListenableFuture<Void> future = coordinator.request(service, 0);
+        try {
+            future.get(200, TimeUnit.MILLISECONDS);
+            fail("Commit must wait for the writes before the commitlog position");
+        } catch (TimeoutException e) {
+            assertFalse("Commit must wait for the writes", coordinator.commits.containsKey(service));
+        }
+        coordinator.writes.countDown();
+        future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals("Wrong coordination order",
+                     Arrays.asList("position 1", "barrier", "commit 1"),
+                     coordinator.events);
+        assertEquals("Committed position must be the one taken before the barrier",
+                     new ReplayPosition(1, 1),
+                     coordinator.commits.get(service).get(0));
+    }
+
+    @Test
+    public void testClosedIndex() throws Exception {
+        TestCoordinator coordinator = new TestCoordinator();
+        RowService closed = mock(RowService.class);
+        RowService open = mock(RowService.class);
+        coordinator.closed.add(closed);
+        ListenableFuture<Void> closedFuture = coordinator.request(closed, 100);
+        ListenableFuture<Void> openFuture = coordinator.request(open, 100);
+        try {
+            closedFuture.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("Commit of a closed index must fail");
+        } catch (ExecutionException e) {
+            assertTrue("Expected the commit error", e.getCause() instanceof IndexException);
+        }
+        openFuture.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals("Expected the commit of the open index", 1, coordinator.commits.get(open).size());
+
+        // Later groups must be committed as usual
+        coordinator.commit(open);
+        assertEquals("Expected another commit of the open index", 2, coordinator.commits.get(open).size());
+        try {
+            coordinator.commit(closed);
+            fail("Commit of a closed index must fail");
+        } catch (IndexException e) {
+            assertFalse("Closed index must not be committed", coordinator.commits.containsKey(closed));
+        }
+    }
+
+    /** A {@link CommitCoordinator} recording the commits instead of committing the indexes. */
+    private static class TestCoordinator extends CommitCoordinator {
+
+        /** The number of taken commitlog positions. */
+        final AtomicInteger positions = new AtomicInteger();
+
+        /** The committed positions of each index. */
+        final Map<RowService, List<ReplayPosition>> commits = new ConcurrentHashMap<>();
+
+        /** The indexes which fail to commit because they have been closed. */
+        final Set<RowService> closed = Collections.newSetFromMap(new ConcurrentHashMap<RowService, Boolean>());
+
+        /** The coordination steps, in order. */
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+        /** The pending writes to be waited by the barrier. */
+        volatile CountDownLatch writes = new CountDownLatch(0);
+
+        /** {@inheritDoc} */
+        @Override
+        ReplayPosition currentPosition() {
+            int position = positions.incrementAndGet();
+            events.add("position " + position);
+            return new ReplayPosition(1, position);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        void awaitWrites() {
+            Uninterruptibles.awaitUninterruptibly(writes);
+            events.add("barrier");
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        void commit(RowService service, ReplayPosition position) throws IOException {
+            if (closed.contains(service)) {
+                throw new IndexException("Index is closed");
+            }
+            events.add("commit " + position.position);
+            List<ReplayPosition> committed = commits.get(service);
+            if (committed == null) {
+                committed = Collections.synchronizedList(new ArrayList<ReplayPosition>());
+                commits.put(service, committed);
+            }
+            committed.add(position);
+        }
+    }
+}
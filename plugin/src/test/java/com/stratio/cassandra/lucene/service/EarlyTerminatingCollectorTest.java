@@ -0,0 +1,147 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.SortingMergePolicy;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.search.DocValuesRangeQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link EarlyTerminatingCollector}.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class EarlyTerminatingCollectorTest {
+
+    private static final String TOKEN = "token";
+    private static final String CLUSTERING = "clustering";
+    private static final Sort INDEX_SORT = new Sort(new SortField(TOKEN, SortField.Type.LONG));
+    private static final Sort SORT = new Sort(new SortField(TOKEN, SortField.Type.LONG),
+                                              new SortField(CLUSTERING, SortField.Type.LONG));
+
+    private static void add(IndexWriter writer, Random random, int numDocs) throws IOException {
+        for (int i = 0; i < numDocs; i++) {
+            Document document = new Document();
+            document.add(new NumericDocValuesField(TOKEN, random.nextInt(100) - 50));
+            document.add(new NumericDocValuesField(CLUSTERING, random.nextInt(10)));
+            writer.addDocument(document);
+        }
+        writer.commit();
+    }
+
+    private static Directory sortedSegment(Random random) throws IOException {
+        Directory directory = new RAMDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        config.setMergePolicy(new SortingMergePolicy(new TieredMergePolicy(), INDEX_SORT));
+        IndexWriter writer = new IndexWriter(directory, config);
+        add(writer, random, 100);
+        add(writer, random, 100);
+        writer.forceMerge(1);
+        writer.close();
+        return directory;
+    }
+
+    private static DirectoryReader reader(Random random) throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        config.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), config);
+        writer.addIndexes(sortedSegment(random), sortedSegment(random));
+        add(writer, random, 100);
+        add(writer, random, 100);
+        writer.close();
+        return DirectoryReader.open(writer.getDirectory());
+    }
+
+    private static TopDocs search(IndexSearcher searcher, int numHits, boolean early, Long after) throws IOException {
+        Query query = after == null
+                      ? new MatchAllDocsQuery()
+                      : DocValuesRangeQuery.newLongRange(TOKEN, after, null, false, true);
+        TopFieldCollector collector = TopFieldCollector.create(SORT, numHits, true, false, false);
+        if (early) {
+            searcher.search(query, new EarlyTerminatingCollector(collector, TOKEN, INDEX_SORT, numHits, after));
+        } else {
+            searcher.search(query, collector);
+        }
+        return collector.topDocs();
+    }
+
+    private static void assertSameTopDocs(IndexSearcher searcher, int numHits, Long after) throws IOException {
+        ScoreDoc[] expected = search(searcher, numHits, false, after).scoreDocs;
+        ScoreDoc[] actual = search(searcher, numHits, true, after).scoreDocs;
+        assertEquals("Early termination must return the same number of hits", expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("Early termination must return the same hits", expected[i].doc, actual[i].doc);
+        }
+    }
+
+    @Test
+    public void testMixedSegments() throws IOException {
+        DirectoryReader reader = reader(new Random(42));
+        int sorted = 0;
+        for (LeafReaderContext context : reader.leaves()) {
+            if (SortingMergePolicy.isSorted(context.reader(), INDEX_SORT)) {
+                sorted++;
+            }
+        }
+        assertTrue("There must be sorted segments", sorted > 0);
+        assertTrue("There must be unsorted segments", sorted < reader.leaves().size());
+
+        IndexSearcher searcher = new IndexSearcher(reader);
+        for (int numHits : new int[]{1, 5, 10, 50, 1000}) {
+            assertSameTopDocs(searcher, numHits, null);
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testMixedSegmentsWithAfter() throws IOException {
+        DirectoryReader reader = reader(new Random(7));
+        IndexSearcher searcher = new IndexSearcher(reader);
+        for (int numHits : new int[]{1, 5, 10, 50, 1000}) {
+            assertSameTopDocs(searcher, numHits, -10L);
+        }
+        reader.close();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.base.Strings;
+import com.stratio.cassandra.lucene.IndexConfig;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.UUID;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.fail;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class IndexBatchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LuceneIndex index() throws IOException {
+        IndexConfig config = mock(IndexConfig.class);
+        when(config.getName()).thenReturn("test_index");
+        when(config.getPath()).thenReturn(Paths.get(folder.newFolder("directory" + UUID.randomUUID()).getPath()));
+        when(config.getRamBufferMB()).thenReturn(IndexConfig.DEFAULT_RAM_BUFFER_MB);
+        when(config.getMaxMergeMB()).thenReturn(IndexConfig.DEFAULT_MAX_MERGE_MB);
+        when(config.getMaxCachedMB()).thenReturn(IndexConfig.DEFAULT_MAX_CACHED_MB);
+        when(config.getRefreshSeconds()).thenReturn(IndexConfig.DEFAULT_REFRESH_SECONDS);
+        when(config.getAnalyzer()).thenReturn(new StandardAnalyzer());
+        return new LuceneIndex(config);
+    }
+
+    private static void upsert(IndexBatch batch, String value) {
+        Document document = new Document();
+        document.add(new StringField("field", value, Field.Store.NO));
+        batch.upsert(0, Collections.singletonMap(new Term("field", value), document));
+    }
+
+    @Test
+    public void testFlush() throws IOException {
+        LuceneIndex index = index();
+        IndexBatch batch = new IndexBatch(index);
+        upsert(batch, "value1");
+        upsert(batch, "value2");
+        upsert(batch, "value2");
+        assertEquals("Expected 3 pending operations", 3, batch.size());
+        index.refresh();
+        assertEquals("Pending operations must not be applied", 0, index.getNumDocs());
+        batch.flush();
+        assertEquals("Expected no pending operations", 0, batch.size());
+        index.refresh();
+        assertEquals("Expected 2 documents", 2, index.getNumDocs());
+        index.delete();
+    }
+
+    @Test
+    public void testDeleteByTerm() throws IOException {
+        LuceneIndex index = index();
+        IndexBatch batch = new IndexBatch(index);
+        upsert(batch, "value1");
+        batch.flush();
+        upsert(batch, "value2");
+        batch.delete(0, new Term("field", "value1"));
+        batch.delete(0, new Term("field", "value2"));
+        upsert(batch, "value3");
+        batch.flush();
+        index.refresh();
+        assertEquals("Expected 1 document", 1, index.getNumDocs());
+        index.delete();
+    }
+
+    @Test
+    public void testDeleteByQuery() throws IOException {
+        LuceneIndex index = index();
+        IndexBatch batch = new IndexBatch(index);
+        upsert(batch, "value1");
+        upsert(batch, "value2");
+        batch.delete(0, new TermQuery(new Term("field", "value1")));
+        assertEquals("Expected no pending operations", 0, batch.size());
+        upsert(batch, "value1");
+        batch.flush();
+        index.refresh();
+        assertEquals("Expected 2 documents", 2, index.getNumDocs());
+        index.delete();
+    }
+
+    @Test
+    public void testScheduleFlush() throws IOException {
+        LuceneIndex index = index();
+        IndexBatch batch = new IndexBatch(index);
+        assertEquals("Empty batches must not be scheduled", false, batch.scheduleFlush());
+        upsert(batch, "value1");
+        assertEquals("Expected scheduled flush", true, batch.scheduleFlush());
+        assertEquals("Expected already scheduled flush", false, batch.scheduleFlush());
+        batch.flush();
+        upsert(batch, "value2");
+        assertEquals("Expected scheduled flush", true, batch.scheduleFlush());
+        index.delete();
+    }
+
+    @Test
+    public void testFlushWithImmenseTerm() throws IOException {
+        LuceneIndex index = index();
+        IndexBatch batch = new IndexBatch(index);
+        upsert(batch, "value1");
+        upsert(batch, Strings.repeat("x", IndexWriter.MAX_TERM_LENGTH + 1));
+        upsert(batch, "value2");
+        batch.flush();
+        assertEquals("Expected no pending operations", 0, batch.size());
+        index.refresh();
+        assertEquals("Only the document with the immense term must be discarded", 2, index.getNumDocs());
+        index.delete();
+    }
+
+    @Test
+    public void testFlushWithFailedShard() throws IOException {
+        LuceneIndex index = mock(LuceneIndex.class);
+        when(index.getNumShards()).thenReturn(2);
+        IOException error = new IOException("Failed shard");
+        doThrow(error).when(index).update(eq(0), anyCollectionOf(Term.class), anyMapOf(Term.class, Document.class));
+        IndexBatch batch = new IndexBatch(index);
+        Document document = new Document();
+        batch.upsert(0, Collections.singletonMap(new Term("field", "value1"), document));
+        batch.upsert(1, Collections.singletonMap(new Term("field", "value2"), document));
+        try {
+            batch.flush();
+            fail("Expected the error of the failed shard");
+        } catch (IOException e) {
+            assertSame("Expected the error of the failed shard", error, e);
+        }
+        verify(index).update(eq(1), anyCollectionOf(Term.class), anyMapOf(Term.class, Document.class));
+        assertEquals("Expected no pending operations", 0, batch.size());
+    }
+}
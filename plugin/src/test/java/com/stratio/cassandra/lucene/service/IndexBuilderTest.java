@@ -0,0 +1,125 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortingMergePolicy;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link IndexBuilder}.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class IndexBuilderTest {
+
+    private static final String TOKEN = "token";
+    private static final Sort INDEX_SORT = new Sort(new SortField(TOKEN, SortField.Type.LONG));
+
+    private static Directory slice(Random random, int numSegments) throws IOException {
+        Directory directory = new RAMDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        config.setUseCompoundFile(false);
+        config.setMergePolicy(IndexBuilder.sortingMergePolicy(INDEX_SORT));
+        IndexWriter writer = new IndexWriter(directory, config);
+        for (int i = 0; i < numSegments; i++) {
+            for (int j = 0; j < 100; j++) {
+                Document document = new Document();
+                document.add(new NumericDocValuesField(TOKEN, random.nextInt(1000) - 500));
+                writer.addDocument(document);
+            }
+            writer.commit();
+        }
+        writer.forceMerge(1);
+        writer.close();
+        return directory;
+    }
+
+    private static void assertSorted(DirectoryReader reader, int numSegments) throws IOException {
+        assertEquals("Expected one segment per slice", numSegments, reader.leaves().size());
+        for (int i = 0; i < numSegments; i++) {
+            LeafReader leaf = reader.leaves().get(i).reader();
+            assertTrue("Expected sorted segment", SortingMergePolicy.isSorted(leaf, INDEX_SORT));
+            NumericDocValues tokens = leaf.getNumericDocValues(TOKEN);
+            for (int doc = 1; doc < leaf.maxDoc(); doc++) {
+                assertTrue("Expected documents sorted by token", tokens.get(doc - 1) <= tokens.get(doc));
+            }
+        }
+    }
+
+    @Test
+    public void testSingleFlushedSegment() throws IOException {
+        Directory directory = slice(new Random(42), 1);
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            assertSorted(reader, 1);
+        }
+    }
+
+    @Test
+    public void testSeveralFlushedSegments() throws IOException {
+        Directory directory = slice(new Random(42), 3);
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            assertSorted(reader, 1);
+        }
+    }
+
+    @Test
+    public void testAddedSlices() throws IOException {
+        Random random = new Random(42);
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        config.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), config);
+        writer.addIndexes(slice(random, 1), slice(random, 2));
+        writer.close();
+        try (DirectoryReader reader = DirectoryReader.open(writer.getDirectory())) {
+            assertSorted(reader, 2);
+        }
+    }
+
+    @Test
+    public void testRamBufferMB() {
+        assertEquals("Expected the whole buffer without threads", 64, IndexBuilder.ramBufferMB(64, 0), 0);
+        assertEquals("Expected the whole buffer for one thread", 64, IndexBuilder.ramBufferMB(64, 1), 0);
+        assertEquals("Expected the buffer split among threads", 16, IndexBuilder.ramBufferMB(64, 4), 0);
+        assertEquals("Expected fractions of MB", 2.5, IndexBuilder.ramBufferMB(5, 2), 0);
+        assertEquals("Expected the min buffer",
+                     IndexBuilder.MIN_RAM_BUFFER_MB,
+                     IndexBuilder.ramBufferMB(64, 128),
+                     0);
+    }
+}
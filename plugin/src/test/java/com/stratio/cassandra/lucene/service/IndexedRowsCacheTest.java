@@ -0,0 +1,242 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.cache.ICache;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.db.ArrayBackedSortedColumns;
+import org.apache.cassandra.db.BufferExpiringCell;
+import org.apache.cassandra.db.Cell;
+import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.DeletionTime;
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.Composites;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link IndexedRowsCache} and the reconciliation of the cached rows with {@link RowService#merge}.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class IndexedRowsCacheTest {
+
+    private static CFMetaData metadata;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Config.setClientMode(true);
+        DatabaseDescriptor.setPartitioner(new Murmur3Partitioner());
+        metadata = CFMetaData.compile("CREATE TABLE test (pk int PRIMARY KEY, a int, b int, c int)", "ks");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IndexedRowsCache cache() {
+        final Map<DecoratedKey, ColumnFamily> map = new HashMap<>();
+        ICache<DecoratedKey, ColumnFamily> cache = mock(ICache.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Object[] args = invocation.getArguments();
+                map.put((DecoratedKey) args[0], (ColumnFamily) args[1]);
+                return null;
+            }
+        }).when(cache).put(any(DecoratedKey.class), any(ColumnFamily.class));
+        when(cache.get(any(DecoratedKey.class))).thenAnswer(new Answer<ColumnFamily>() {
+            @Override
+            public ColumnFamily answer(InvocationOnMock invocation) throws Throwable {
+                return map.get(invocation.getArguments()[0]);
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                map.remove(invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(cache).remove(any(DecoratedKey.class));
+        return new IndexedRowsCache(cache);
+    }
+
+    private static DecoratedKey key(int key) {
+        return DatabaseDescriptor.getPartitioner().decorateKey(Int32Type.instance.decompose(key));
+    }
+
+    private static CellName name(String column) {
+        return metadata.comparator.create(Composites.EMPTY,
+                                          metadata.getColumnDefinition(new ColumnIdentifier(column, true)));
+    }
+
+    private static ColumnFamily columnFamily() {
+        return ArrayBackedSortedColumns.factory.create(metadata);
+    }
+
+    private static void add(ColumnFamily columnFamily, String column, int value, long timestamp) {
+        columnFamily.addColumn(name(column), Int32Type.instance.decompose(value), timestamp);
+    }
+
+    private static Integer value(ColumnFamily columnFamily, String column) {
+        Cell cell = columnFamily.getColumn(name(column));
+        return cell == null ? null : Int32Type.instance.compose(cell.value());
+    }
+
+    private static CellName rowMarker(CFMetaData metadata, int clusteringKey) {
+        return metadata.comparator.rowMarker(metadata.comparator.builder()
+                                                                .add(Int32Type.instance.decompose(clusteringKey))
+                                                                .build());
+    }
+
+    @Test
+    public void testPartialUpdate() {
+        IndexedRowsCache cache = cache();
+        ColumnFamily cached = columnFamily();
+        add(cached, "a", 1, 1);
+        add(cached, "b", 1, 1);
+        cache.put(key(1), cached);
+
+        ColumnFamily update = columnFamily();
+        add(update, "b", 2, 2);
+        ColumnFamily merged = RowService.merge(cache.get(key(1)), update);
+        assertEquals("Not updated cells must be taken from the cache", Integer.valueOf(1), value(merged, "a"));
+        assertEquals("Updated cells must be taken from the update", Integer.valueOf(2), value(merged, "b"));
+        assertNull("Missing cells must not be created", value(merged, "c"));
+
+        cache.put(key(1), merged);
+        assertSame("Merged row must be cached", merged, cache.get(key(1)));
+        assertNull("Other partitions must not be cached", cache.get(key(2)));
+    }
+
+    @Test
+    public void testOlderUpdate() {
+        ColumnFamily cached = columnFamily();
+        add(cached, "a", 1, 2);
+        ColumnFamily update = columnFamily();
+        add(update, "a", 0, 1);
+        add(update, "b", 0, 1);
+        ColumnFamily merged = RowService.merge(cached, update);
+        assertEquals("Newer cached cells must win", Integer.valueOf(1), value(merged, "a"));
+        assertEquals("Older updated cells must be added", Integer.valueOf(0), value(merged, "b"));
+    }
+
+    @Test
+    public void testUncachedRow() {
+        ColumnFamily update = columnFamily();
+        add(update, "a", 1, 1);
+        ColumnFamily merged = RowService.merge(cache().get(key(1)), update);
+        assertEquals("Update must be used if there is no cached row", Integer.valueOf(1), value(merged, "a"));
+    }
+
+    @Test
+    public void testDeletion() {
+        IndexedRowsCache cache = cache();
+        ColumnFamily cached = columnFamily();
+        add(cached, "a", 1, 1);
+        add(cached, "b", 1, 3);
+        cache.put(key(1), cached);
+
+        ColumnFamily deletion = columnFamily();
+        deletion.delete(new DeletionTime(2, (int) (System.currentTimeMillis() / 1000)));
+        add(deletion, "c", 1, 3);
+        ColumnFamily merged = RowService.merge(cache.get(key(1)), deletion);
+        ColumnFamily clean = RowService.cleanExpired(merged, System.currentTimeMillis());
+        assertNull("Cells older than the deletion must be deleted", value(clean, "a"));
+        assertEquals("Cells newer than the deletion must be kept", Integer.valueOf(1), value(clean, "b"));
+        assertEquals("Cells added with the deletion must be kept", Integer.valueOf(1), value(clean, "c"));
+        assertFalse("The deletion must be kept to reconcile newer updates", merged.deletionInfo().isLive());
+
+        cache.invalidate(key(1));
+        assertNull("Invalidated rows must not be cached", cache.get(key(1)));
+    }
+
+    @Test
+    public void testExpiringCell() {
+        long now = System.currentTimeMillis();
+        int ttl = 10;
+        int localExpirationTime = (int) TimeUnit.MILLISECONDS.toSeconds(now) + ttl;
+
+        IndexedRowsCache cache = cache();
+        ColumnFamily cached = columnFamily();
+        cached.addColumn(new BufferExpiringCell(name("a"), Int32Type.instance.decompose(1), 1, ttl,
+                                                localExpirationTime));
+        cache.put(key(1), cached);
+
+        ColumnFamily update = columnFamily();
+        add(update, "b", 1, 2);
+        ColumnFamily merged = RowService.merge(cache.get(key(1)), update);
+        assertEquals("Expiring cells must keep their time to live", ttl, merged.getColumn(name("a")).getTimeToLive());
+
+        ColumnFamily clean = RowService.cleanExpired(merged, now);
+        assertEquals("Live expiring cells must be kept", Integer.valueOf(1), value(clean, "a"));
+        assertEquals("Updated cells must be kept", Integer.valueOf(1), value(clean, "b"));
+
+        clean = RowService.cleanExpired(merged, now + TimeUnit.SECONDS.toMillis(ttl + 1));
+        assertNull("Expired cells must be discarded", value(clean, "a"));
+        assertEquals("Not expiring cells must be kept", Integer.valueOf(1), value(clean, "b"));
+        assertFalse("Expired cells must not be clean",
+                    RowService.isClean(merged, now + TimeUnit.SECONDS.toMillis(ttl + 1)));
+    }
+
+    @Test
+    public void testTooManyCells() {
+        CFMetaData wideMetadata = CFMetaData.compile("CREATE TABLE wide (pk int, ck int, v int, " +
+                                                     "PRIMARY KEY (pk, ck))", "ks");
+        IndexedRowsCache cache = cache();
+        ColumnFamily small = ArrayBackedSortedColumns.factory.create(wideMetadata);
+        small.addColumn(rowMarker(wideMetadata, 0), ByteBufferUtil.EMPTY_BYTE_BUFFER, 1);
+        cache.put(key(1), small);
+        assertNotNull("Small rows must be cached", cache.get(key(1)));
+
+        ColumnFamily big = ArrayBackedSortedColumns.factory.create(wideMetadata);
+        for (int i = 0; i < 1001; i++) {
+            big.addColumn(rowMarker(wideMetadata, i), ByteBufferUtil.EMPTY_BYTE_BUFFER, 1);
+        }
+        cache.put(key(1), big);
+        assertNull("Partitions with too many cells must not be cached", cache.get(key(1)));
+    }
+
+    @Test
+    public void testLock() {
+        IndexedRowsCache cache = cache();
+        assertSame("The same partition must have the same lock", cache.lock(key(1)), cache.lock(key(1)));
+    }
+}
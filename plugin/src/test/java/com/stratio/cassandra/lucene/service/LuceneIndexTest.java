@@ -20,32 +20,68 @@ package com.stratio.cassandra.lucene.service;
 
 import com.google.common.collect.Sets;
 import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.IndexException;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.db.BufferExpiringCell;
+import org.apache.cassandra.db.Cell;
+import org.apache.cassandra.db.RowPosition;
+import org.apache.cassandra.db.commitlog.ReplayPosition;
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.Composites;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.dht.AbstractBounds;
+import org.apache.cassandra.dht.Bounds;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.BytesRef;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -61,17 +97,41 @@ public class LuceneIndexTest {
     @Rule
     public TemporaryFolder folder = new TemporaryFolder();
 
-    @Test
-    public void testCRUD() throws IOException, InterruptedException {
+    /** The global Cassandra client mode before each test. */
+    private boolean clientMode;
+
+    /** The global Cassandra partitioner before each test. */
+    private IPartitioner partitioner;
+
+    @Before
+    public void before() {
+        clientMode = Config.isClientMode();
+        Config.setClientMode(true);
+        partitioner = DatabaseDescriptor.getPartitioner();
+    }
+
+    @After
+    public void after() {
+        DatabaseDescriptor.setPartitioner(partitioner);
+        Config.setClientMode(clientMode);
+    }
 
+    private IndexConfig config(double refreshSeconds) throws IOException {
         IndexConfig config = mock(IndexConfig.class);
         when(config.getName()).thenReturn("test_index");
         when(config.getPath()).thenReturn(Paths.get(folder.newFolder("directory" + UUID.randomUUID()).getPath()));
         when(config.getRamBufferMB()).thenReturn(IndexConfig.DEFAULT_RAM_BUFFER_MB);
         when(config.getMaxMergeMB()).thenReturn(IndexConfig.DEFAULT_MAX_MERGE_MB);
         when(config.getMaxCachedMB()).thenReturn(IndexConfig.DEFAULT_MAX_CACHED_MB);
-        when(config.getRefreshSeconds()).thenReturn(REFRESH_SECONDS);
+        when(config.getRefreshSeconds()).thenReturn(refreshSeconds);
         when(config.getAnalyzer()).thenReturn(new StandardAnalyzer());
+        return config;
+    }
+
+    @Test
+    public void testCRUD() throws IOException, InterruptedException {
+
+        IndexConfig config = config(REFRESH_SECONDS);
 
         LuceneIndex index = new LuceneIndex(config);
         Sort sort = new Sort(new SortField("field", SortField.Type.STRING));
@@ -81,13 +141,13 @@ public class LuceneIndexTest {
         Document document1 = new Document();
         document1.add(new StringField("field", "value1", Field.Store.NO));
         document1.add(new SortedDocValuesField("field", new BytesRef("value1")));
-        index.upsert(term1, document1);
+        index.upsert(0, term1, document1);
 
         Term term2 = new Term("field", "value2");
         Document document2 = new Document();
         document2.add(new StringField("field", "value2", Field.Store.NO));
         document2.add(new SortedDocValuesField("field", new BytesRef("value2")));
-        index.upsert(term2, document2);
+        index.upsert(0, term2, document2);
 
         index.commit();
         Thread.sleep(REFRESH_MILLISECONDS);
@@ -98,7 +158,7 @@ public class LuceneIndexTest {
         Map<Document, ScoreDoc> results;
 
         // Search
-        SearcherManager searcherManager = index.getSearcherManager();
+        ReferenceManager<IndexSearcher> searcherManager = index.getSearcherManager();
         IndexSearcher searcher = searcherManager.acquire();
 
         try {
@@ -107,29 +167,30 @@ public class LuceneIndexTest {
             ScoreDoc last3 = results.values().iterator().next();
             results = index.search(searcher, query, sort, last3, 1, fields);
             assertEquals("Expected 1 document", 1, results.size());
+            assertEquals("Expected 2 hits", 2, index.count(searcher, query).totalHits);
         } finally {
             searcherManager.release(searcher);
         }
 
         // Delete by term
-        index.delete(term1);
+        index.delete(0, term1);
         index.commit();
         Thread.sleep(WAIT_MILLISECONDS);
         assertEquals("Expected 1 document", 1, index.getNumDocs());
 
         // Delete by query
-        index.upsert(term1, document1);
+        index.upsert(0, term1, document1);
         index.commit();
         Thread.sleep(WAIT_MILLISECONDS);
         assertEquals("Expected 2 documents", 2, index.getNumDocs());
-        index.delete(new TermQuery(term1));
+        index.delete(0, new TermQuery(term1));
         Thread.sleep(WAIT_MILLISECONDS);
         assertEquals("Expected 1 document", 1, index.getNumDocs());
 
         // Upsert
-        index.upsert(term1, document1);
-        index.upsert(term2, document2);
-        index.upsert(term2, document2);
+        index.upsert(0, term1, document1);
+        index.upsert(0, term2, document2);
+        index.upsert(0, term2, document2);
         index.commit();
         Thread.sleep(WAIT_MILLISECONDS);
         assertEquals("Expected 2 documents", 2, index.getNumDocs());
@@ -146,4 +207,256 @@ public class LuceneIndexTest {
         // Cleanup
         folder.delete();
     }
+
+    @Test
+    public void testWaitForGeneration() throws IOException {
+
+        IndexConfig config = config(60D);
+
+        LuceneIndex index = new LuceneIndex(config);
+
+        Document document = new Document();
+        document.add(new StringField("field", "value1", Field.Store.NO));
+        long generation = index.upsert(0, new Term("field", "value1"), document);
+        index.waitForGeneration(generation);
+        assertEquals("Expected 1 visible document", 1, index.getNumDocs());
+
+        document = new Document();
+        document.add(new StringField("field", "value2", Field.Store.NO));
+        index.upsert(0, new Term("field", "value2"), document);
+        index.waitForStaleness(Long.MAX_VALUE);
+        assertEquals("Expected 1 visible document", 1, index.getNumDocs());
+        index.waitForStaleness(0);
+        assertEquals("Expected 2 visible documents", 2, index.getNumDocs());
+
+        index.delete();
+    }
+
+    @Test
+    public void testCommitInterval() throws IOException, InterruptedException {
+
+        IndexConfig config = config(REFRESH_SECONDS);
+        when(config.getCommitIntervalSeconds()).thenReturn(1);
+
+        LuceneIndex index = new LuceneIndex(config);
+
+        Document document = new Document();
+        document.add(new StringField("field", "value1", Field.Store.NO));
+        index.upsert(0, new Term("field", "value1"), document);
+        index.refresh();
+        assertEquals("Expected 1 visible document", 1, index.getNumDocs());
+        try (Directory directory = FSDirectory.open(config.getPath())) {
+            assertFalse("Refresh must not commit", DirectoryReader.indexExists(directory));
+            for (int i = 0; i < 50 && !DirectoryReader.indexExists(directory); i++) {
+                Thread.sleep(REFRESH_MILLISECONDS);
+            }
+            assertTrue("Expected periodic commit", DirectoryReader.indexExists(directory));
+        }
+
+        index.delete();
+    }
+
+    @Test
+    public void testCommittedPosition() throws IOException {
+
+        IndexConfig config = config(REFRESH_SECONDS);
+
+        LuceneIndex index = new LuceneIndex(config);
+        assertNull("Expected no committed position", index.getCommittedPosition());
+
+        Document document = new Document();
+        document.add(new StringField("field", "value1", Field.Store.NO));
+        index.upsert(0, new Term("field", "value1"), document);
+        ReplayPosition position = new ReplayPosition(3, 14);
+        index.commit(position);
+        index.commit();
+        assertEquals("Committed position must be kept", position, index.getCommittedPosition());
+        index.close();
+
+        index = new LuceneIndex(config);
+        assertEquals("Committed position must be recovered", position, index.getCommittedPosition());
+        index.delete();
+    }
+
+    @Test
+    public void testCount() throws IOException {
+
+        IndexConfig config = config(60D);
+
+        LuceneIndex index = new LuceneIndex(config);
+        for (int i = 0; i < 10; i++) {
+            Document document = new Document();
+            document.add(new StringField("id", String.valueOf(i), Field.Store.NO));
+            document.add(new StringField("parity", i % 2 == 0 ? "even" : "odd", Field.Store.NO));
+            index.upsert(0, new Term("id", String.valueOf(i)), document);
+        }
+        index.refresh();
+
+        Query even = new TermQuery(new Term("parity", "even"));
+        IndexSearcher searcher = index.getSearcherManager().acquire();
+        try {
+            TopDocs topDocs = index.count(searcher, even);
+            assertEquals("Expected 5 hits", 5, topDocs.totalHits);
+            assertEquals("Expected only the first hit", 1, topDocs.scoreDocs.length);
+            assertEquals("Expected the first hit in index order", 0, topDocs.scoreDocs[0].doc);
+
+            topDocs = index.count(searcher, new TermQuery(new Term("parity", "none")));
+            assertEquals("Expected no hits", 0, topDocs.totalHits);
+            assertEquals("Expected no first hit", 0, topDocs.scoreDocs.length);
+        } finally {
+            index.getSearcherManager().release(searcher);
+        }
+
+        // Updated and deleted documents must be counted once the index is refreshed
+        Document document = new Document();
+        document.add(new StringField("id", "0", Field.Store.NO));
+        document.add(new StringField("parity", "even", Field.Store.NO));
+        index.upsert(0, new Term("id", "0"), document);
+        index.delete(0, new Term("id", "2"));
+        index.refresh();
+        searcher = index.getSearcherManager().acquire();
+        try {
+            assertEquals("Expected 4 hits", 4, index.count(searcher, even).totalHits);
+        } finally {
+            index.getSearcherManager().release(searcher);
+        }
+        index.delete();
+    }
+
+    @Test
+    public void testCountWithExpiredTTL() throws IOException {
+
+        // A row written with a per-write TTL that has already expired is not read anymore
+        DatabaseDescriptor.setPartitioner(new Murmur3Partitioner());
+        String cql = "CREATE TABLE test (pk int PRIMARY KEY, name text, lucene text)";
+        CFMetaData metadata = CFMetaData.compile(cql, "ks");
+        ColumnDefinition definition = metadata.getColumnDefinition(new ColumnIdentifier("name", true));
+        CellName cellName = metadata.comparator.create(Composites.EMPTY, definition);
+        long now = System.currentTimeMillis();
+        int expiration = (int) TimeUnit.MILLISECONDS.toSeconds(now) - 1;
+        ByteBuffer value = UTF8Type.instance.decompose("a");
+        Cell cell = new BufferExpiringCell(cellName, value, now - 2000, 1, expiration);
+        assertFalse("Expected an expired row", cell.isLive(now));
+
+        IndexConfig config = config(60D);
+
+        // The document indexed when the row was written is still counted, that's why count pushdown is opt-in
+        LuceneIndex index = new LuceneIndex(config);
+        Document document = new Document();
+        document.add(new StringField("name", "a", Field.Store.NO));
+        index.upsert(0, new Term("name", "a"), document);
+        index.refresh();
+        IndexSearcher searcher = index.getSearcherManager().acquire();
+        try {
+            Query query = new TermQuery(new Term("name", "a"));
+            assertEquals("Expected the expired row to be counted", 1, index.count(searcher, query).totalHits);
+        } finally {
+            index.getSearcherManager().release(searcher);
+        }
+        index.delete();
+    }
+
+    @Test
+    public void testReplace() throws IOException {
+
+        IndexConfig config = config(REFRESH_SECONDS);
+
+        LuceneIndex index = new LuceneIndex(config);
+        Document document = new Document();
+        document.add(new StringField("field", "value1", Field.Store.NO));
+        index.upsert(0, new Term("field", "value1"), document);
+
+        Path slicePath = Paths.get(folder.newFolder("slice" + UUID.randomUUID()).getPath());
+        IndexWriterConfig sliceConfig = new IndexWriterConfig(new StandardAnalyzer());
+        try (Directory sliceDirectory = FSDirectory.open(slicePath);
+             IndexWriter sliceWriter = new IndexWriter(sliceDirectory, sliceConfig)) {
+            for (String value : new String[]{"value2", "value3"}) {
+                Document sliceDocument = new Document();
+                sliceDocument.add(new StringField("field", value, Field.Store.NO));
+                sliceWriter.addDocument(sliceDocument);
+            }
+        }
+
+        index.replace(Collections.singletonList(Collections.singletonList(slicePath)));
+        index.refresh();
+        assertEquals("Expected the 2 documents of the replacing index", 2, index.getNumDocs());
+        IndexSearcher searcher = index.getSearcherManager().acquire();
+        try {
+            assertEquals("Replaced document must be deleted",
+                         0,
+                         searcher.count(new TermQuery(new Term("field", "value1"))));
+        } finally {
+            index.getSearcherManager().release(searcher);
+        }
+        index.delete();
+    }
+
+    @Test
+    public void testShards() throws IOException {
+        DatabaseDescriptor.setPartitioner(new Murmur3Partitioner());
+        IndexConfig config = config(REFRESH_SECONDS);
+        when(config.getIndexShards()).thenReturn(4);
+
+        LuceneIndex index = new LuceneIndex(config);
+        assertEquals("Expected 4 shards", 4, index.getNumShards());
+        for (int shard = 0; shard < 4; shard++) {
+            Document document = new Document();
+            document.add(new StringField("shard", String.valueOf(shard), Field.Store.NO));
+            index.upsert(shard, new Term("shard", String.valueOf(shard)), document);
+        }
+        index.refresh();
+        assertEquals("Expected 4 documents", 4, index.getNumDocs());
+
+        List<Range<Token>> shardRanges = index.getShardRanges();
+        for (int shard = 0; shard < 4; shard++) {
+            Token token = new Murmur3Partitioner.LongToken(TokenMapperMurmur.value(shardRanges.get(shard).left) + 1);
+            assertEquals("Token is in the wrong shard", shard, index.shard(token));
+            AbstractBounds<RowPosition> keyRange = new Bounds<RowPosition>(token.minKeyBound(), token.maxKeyBound());
+            IndexSearcher searcher = index.acquireSearcher(keyRange);
+            try {
+                assertEquals("Expected only the shard containing the token", 1, searcher.getIndexReader().numDocs());
+                assertEquals("Expected the document of the shard",
+                             1,
+                             searcher.count(new TermQuery(new Term("shard", String.valueOf(shard)))));
+            } finally {
+                index.releaseSearcher(searcher);
+            }
+        }
+        index.delete();
+    }
+
+    @Test
+    public void testShardsChange() throws IOException {
+        DatabaseDescriptor.setPartitioner(new Murmur3Partitioner());
+        IndexConfig config = config(REFRESH_SECONDS);
+
+        // An unsharded index can't be opened with several shards
+        LuceneIndex index = new LuceneIndex(config);
+        index.upsert(0, new Term("field", "value"), new Document());
+        index.commit();
+        index.close();
+        when(config.getIndexShards()).thenReturn(4);
+        try {
+            new LuceneIndex(config);
+            fail("Changing the number of shards must fail");
+        } catch (IndexException e) {
+            assertTrue("Expected the stored number of shards", e.getMessage().contains("1 shards"));
+        }
+
+        // A sharded index can only be opened with the same number of shards
+        when(config.getPath()).thenReturn(Paths.get(folder.newFolder("directory" + UUID.randomUUID()).getPath()));
+        index = new LuceneIndex(config);
+        index.close();
+        when(config.getIndexShards()).thenReturn(2);
+        try {
+            new LuceneIndex(config);
+            fail("Changing the number of shards must fail");
+        } catch (IndexException e) {
+            assertTrue("Expected the stored number of shards", e.getMessage().contains("4 shards"));
+        }
+        when(config.getIndexShards()).thenReturn(4);
+        index = new LuceneIndex(config);
+        assertEquals("Expected 4 shards", 4, index.getNumShards());
+        index.delete();
+    }
 }
@@ -21,6 +21,12 @@ package com.stratio.cassandra.lucene.service;
 import com.stratio.cassandra.lucene.schema.Schema;
 import com.stratio.cassandra.lucene.schema.SchemaBuilders;
 import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.db.ArrayBackedSortedColumns;
+import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.Composites;
 import org.apache.cassandra.db.marshal.AsciiType;
 import org.apache.cassandra.db.marshal.IntegerType;
 import org.apache.cassandra.db.marshal.UTF8Type;
@@ -38,7 +44,9 @@ import java.util.List;
 
 import static com.stratio.cassandra.lucene.schema.SchemaBuilders.stringMapper;
 import static com.stratio.cassandra.lucene.schema.SchemaBuilders.textMapper;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Eduardo Alonso {@literal <eduardoalonso@stratio.com>}
@@ -68,4 +76,53 @@ public class RegularCellsMapperTest {
 
     }
 
+    private static CFMetaData metadata() {
+        Config.setClientMode(true);
+        return CFMetaData.compile("CREATE TABLE test (pk int PRIMARY KEY, name text, other text)", "ks");
+    }
+
+    private static RegularCellsMapper mapper(CFMetaData metadata) {
+        Schema schema = SchemaBuilders.schema().mapper("name", stringMapper()).build();
+        return RegularCellsMapper.instance(metadata, schema);
+    }
+
+    private static CellName name(CFMetaData metadata, String column) {
+        return metadata.comparator.create(Composites.EMPTY,
+                                          metadata.getColumnDefinition(new ColumnIdentifier(column, true)));
+    }
+
+    @Test
+    public void testMapsMappedCell() {
+        CFMetaData metadata = metadata();
+        ColumnFamily columnFamily = ArrayBackedSortedColumns.factory.create(metadata);
+        columnFamily.addColumn(name(metadata, "other"), UTF8Type.instance.decompose("b"), 1);
+        columnFamily.addColumn(name(metadata, "name"), UTF8Type.instance.decompose("a"), 1);
+        assertTrue("Updates of mapped cells must be mapped", mapper(metadata).maps(columnFamily));
+    }
+
+    @Test
+    public void testMapsUnmappedCell() {
+        CFMetaData metadata = metadata();
+        ColumnFamily columnFamily = ArrayBackedSortedColumns.factory.create(metadata);
+        columnFamily.addColumn(name(metadata, "other"), UTF8Type.instance.decompose("b"), 1);
+        assertFalse("Updates of unmapped cells only must not be mapped", mapper(metadata).maps(columnFamily));
+    }
+
+    @Test
+    public void testMapsMappedTombstone() {
+        CFMetaData metadata = metadata();
+        ColumnFamily columnFamily = ArrayBackedSortedColumns.factory.create(metadata);
+        columnFamily.addTombstone(name(metadata, "name"), 1, 1);
+        assertTrue("Deletions of mapped cells must be mapped", mapper(metadata).maps(columnFamily));
+    }
+
+    @Test
+    public void testMapsRowMarker() {
+        CFMetaData metadata = metadata();
+        ColumnFamily columnFamily = ArrayBackedSortedColumns.factory.create(metadata);
+        columnFamily.addColumn(metadata.comparator.rowMarker(Composites.EMPTY), ByteBufferUtil.EMPTY_BYTE_BUFFER, 1);
+        columnFamily.addColumn(name(metadata, "other"), UTF8Type.instance.decompose("b"), 1);
+        assertTrue("Row markers must be mapped", mapper(metadata).maps(columnFamily));
+    }
+
 }
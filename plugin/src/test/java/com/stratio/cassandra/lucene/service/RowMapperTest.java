@@ -0,0 +1,303 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.schema.SchemaBuilders;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.db.ArrayBackedSortedColumns;
+import org.apache.cassandra.db.BufferDecoratedKey;
+import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.ReadCommand;
+import org.apache.cassandra.db.Row;
+import org.apache.cassandra.db.SliceFromReadCommand;
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.Composites;
+import org.apache.cassandra.db.filter.ColumnSlice;
+import org.apache.cassandra.db.filter.IdentityQueryFilter;
+import org.apache.cassandra.db.filter.SliceQueryFilter;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.lucene.search.Sort;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.apache.cassandra.dht.Murmur3Partitioner.LongToken;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link RowMapper} paging cursors and two-phase searches.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class RowMapperTest {
+
+    private static RowMapper mapper() {
+        RowMapper mapper = mock(RowMapper.class);
+        when(mapper.sortValuesByteBuffer(any(RowKey.class))).thenCallRealMethod();
+        when(mapper.sortValuesByteBuffer(any(RowKeys.class))).thenCallRealMethod();
+        when(mapper.withSortValues(any(RowKey.class), any(ByteBuffer.class))).thenCallRealMethod();
+        when(mapper.withSortValues(any(RowKeys.class), any(ByteBuffer.class))).thenCallRealMethod();
+        when(mapper.byteBuffer(any(RowKeys.class))).thenCallRealMethod();
+        when(mapper.rowKeys(any(ByteBuffer.class))).thenCallRealMethod();
+        when(mapper.byteBuffer(any(RowKey.class))).thenAnswer(new Answer<ByteBuffer>() {
+            @Override
+            public ByteBuffer answer(InvocationOnMock invocation) throws Throwable {
+                RowKey rowKey = (RowKey) invocation.getArguments()[0];
+                return rowKey.getPartitionKey().getKey().duplicate();
+            }
+        });
+        when(mapper.rowKey(any(ByteBuffer.class))).thenAnswer(new Answer<RowKey>() {
+            @Override
+            public RowKey answer(InvocationOnMock invocation) throws Throwable {
+                ByteBuffer bb = (ByteBuffer) invocation.getArguments()[0];
+                return new RowKey(new BufferDecoratedKey(new LongToken(0L), ByteBufferUtil.clone(bb)), null);
+            }
+        });
+        return mapper;
+    }
+
+    private static RowKey rowKey(String key, Object[] sortValues) {
+        return new RowKey(new BufferDecoratedKey(new LongToken(0L), ByteBufferUtil.bytes(key)), null, sortValues);
+    }
+
+    @Test
+    public void testSortValuesOfRowKey() {
+        RowMapper mapper = mapper();
+        RowKey rowKey = rowKey("key", new Object[]{3L, 1.5f});
+        ByteBuffer sortValues = mapper.sortValuesByteBuffer(rowKey);
+        assertEquals("Sort values must start with their format version",
+                     RowMapper.SORT_VALUES_VERSION,
+                     sortValues.get(0));
+        RowKey decoded = mapper.withSortValues(rowKey("key", null), sortValues);
+        assertEquals("Key is wrong", rowKey.getPartitionKey().getKey(), decoded.getPartitionKey().getKey());
+        assertArrayEquals("Sort values are wrong", rowKey.getSortValues(), decoded.getSortValues());
+        assertEquals("Sort values must not be consumed", 0, sortValues.position());
+    }
+
+    @Test
+    public void testSortValuesOfRowKeyWithoutValues() {
+        RowMapper mapper = mapper();
+        assertNull("Expected no sort values", mapper.sortValuesByteBuffer(rowKey("key", null)));
+        RowKey rowKey = rowKey("key", null);
+        assertSame("Expected the same key", rowKey, mapper.withSortValues(rowKey, null));
+        assertSame("Expected the same key", rowKey, mapper.withSortValues(rowKey, ByteBufferUtil.EMPTY_BYTE_BUFFER));
+    }
+
+    @Test
+    public void testSortValuesOfRowKeyWithUnknownVersion() {
+        RowMapper mapper = mapper();
+        ByteBuffer sortValues = mapper.sortValuesByteBuffer(rowKey("key", new Object[]{3L}));
+        sortValues.put(0, (byte) (RowMapper.SORT_VALUES_VERSION + 1));
+        RowKey rowKey = rowKey("key", null);
+        assertSame("Unknown versions must be ignored", rowKey, mapper.withSortValues(rowKey, sortValues));
+    }
+
+    @Test
+    public void testAfterKeyKeepsLegacyFormat() {
+        RowMapper mapper = mapper();
+        RowKey rowKey = rowKey("key", new Object[]{3L});
+        assertEquals("Key format must not change", ByteBufferUtil.bytes("key"), mapper.byteBuffer(rowKey));
+    }
+
+    @Test
+    public void testSortValuesOfRowKeys() {
+        RowMapper mapper = mapper();
+        RowKeys rowKeys = new RowKeys();
+        rowKeys.add(rowKey("key1", new Object[]{3L, 1.5f}));
+        rowKeys.add(rowKey("key2", null));
+        rowKeys.add(rowKey("key3", new Object[]{-2L}));
+        ByteBuffer keys = mapper.byteBuffer(rowKeys);
+        ByteBuffer sortValues = mapper.sortValuesByteBuffer(rowKeys);
+
+        RowKeys legacy = mapper.rowKeys(keys);
+        assertEquals("Legacy keys are wrong", 3, legacy.size());
+        for (RowKey rowKey : legacy) {
+            assertNull("Legacy keys must not have sort values", rowKey.getSortValues());
+        }
+
+        List<RowKey> decoded = new ArrayList<>();
+        for (RowKey rowKey : mapper.withSortValues(mapper.rowKeys(keys), sortValues)) {
+            decoded.add(rowKey);
+        }
+        assertEquals("Keys are wrong", 3, decoded.size());
+        assertEquals("Key is wrong", ByteBufferUtil.bytes("key2"), decoded.get(1).getPartitionKey().getKey());
+        assertArrayEquals("Sort values are wrong", new Object[]{3L, 1.5f}, decoded.get(0).getSortValues());
+        assertNull("Sort values are wrong", decoded.get(1).getSortValues());
+        assertArrayEquals("Sort values are wrong", new Object[]{-2L}, decoded.get(2).getSortValues());
+    }
+
+    @Test
+    public void testSortValuesOfRowKeysWithoutValues() {
+        RowMapper mapper = mapper();
+        RowKeys rowKeys = new RowKeys();
+        rowKeys.add(rowKey("key1", null));
+        assertNull("Expected no sort values", mapper.sortValuesByteBuffer(rowKeys));
+        assertSame("Expected the same keys", rowKeys, mapper.withSortValues(rowKeys, null));
+        assertSame("Expected the same keys", rowKeys, mapper.withSortValues(rowKeys, ByteBufferUtil.EMPTY_BYTE_BUFFER));
+    }
+
+    @Test
+    public void testSortValuesOfOtherRowKeys() {
+        RowMapper mapper = mapper();
+        RowKeys rowKeys = new RowKeys();
+        rowKeys.add(rowKey("key1", new Object[]{3L}));
+        ByteBuffer sortValues = mapper.sortValuesByteBuffer(rowKeys);
+        rowKeys.add(rowKey("key2", null));
+        assertSame("Sort values of other keys must be ignored", rowKeys, mapper.withSortValues(rowKeys, sortValues));
+    }
+
+    private static CFMetaData metadata(String cql) {
+        Config.setClientMode(true);
+        DatabaseDescriptor.setPartitioner(new Murmur3Partitioner());
+        return CFMetaData.compile(cql, "ks");
+    }
+
+    private static ColumnDefinition column(CFMetaData metadata, String name) {
+        return metadata.getColumnDefinition(new ColumnIdentifier(name, true));
+    }
+
+    private static RowMapper mapper(CFMetaData metadata) {
+        IndexConfig config = mock(IndexConfig.class);
+        when(config.getMetadata()).thenReturn(metadata);
+        when(config.getColumnDefinition()).thenReturn(column(metadata, "lucene"));
+        when(config.getSchema()).thenReturn(SchemaBuilders.schema()
+                                                          .mapper("name", SchemaBuilders.stringMapper())
+                                                          .build());
+        when(config.isWide()).thenReturn(!metadata.clusteringColumns().isEmpty());
+        return RowMapper.build(config);
+    }
+
+    private static DecoratedKey partitionKey(int key) {
+        return DatabaseDescriptor.getPartitioner().decorateKey(Int32Type.instance.decompose(key));
+    }
+
+    private static CellName clusteringKey(CFMetaData metadata, int key) {
+        return metadata.comparator.rowMarker(metadata.comparator.builder()
+                                                                .add(Int32Type.instance.decompose(key))
+                                                                .build());
+    }
+
+    private static Row partition(CFMetaData metadata, DecoratedKey partitionKey, String name, long timestamp) {
+        ColumnFamily cf = ArrayBackedSortedColumns.factory.create(metadata);
+        CellName cellName = metadata.comparator.create(Composites.EMPTY, column(metadata, "name"));
+        cf.addColumn(cellName, UTF8Type.instance.decompose(name), timestamp);
+        return new Row(partitionKey, cf);
+    }
+
+    @Test
+    public void testKeyRow() {
+        CFMetaData metadata = metadata("CREATE TABLE test (pk int, ck int, s text static, name text, lucene text, " +
+                                       "PRIMARY KEY (pk, ck))");
+        RowMapper mapper = mapper(metadata);
+        RowKey rowKey = new RowKey(partitionKey(1), clusteringKey(metadata, 1), new Object[]{2.5f, 3L});
+        RowKey decoded = mapper.keyRowKey(mapper.keyRow(rowKey, 0));
+        assertEquals("Key row partition key is wrong", rowKey.getPartitionKey(), decoded.getPartitionKey());
+        assertEquals("Key row clustering key is wrong", rowKey.getClusteringKey(), decoded.getClusteringKey());
+        assertArrayEquals("Key row sort values are wrong", rowKey.getSortValues(), decoded.getSortValues());
+    }
+
+    @Test
+    public void testCountRow() {
+        CFMetaData metadata = metadata("CREATE TABLE test (pk int PRIMARY KEY, name text, lucene text)");
+        RowMapper mapper = mapper(metadata);
+        Row countRow = mapper.countRow(new RowKey(partitionKey(1), null), 12345678901L, 0);
+        assertEquals("Count row key is wrong", partitionKey(1), countRow.key);
+        assertEquals("Count is wrong", 12345678901L, mapper.count(countRow));
+    }
+
+    @Test
+    public void testSortKeyRowsByRelevance() {
+        CFMetaData metadata = metadata("CREATE TABLE test (pk int PRIMARY KEY, name text, lucene text)");
+        RowMapper mapper = mapper(metadata);
+        Row keyRow1 = mapper.keyRow(new RowKey(partitionKey(1), null, new Object[]{1.0f}), 0);
+        Row keyRow2 = mapper.keyRow(new RowKey(partitionKey(2), null, new Object[]{3.0f}), 0);
+        Row keyRow3 = mapper.keyRow(new RowKey(partitionKey(3), null, new Object[]{2.0f}), 0);
+        List<Row> sorted = mapper.sortKeyRows(Arrays.asList(keyRow1, keyRow2, keyRow3, keyRow2), Sort.RELEVANCE);
+        assertEquals("Duplicated key rows must be removed", 3, sorted.size());
+        assertEquals("Key rows must be sorted by score", partitionKey(2), sorted.get(0).key);
+        assertEquals("Key rows must be sorted by score", partitionKey(3), sorted.get(1).key);
+        assertEquals("Key rows must be sorted by score", partitionKey(1), sorted.get(2).key);
+    }
+
+    @Test
+    public void testRowsOfKeyRows() {
+        CFMetaData metadata = metadata("CREATE TABLE test (pk int PRIMARY KEY, name text, lucene text)");
+        RowMapper mapper = mapper(metadata);
+        List<Row> keyRows = new ArrayList<>();
+        keyRows.add(mapper.keyRow(new RowKey(partitionKey(1), null, new Object[]{3.0f}), 0));
+        keyRows.add(mapper.keyRow(new RowKey(partitionKey(2), null, new Object[]{2.0f}), 0));
+        keyRows.add(mapper.keyRow(new RowKey(partitionKey(3), null, new Object[]{1.0f}), 0));
+        List<Row> partitions = new ArrayList<>();
+        partitions.add(partition(metadata, partitionKey(3), "c", 1));
+        partitions.add(partition(metadata, partitionKey(1), "a", 1));
+
+        List<Row> rows = mapper.rows(keyRows, partitions, 0, 2);
+        assertEquals("Rows that no longer exist must be ignored", 2, rows.size());
+        assertEquals("Rows must follow the key rows order", partitionKey(1), rows.get(0).key);
+        assertEquals("Rows must follow the key rows order", partitionKey(3), rows.get(1).key);
+        CellName scoreName = metadata.comparator.create(Composites.EMPTY, column(metadata, "lucene"));
+        assertEquals("Rows must contain the score of their keys",
+                     "3.0",
+                     UTF8Type.instance.compose(rows.get(0).cf.getColumn(scoreName).value()));
+    }
+
+    @Test
+    public void testReadCommandsWithStaticColumns() {
+        CFMetaData metadata = metadata("CREATE TABLE test (pk int, ck int, s text static, name text, lucene text, " +
+                                       "PRIMARY KEY (pk, ck))");
+        RowMapper mapper = mapper(metadata);
+        List<Row> keyRows = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            RowKey rowKey = new RowKey(partitionKey(1), clusteringKey(metadata, i), new Object[]{1.0f});
+            keyRows.add(mapper.keyRow(rowKey, 0));
+        }
+        List<ReadCommand> commands = mapper.readCommands(keyRows, 0, new IdentityQueryFilter());
+        assertEquals("Rows of the same partition must be read together", 1, commands.size());
+        SliceQueryFilter filter = ((SliceFromReadCommand) commands.get(0)).filter;
+        assertEquals("Filter must group the cells of each CQL row", 1, filter.compositesToGroup);
+        ColumnSlice[] slices = filter.slices;
+        assertEquals("Filter must read the static columns and each row", 3, slices.length);
+        assertEquals("Filter must read the static columns first",
+                     metadata.comparator.staticPrefix().slice(),
+                     slices[0]);
+        assertTrue("Filter must not stop before the requested rows", filter.count >= keyRows.size());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.db.BufferDecoratedKey;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.cassandra.dht.Murmur3Partitioner.LongToken;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RowServiceSkinny}.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class RowServiceSkinnyTest {
+
+    private static List<DecoratedKey> keys(long... tokens) {
+        List<DecoratedKey> keys = new ArrayList<>(tokens.length);
+        for (long token : tokens) {
+            keys.add(new BufferDecoratedKey(new LongToken(token), ByteBufferUtil.bytes(token)));
+        }
+        return keys;
+    }
+
+    private static long token(List<DecoratedKey> keys, int position) {
+        return (Long) keys.get(position).getToken().getTokenValue();
+    }
+
+    @Test
+    public void testTokenGroups() {
+        List<DecoratedKey> keys = keys(5, 1, 9, 3, 7, 2, 8);
+        int[][] groups = RowServiceSkinny.tokenGroups(keys, 3);
+        assertEquals("Expected one group per thread", 3, groups.length);
+
+        boolean[] seen = new boolean[keys.size()];
+        long last = Long.MIN_VALUE;
+        for (int[] group : groups) {
+            assertTrue("Groups must not be empty", group.length > 0);
+            for (int position : group) {
+                assertFalse("Each key must be in a single group", seen[position]);
+                seen[position] = true;
+                long token = token(keys, position);
+                assertTrue("Groups must be contiguous and sorted by token", token > last);
+                last = token;
+            }
+        }
+        for (boolean position : seen) {
+            assertTrue("All the keys must be grouped", position);
+        }
+    }
+
+    @Test
+    public void testTokenGroupsWithMoreGroupsThanKeys() {
+        List<DecoratedKey> keys = keys(2, 1);
+        int[][] groups = RowServiceSkinny.tokenGroups(keys, 8);
+        assertEquals("Expected one group per key", 2, groups.length);
+        assertEquals("Groups must be sorted by token", 1, groups[0][0]);
+        assertEquals("Groups must be sorted by token", 0, groups[1][0]);
+    }
+
+    @Test
+    public void testTokenGroupsWithoutKeys() {
+        assertEquals("Expected no groups", 0, RowServiceSkinny.tokenGroups(keys(), 4).length);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.schema.SchemaBuilders;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.db.ArrayBackedSortedColumns;
+import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.DataRange;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.IndexExpression;
+import org.apache.cassandra.db.Row;
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.Composites;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link RowService} searches over a real index of a skinny table, using synthetic key rows to avoid reading
+ * from the storage engine.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class RowServiceTest {
+
+    /** The number of indexed rows, which doesn't fit in a single search page. */
+    private static final int NUM_ROWS = 10100;
+
+    private static final String ALL = "{filter:{type:\"all\"}}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** The global Cassandra client mode before each test. */
+    private boolean clientMode;
+
+    /** The global Cassandra partitioner before each test. */
+    private IPartitioner partitioner;
+
+    private CFMetaData metadata;
+
+    @Before
+    public void before() {
+        clientMode = Config.isClientMode();
+        Config.setClientMode(true);
+        partitioner = DatabaseDescriptor.getPartitioner();
+        DatabaseDescriptor.setPartitioner(new Murmur3Partitioner());
+        metadata = CFMetaData.compile("CREATE TABLE test (pk int PRIMARY KEY, name text, lucene text)", "ks");
+    }
+
+    @After
+    public void after() {
+        DatabaseDescriptor.setPartitioner(partitioner);
+        Config.setClientMode(clientMode);
+    }
+
+    private ColumnDefinition column(String name) {
+        return metadata.getColumnDefinition(new ColumnIdentifier(name, true));
+    }
+
+    private RowService service(boolean pipelinedSearch) throws IOException {
+        IndexConfig config = mock(IndexConfig.class);
+        when(config.getName()).thenReturn("test_index");
+        when(config.getMetadata()).thenReturn(metadata);
+        when(config.getColumnDefinition()).thenReturn(column("lucene"));
+        when(config.getSchema()).thenReturn(SchemaBuilders.schema()
+                                                          .mapper("name", SchemaBuilders.stringMapper())
+                                                          .build());
+        when(config.getPath()).thenReturn(Paths.get(folder.newFolder().getPath()));
+        when(config.getRamBufferMB()).thenReturn(IndexConfig.DEFAULT_RAM_BUFFER_MB);
+        when(config.getMaxMergeMB()).thenReturn(IndexConfig.DEFAULT_MAX_MERGE_MB);
+        when(config.getMaxCachedMB()).thenReturn(IndexConfig.DEFAULT_MAX_CACHED_MB);
+        when(config.getRefreshSeconds()).thenReturn(IndexConfig.DEFAULT_REFRESH_SECONDS);
+        when(config.getAnalyzer()).thenReturn(new StandardAnalyzer());
+        when(config.isPipelinedSearch()).thenReturn(pipelinedSearch);
+        return RowService.build(null, config);
+    }
+
+    private void index(RowService service, int numRows) throws IOException {
+        CellName name = metadata.comparator.create(Composites.EMPTY, column("name"));
+        for (int i = 0; i < numRows; i++) {
+            ByteBuffer key = Int32Type.instance.decompose(i);
+            ColumnFamily columnFamily = ArrayBackedSortedColumns.factory.create(metadata);
+            columnFamily.addColumn(name, UTF8Type.instance.decompose("name" + i), 1);
+            service.validate(key, columnFamily);
+            service.index(key, columnFamily, System.currentTimeMillis());
+        }
+        service.lucene.refresh();
+    }
+
+    private static List<DecoratedKey> search(RowService service, int limit) throws IOException {
+        CompiledSearch search = service.compile(UTF8Type.instance.decompose(ALL));
+        List<Row> rows = service.search(search,
+                                        Collections.<IndexExpression>emptyList(),
+                                        DataRange.allData(DatabaseDescriptor.getPartitioner()),
+                                        limit,
+                                        System.currentTimeMillis(),
+                                        null,
+                                        false,
+                                        true);
+        List<DecoratedKey> keys = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            keys.add(row.key);
+        }
+        return keys;
+    }
+
+    private static int refCount(RowService service) throws IOException {
+        ReferenceManager<IndexSearcher> searcherManager = service.lucene.getSearcherManager();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.getIndexReader().getRefCount();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @Test
+    public void testPipelinedSearch() throws IOException {
+        RowService sequential = service(false);
+        RowService pipelined = service(true);
+        try {
+            index(sequential, NUM_ROWS);
+            index(pipelined, NUM_ROWS);
+            List<DecoratedKey> expected = search(sequential, NUM_ROWS * 2);
+            assertEquals("Expected all the rows", NUM_ROWS, expected.size());
+            assertEquals("Pipelined search must return the same rows", expected, search(pipelined, NUM_ROWS * 2));
+        } finally {
+            sequential.delete();
+            pipelined.delete();
+        }
+    }
+
+    @Test
+    public void testStoppedPipelinedSearch() throws IOException {
+        RowService sequential = service(false);
+        RowService pipelined = service(true);
+        try {
+            index(sequential, NUM_ROWS);
+            index(pipelined, NUM_ROWS);
+            int refCount = refCount(pipelined);
+            for (int limit : new int[]{1, 150, 10000}) {
+                List<DecoratedKey> keys = search(pipelined, limit);
+                assertEquals("Pipelined search must return the same rows", search(sequential, limit), keys);
+                assertEquals("Stopped pipeline must release the searcher", refCount, refCount(pipelined));
+            }
+        } finally {
+            sequential.delete();
+            pipelined.delete();
+        }
+    }
+
+    @Test
+    public void testCompiledSearches() throws IOException {
+        RowService service = service(false);
+        try {
+            String json = "{filter:{type:\"match\",field:\"name\",value:\"a\"}}";
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer expression = ByteBuffer.wrap(bytes);
+            CompiledSearch search = service.compile(expression);
+            assertSame("Search must be compiled once", search, service.compile(UTF8Type.instance.decompose(json)));
+
+            bytes[json.indexOf("\"a\"") + 1] = 'b';
+            assertSame("Cached searches must not change with the caller's buffer",
+                       search,
+                       service.compile(UTF8Type.instance.decompose(json)));
+            assertNotSame("Different searches must be compiled apart", search, service.compile(expression));
+
+            service.invalidateCompiledSearches();
+            assertNotSame("Invalidated searches must be compiled again",
+                          search,
+                          service.compile(UTF8Type.instance.decompose(json)));
+        } finally {
+            service.delete();
+        }
+    }
+}
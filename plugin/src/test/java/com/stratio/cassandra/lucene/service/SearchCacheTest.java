@@ -0,0 +1,180 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.schema.Schema;
+import com.stratio.cassandra.lucene.schema.SchemaBuilders;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.marshal.AsciiType;
+import org.apache.cassandra.dht.RandomPartitioner;
+import org.apache.cassandra.thrift.CfDef;
+import org.apache.cassandra.thrift.ThriftConversion;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+/**
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class SearchCacheTest {
+
+    private static IndexWriter writer() throws IOException {
+        return new IndexWriter(new RAMDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+    }
+
+    private static void add(IndexWriter writer, String value) throws IOException {
+        Document document = new Document();
+        document.add(new StringField("field", value, Field.Store.NO));
+        writer.addDocument(document);
+        writer.commit();
+    }
+
+    private static SearchCache.Entry entry() {
+        return new SearchCache.Entry(Collections.<SearchResult>emptyList(), new ScoreDoc(1, 1.0f), 10, false);
+    }
+
+    @Test
+    public void testPutAndGet() throws IOException {
+        IndexWriter writer = writer();
+        add(writer, "value1");
+        IndexSearcher searcher = new IndexSearcher(DirectoryReader.open(writer, true));
+        Query query = new TermQuery(new Term("field", "value1"));
+
+        SearchCache cache = new SearchCache(10);
+        SearchCache.Key key = cache.key(searcher, query, Sort.RELEVANCE, null, 100, false);
+        assertNull("Cache must be empty", cache.get(key));
+        cache.put(key, entry());
+
+        SearchCache.Key sameKey = cache.key(searcher, new TermQuery(new Term("field", "value1")), Sort.RELEVANCE, null,
+                                            100, false);
+        SearchCache.Entry entry = cache.get(sameKey);
+        assertNotNull("Equal searches must be found", entry);
+        assertEquals("Expected 10 docs", 10, entry.getNumDocs());
+        assertFalse("Expected no more docs", entry.mayBeMoreDocs());
+
+        assertNull("Different limits must not be found",
+                   cache.get(cache.key(searcher, query, Sort.RELEVANCE, null, 50, false)));
+        assertNull("Different distinct must not be found",
+                   cache.get(cache.key(searcher, query, Sort.RELEVANCE, null, 100, true)));
+        assertNull("Different queries must not be found",
+                   cache.get(cache.key(searcher, new TermQuery(new Term("field", "value2")), Sort.RELEVANCE, null,
+                                       100, false)));
+
+        assertEquals("Expected 1 hit", 1, cache.getHits());
+        assertEquals("Expected 4 misses", 4, cache.getMisses());
+        writer.close();
+    }
+
+    @Test
+    public void testReaderVersion() throws IOException {
+        IndexWriter writer = writer();
+        add(writer, "value1");
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        Query query = new TermQuery(new Term("field", "value1"));
+
+        SearchCache cache = new SearchCache(10);
+        cache.put(cache.key(new IndexSearcher(reader), query, Sort.RELEVANCE, null, 100, false), entry());
+
+        add(writer, "value2");
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader, writer, true);
+        assertNotNull("Reader must have changed", newReader);
+        SearchCache.Key key = cache.key(new IndexSearcher(newReader), query, Sort.RELEVANCE, null, 100, false);
+        assertNull("Entries of previous readers must not be found", cache.get(key));
+        writer.close();
+    }
+
+    @Test
+    public void testRefresh() throws IOException {
+        IndexWriter writer = writer();
+        add(writer, "value1");
+        IndexSearcher searcher = new IndexSearcher(DirectoryReader.open(writer, true));
+        SearchCache cache = new SearchCache(10);
+        SearchCache.Key key = cache.key(searcher, new TermQuery(new Term("field", "value1")), Sort.RELEVANCE, null,
+                                        100, false);
+        cache.put(key, entry());
+
+        cache.afterRefresh(false);
+        assertNotNull("Entries must survive empty refreshes", cache.get(key));
+
+        cache.afterRefresh(true);
+        assertNull("Entries must be discarded after refreshes", cache.get(key));
+        writer.close();
+    }
+
+    private static Sort sort(TokenMapper tokenMapper, ClusteringKeyMapper clusteringKeyMapper) {
+        List<SortField> sortFields = new ArrayList<>();
+        sortFields.addAll(tokenMapper.sortFields());
+        sortFields.addAll(clusteringKeyMapper.sortFields());
+        return new Sort(sortFields.toArray(new SortField[sortFields.size()]));
+    }
+
+    @Test
+    public void testIndependentSearches() throws Exception {
+        Config.setClientMode(true);
+        DatabaseDescriptor.setPartitioner(new RandomPartitioner());
+        CfDef cfDef = new CfDef().setDefault_validation_class(AsciiType.class.getCanonicalName())
+                                 .setKeyspace("Keyspace1")
+                                 .setName("Standard1");
+        CFMetaData metadata = ThriftConversion.fromThrift(cfDef);
+        Schema schema = SchemaBuilders.schema().mapper("field", SchemaBuilders.stringMapper()).build();
+
+        IndexWriter writer = writer();
+        add(writer, "value1");
+        IndexSearcher searcher = new IndexSearcher(DirectoryReader.open(writer, true));
+        TokenMapper tokenMapper = new TokenMapperGeneric();
+        ClusteringKeyMapper clusteringKeyMapper = ClusteringKeyMapper.instance(metadata, schema);
+
+        SearchCache cache = new SearchCache(10);
+        Sort sort = sort(tokenMapper, clusteringKeyMapper);
+        cache.put(cache.key(searcher, new TermQuery(new Term("field", "value1")), sort, null, 100, false), entry());
+
+        Sort otherSort = sort(new TokenMapperGeneric(), ClusteringKeyMapper.instance(metadata, schema));
+        assertEquals("Independently built sorts must be equal", sort, otherSort);
+        assertEquals("Independently built sorts must have the same hash code", sort.hashCode(), otherSort.hashCode());
+        SearchCache.Key key = cache.key(searcher, new TermQuery(new Term("field", "value1")), otherSort, null, 100,
+                                        false);
+        assertNotNull("Independently compiled searches must be found", cache.get(key));
+        writer.close();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link SearchExecutor}.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class SearchExecutorTest {
+
+    @Test
+    public void testSubmit() throws InterruptedException, ExecutionException {
+        SearchExecutor executor = new SearchExecutor("test_index", 2);
+        assertEquals("Expected no tasks", 0, executor.getTasks());
+        assertEquals("Expected no wait time", 0D, executor.getMeanWaitMillis());
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final int value = i;
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return value;
+                }
+            }));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Wrong task result", Integer.valueOf(i), futures.get(i).get());
+        }
+        assertEquals("Expected 100 tasks", 100, executor.getTasks());
+        assertTrue("Expected non-negative wait time", executor.getMeanWaitMillis() >= 0);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSubmitAfterShutdown() throws InterruptedException, ExecutionException, TimeoutException {
+        SearchExecutor executor = new SearchExecutor("test_index", 2);
+        executor.shutdown();
+        Future<Integer> future = executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return 1;
+            }
+        });
+        assertEquals("Wrong task result", Integer.valueOf(1), future.get(1, TimeUnit.SECONDS));
+        assertEquals("Expected 1 task", 1, executor.getTasks());
+        assertTrue("Expected terminated executor", executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.db.ColumnFamily;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class ValidationHandOffTest {
+
+    @Test
+    public void testTake() {
+        ValidationHandOff<String> handOff = new ValidationHandOff<>();
+        ColumnFamily columnFamily1 = mock(ColumnFamily.class);
+        ColumnFamily columnFamily2 = mock(ColumnFamily.class);
+        handOff.put(columnFamily1, "result1");
+        handOff.put(columnFamily2, "result2");
+        assertEquals("Expected result of the first update", "result1", handOff.take(columnFamily1));
+        assertNull("Results must be taken only once", handOff.take(columnFamily1));
+        assertEquals("Expected result of the second update", "result2", handOff.take(columnFamily2));
+    }
+
+    @Test
+    public void testTakeNotValidated() {
+        ValidationHandOff<String> handOff = new ValidationHandOff<>();
+        handOff.put(mock(ColumnFamily.class), "result");
+        assertNull("Expected no result for a not validated update", handOff.take(mock(ColumnFamily.class)));
+    }
+}
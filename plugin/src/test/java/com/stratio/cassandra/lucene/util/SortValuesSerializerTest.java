@@ -0,0 +1,70 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.stratio.cassandra.lucene.util;
+
+import com.stratio.cassandra.lucene.IndexException;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+/**
+ * Class for testing {@link SortValuesSerializer}.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class SortValuesSerializerTest {
+
+    @Test
+    public void testSerialize() {
+        Object[] values = new Object[]{1.5f, 3L, 7, 2.5d, new BytesRef("abc"), null};
+        ByteBuffer bb = SortValuesSerializer.serialize(values);
+        Object[] result = SortValuesSerializer.deserialize(bb);
+        assertEquals("Expected 6 values", 6, result.length);
+        assertEquals("Float not preserved", 1.5f, result[0]);
+        assertEquals("Long not preserved", 3L, result[1]);
+        assertEquals("Integer not preserved", 7, result[2]);
+        assertEquals("Double not preserved", 2.5d, result[3]);
+        assertEquals("BytesRef not preserved", new BytesRef("abc"), result[4]);
+        assertNull("Null not preserved", result[5]);
+        assertEquals("ByteBuffer must not be modified", 0, bb.position());
+    }
+
+    @Test
+    public void testSerializeEmpty() {
+        ByteBuffer bb = SortValuesSerializer.serialize(new Object[0]);
+        assertEquals("Expected no values", 0, SortValuesSerializer.deserialize(bb).length);
+    }
+
+    @Test
+    public void testSerializeBytesRefWithOffset() {
+        BytesRef bytesRef = new BytesRef(new byte[]{1, 2, 3, 4}, 1, 2);
+        ByteBuffer bb = SortValuesSerializer.serialize(new Object[]{bytesRef});
+        Object[] result = SortValuesSerializer.deserialize(bb);
+        assertEquals("BytesRef not preserved", new BytesRef(new byte[]{2, 3}), result[0]);
+    }
+
+    @Test(expected = IndexException.class)
+    public void testSerializeUnsupported() {
+        SortValuesSerializer.serialize(new Object[]{"string"});
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.util;
+
+import com.stratio.cassandra.lucene.IndexException;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Tests for {@link TaskQueue}.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class TaskQueueTest {
+
+    private static TaskQueue queue(WaitStrategy waitStrategy) {
+        return new TaskQueue(4, 8, waitStrategy, new NamedThreadFactory("TaskQueueTest"));
+    }
+
+    private static void testOrder(WaitStrategy waitStrategy) {
+        final TaskQueue queue = queue(waitStrategy);
+        final List<List<Integer>> executions = new ArrayList<>();
+        for (int id = 0; id < 10; id++) {
+            executions.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        for (int i = 0; i < 1000; i++) {
+            final int id = i % 10;
+            final int value = i;
+            queue.submitAsynchronous(id, new Runnable() {
+                @Override
+                public void run() {
+                    executions.get(id).add(value);
+                }
+            });
+        }
+        queue.await();
+        for (int id = 0; id < 10; id++) {
+            List<Integer> values = executions.get(id);
+            assertEquals("Expected all tasks to be executed", 100, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                assertEquals("Expected tasks with same id to be executed in order", id + i * 10, (int) values.get(i));
+            }
+        }
+        queue.shutdown();
+    }
+
+    @Test
+    public void testOrderBlocking() {
+        testOrder(WaitStrategy.BLOCKING);
+    }
+
+    @Test
+    public void testOrderSleeping() {
+        testOrder(WaitStrategy.SLEEPING);
+    }
+
+    @Test
+    public void testOrderYielding() {
+        testOrder(WaitStrategy.YIELDING);
+    }
+
+    @Test
+    public void testOrderBusySpin() {
+        testOrder(WaitStrategy.BUSY_SPIN);
+    }
+
+    @Test
+    public void testAwaitConcurrentSubmissions() throws InterruptedException {
+        final TaskQueue queue = queue(WaitStrategy.BLOCKING);
+        final AtomicInteger count = new AtomicInteger();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 8; p++) {
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 500; i++) {
+                        queue.submitAsynchronous(i, new Runnable() {
+                            @Override
+                            public void run() {
+                                count.incrementAndGet();
+                            }
+                        });
+                    }
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        queue.await();
+        assertEquals("Expected all tasks to be executed", 4000, count.get());
+        queue.shutdown();
+    }
+
+    @Test
+    public void testIsDrained() {
+        TaskQueue queue = queue(WaitStrategy.BLOCKING);
+        int worker = queue.worker(0);
+        assertEquals("Expected drained queue", true, queue.isDrained(worker));
+        queue.await();
+        queue.shutdown();
+    }
+
+    @Test(expected = IndexException.class)
+    public void testSubmitAfterShutdown() {
+        TaskQueue queue = queue(WaitStrategy.BLOCKING);
+        queue.shutdown();
+        queue.submitAsynchronous(0, new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+}
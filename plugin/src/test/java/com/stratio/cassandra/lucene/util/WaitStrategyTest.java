@@ -0,0 +1,69 @@
+/*
+ * Licensed to STRATIO (C) under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.  The STRATIO (C) licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.stratio.cassandra.lucene.util;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Tests for {@link WaitStrategy}.
+ *
+ * @author Andres de la Pena {@literal <adelapena@stratio.com>}
+ */
+public class WaitStrategyTest {
+
+    @Test
+    public void testFromName() {
+        assertEquals(WaitStrategy.BLOCKING, WaitStrategy.fromName("blocking"));
+        assertEquals(WaitStrategy.BUSY_SPIN, WaitStrategy.fromName("BUSY_SPIN"));
+        assertNull(WaitStrategy.fromName("unknown"));
+    }
+
+    @Test
+    public void testNext() {
+        assertEquals(1, WaitStrategy.next(0));
+        assertEquals(200, WaitStrategy.next(199));
+        assertEquals(200, WaitStrategy.next(200));
+        assertEquals(200, WaitStrategy.next(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testNextNeverOverflows() {
+        int attempt = 0;
+        for (int i = 0; i < 1000; i++) {
+            attempt = WaitStrategy.next(attempt);
+        }
+        assertEquals(200, attempt);
+        assertTrue(WaitStrategy.BLOCKING.parks(attempt));
+    }
+
+    @Test
+    public void testParks() {
+        assertFalse(WaitStrategy.BLOCKING.parks(0));
+        assertTrue(WaitStrategy.BLOCKING.parks(100));
+        assertFalse(WaitStrategy.SLEEPING.parks(100));
+        assertFalse(WaitStrategy.YIELDING.parks(100));
+        assertFalse(WaitStrategy.BUSY_SPIN.parks(100));
+    }
+}